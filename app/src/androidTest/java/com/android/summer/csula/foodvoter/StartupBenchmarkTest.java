@@ -0,0 +1,70 @@
+package com.android.summer.csula.foodvoter;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.startup.StartupTracer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time from launching HomeActivity to its first drawn frame.
+ *
+ * The first launch runs in a freshly started process, so it is the closest to a cold start the
+ * instrumentation can get; compare it with `adb shell am start -W` for the full cold start.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmarkTest {
+
+    private static final String TAG = StartupBenchmarkTest.class.getSimpleName();
+    private static final int LAUNCHES = 5;
+
+    @Test
+    public void homeActivityFirstDraw() throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        List<Long> firstDrawTimes = new ArrayList<>();
+
+        for (int i = 0; i < LAUNCHES; i++) {
+            Intent intent = new Intent(instrumentation.getTargetContext(), HomeActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+
+            // Time each launch on its own rather than resetting the app's startup marks
+            long launchedAt = SystemClock.uptimeMillis();
+            Activity activity = instrumentation.startActivitySync(intent);
+            waitForFirstDrawAfter(launchedAt);
+
+            long firstDrawMs = StartupTracer.getLastFirstDrawUptimeMs() - launchedAt;
+            assertTrue("HomeActivity never drew its first frame", firstDrawMs >= 0);
+            firstDrawTimes.add(firstDrawMs);
+
+            Log.d(TAG, "launch " + i + " => first draw: " + firstDrawMs + "ms");
+            activity.finish();
+            instrumentation.waitForIdleSync();
+        }
+
+        long coldMs = firstDrawTimes.get(0);
+        Collections.sort(firstDrawTimes);
+        Log.d(TAG, "startup => cold: " + coldMs + "ms, median: "
+                + firstDrawTimes.get(firstDrawTimes.size() / 2) + "ms");
+    }
+
+    private static void waitForFirstDrawAfter(long uptimeMs) {
+        long deadline = SystemClock.uptimeMillis() + 5000;
+        while (StartupTracer.getLastFirstDrawUptimeMs() < uptimeMs && SystemClock.uptimeMillis() < deadline) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            SystemClock.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.PollEntry;
+import static org.junit.Assert.*;
+
+/**
+ * LocalStore against an in-memory database: the schema, the upserts and applyBatch().
+ */
+@RunWith(AndroidJUnit4.class)
+public class LocalStoreTest {
+
+    private LocalDbHelper dbHelper;
+    private LocalStore localStore;
+
+    @Before
+    public void setUp() throws Exception {
+        dbHelper = new LocalDbHelper(InstrumentationRegistry.getTargetContext(), null);
+        localStore = new LocalStore(dbHelper);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dbHelper.close();
+    }
+
+    @Test
+    public void onCreate_createsTablesAndIndexes() throws Exception {
+        List<String> tables = queryNames("table");
+        for (String table : Arrays.asList("polls", "poll_businesses", "votes", "user_polls",
+                "users", "friendships", "businesses")) {
+            assertTrue("missing table " + table, tables.contains(table));
+        }
+
+        List<String> indexes = queryNames("index");
+        assertTrue(indexes.contains("index_polls_activated_on"));
+        assertTrue(indexes.contains("index_polls_closes_at"));
+        assertTrue(indexes.contains("index_votes_user_id"));
+        assertTrue(indexes.contains("index_user_polls_activated_on"));
+    }
+
+    @Test
+    public void upsertPoll_replacesThePollItsBusinessesAndVotes() throws Exception {
+        Poll poll = newPoll("poll1", 100, "b1", "b2");
+        poll.setVotes(Collections.singletonMap("voter1", "b1"));
+        apply(poll);
+
+        Poll changed = newPoll("poll1", 100, "b2", "b3");
+        Map<String, String> votes = new HashMap<>();
+        votes.put("voter2", "b3");
+        votes.put("voter3", "b3");
+        changed.setVotes(votes);
+        changed.setCompleted(true);
+        changed.setWinner("b3");
+        apply(changed);
+
+        Cursor polls = localStore.queryPolls(Long.MAX_VALUE, 10);
+        try {
+            assertEquals(1, polls.getCount());
+            polls.moveToFirst();
+            Poll stored = LocalStore.toPoll(polls);
+            assertTrue(stored.isCompleted());
+            assertEquals("b3", stored.getWinner());
+        } finally {
+            polls.close();
+        }
+
+        assertEquals(Arrays.asList("b2", "b3"), readColumn(localStore.queryPollBusinesses("poll1"), "business_id"));
+        assertEquals(2, count(localStore.queryVotes("poll1")));
+    }
+
+    @Test
+    public void applyBatch_writesNothingIfAChangeFails() throws Exception {
+        final Poll poll = newPoll("poll1", 100, "b1");
+        List<LocalStore.Change> changes = new ArrayList<>();
+        changes.add(upsert(poll));
+        changes.add(new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                throw new IllegalStateException("failed change");
+            }
+        });
+
+        try {
+            localStore.applyBatch(changes);
+            fail("applyBatch() should rethrow");
+        } catch (IllegalStateException expected) {
+            // The whole transaction is rolled back
+        }
+        assertEquals(0, count(localStore.queryPolls(Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    public void queryPollKeys_isNewestFirstAndFiltersByUser() throws Exception {
+        List<LocalStore.Change> changes = new ArrayList<>();
+        changes.add(upsert(newPoll("old", 100, "b1")));
+        changes.add(upsert(newPoll("new", 300, "b1")));
+        changes.add(upsert(newPoll("middle", 200, "b1")));
+        changes.add(new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                LocalStore.upsertUserPoll(db, "user1", "old", 100);
+                LocalStore.upsertUserPoll(db, "user1", "new", 300);
+            }
+        });
+        localStore.applyBatch(changes);
+
+        assertEquals(Arrays.asList("new", "middle", "old"),
+                readColumn(localStore.queryPollKeys(null), PollEntry.COLUMN_POLL_ID));
+        assertEquals(Arrays.asList("new", "old"),
+                readColumn(localStore.queryPollKeys("user1"), PollEntry.COLUMN_POLL_ID));
+
+        Cursor keys = localStore.queryPollKeys(null);
+        try {
+            keys.moveToFirst();
+            Poll key = LocalStore.toPollKey(keys);
+            assertEquals("new", key.getPollId());
+            assertEquals(300, key.getActivatedOn());
+            assertFalse(key.isCompleted());
+        } finally {
+            keys.close();
+        }
+    }
+
+    private void apply(Poll poll) {
+        localStore.applyBatch(Collections.singletonList(upsert(poll)));
+    }
+
+    private static LocalStore.Change upsert(final Poll poll) {
+        return new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                LocalStore.upsertPoll(db, poll);
+            }
+        };
+    }
+
+    private List<String> queryNames(String type) {
+        return readColumn(dbHelper.getReadableDatabase().rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = ?", new String[]{type}), "name");
+    }
+
+    private static List<String> readColumn(Cursor cursor, String column) {
+        List<String> values = new ArrayList<>();
+        try {
+            int index = cursor.getColumnIndexOrThrow(column);
+            while (cursor.moveToNext()) {
+                values.add(cursor.getString(index));
+            }
+        } finally {
+            cursor.close();
+        }
+        return values;
+    }
+
+    private static int count(Cursor cursor) {
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Poll newPoll(String pollId, long activatedOn, String... businessIds) {
+        Poll poll = new Poll(new User("author", "authorId"));
+        poll.setPollId(pollId);
+        poll.setTitle("Lunch " + pollId);
+        poll.setActiveOn(activatedOn);
+
+        List<BusinessSummary> businesses = new ArrayList<>();
+        for (String businessId : businessIds) {
+            BusinessSummary business = new BusinessSummary();
+            business.setId(businessId);
+            business.setName("Restaurant " + businessId);
+            businesses.add(business);
+        }
+        poll.setBusinesses(businesses);
+        return poll;
+    }
+}
@@ -6,21 +6,30 @@ import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import com.android.summer.csula.foodvoter.adapters.UsersAdapter;
 import com.android.summer.csula.foodvoter.database.FoodVoterFirebaseDb;
+import com.android.summer.csula.foodvoter.database.UserSearch;
 import com.android.summer.csula.foodvoter.models.User;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public class AddFriendshipActivity extends AppCompatActivity implements
         UsersAdapter.UserAdapterListener,
-        FoodVoterFirebaseDb.Listener {
+        FoodVoterFirebaseDb.Listener,
+        UserSearch.Listener {
 
     private static final String TAG = AddFriendshipActivity.class.getSimpleName();
     private static final String EXTRA_ID = "userId";
 
     private FoodVoterFirebaseDb database;
+    private UserSearch userSearch;
 
     private RecyclerView userRecyclerView;
     private UsersAdapter usersAdapter;
@@ -50,6 +59,21 @@ public class AddFriendshipActivity extends AppCompatActivity implements
         userRecyclerView.setLayoutManager(layoutManager);
         userRecyclerView.setAdapter(usersAdapter);
 
+        // Only users matching what is typed are downloaded, not the whole users tree
+        userSearch = new UserSearch(this);
+        EditText searchEditText = (EditText) findViewById(R.id.edit_text_search_user);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence charSequence, int i, int i1, int i2) { }
+
+            @Override
+            public void onTextChanged(CharSequence charSequence, int i, int i1, int i2) {
+                userSearch.search(charSequence.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable editable) { }
+        });
     }
 
     @Override
@@ -59,25 +83,26 @@ public class AddFriendshipActivity extends AppCompatActivity implements
                 Toast.LENGTH_SHORT).show();
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        database.attachReadListener();
-    }
-
     @Override
     protected void onPause() {
         super.onPause();
-        database.detachReadListener();
+        userSearch.cancel();
     }
 
     @Override
-    public void onFriendAdded(User friend) { }
+    public void onSearchResults(List<User> users) {
+        // Don't offer the user to befriend themselves
+        List<User> candidates = new ArrayList<>();
+        for (User user : users) {
+            if (!user.getId().equals(userId)) {
+                candidates.add(user);
+            }
+        }
+        usersAdapter.swap(candidates);
+    }
 
     @Override
-    public void onUserAdded(User user) {
-        usersAdapter.add(user);
-    }
+    public void onFriendAdded(User friend) { }
 
     @Override
     public void onUserChanged(User user) {
@@ -3,7 +3,6 @@ package com.android.summer.csula.foodvoter;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.CollapsingToolbarLayout;
@@ -15,38 +14,47 @@ import android.widget.ImageView;
 import android.widget.RatingBar;
 import android.widget.TextView;
 
+import com.android.summer.csula.foodvoter.database.BusinessCatalog;
+import com.android.summer.csula.foodvoter.details.BusinessDetailsService;
+import com.android.summer.csula.foodvoter.images.ImageLoader;
+import com.android.summer.csula.foodvoter.maps.MapSnapshotService;
 import com.android.summer.csula.foodvoter.models.Details;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
 import com.android.summer.csula.foodvoter.yelpApi.models.Business;
 import com.android.summer.csula.foodvoter.yelpApi.models.Coordinate;
-import com.squareup.picasso.Picasso;
+import com.android.summer.csula.foodvoter.yelpApi.models.Hours;
 
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
-
-import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
 
 
-public class DetailActivity extends AppCompatActivity {
+public class DetailActivity extends AppCompatActivity
+        implements BusinessDetailsService.Listener, BusinessCatalog.Listener {
     private static final String EXTRA_BUSINESS = "business";
-    public TextView mName, mPhone, mAddress, mUrl, mPrice;
+    private static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    /* The map snapshot is 4 times wider than it is tall */
+    private static final int MAP_ASPECT_RATIO = 4;
+    public TextView mName, mPhone, mAddress, mUrl, mPrice, mHours;
     public ImageView mImageURL;
     public RatingBar mRating;
     public CheckBox mCheckBox$, mCheckBox$$, mCheckBox$$$, mCheckBox$$$$;
     public String price;
 
+    BusinessSummary mSummary;
     Business mBusiness;
 
 
-    //this is tempoary, will need to find a way to get data for long and lat
-    String MAP_API_ENDPOINT;
-
-//    public String STATIC_MAP_API_ENDPOINT ="http://maps.google.com/maps/api/staticmap?center="+longitude+","+lattitude+"&zoom=15&size=2000x500&scale=2&sensor=false";
-//    static final String STATIC_MAP_API_ENDPOINT = "http://maps.google.com/maps/api/staticmap?center=34.004507,-118.256703&zoom=13&markers=size:mid|color:red|label:E|34.004507,-118.256703&size=1500x300&sensor=false";
+    Coordinate mapCoordinate;
+    private AsyncTask<Void, Void, Bitmap> mapSnapshotTask;
+    /* The Yelp details replace what the catalog showed, the catalog never replaces them */
+    private boolean detailsShown;
+    private boolean destroyed;
 
 
-    public static Intent newIntent(Context context, Business business) {
+    /**
+     * The summary is shown right away, the rest of the business is loaded from the catalog.
+     */
+    public static Intent newIntent(Context context, BusinessSummary business) {
         Intent intent = new Intent(context, DetailActivity.class);
         intent.putExtra(EXTRA_BUSINESS, business);
         return intent;
@@ -67,72 +75,118 @@ public class DetailActivity extends AppCompatActivity {
         mPhone = (TextView) findViewById(R.id.phoneNumber);
         mUrl = (TextView) findViewById(R.id.url);
         mAddress = (TextView) findViewById(R.id.address);
+        mHours = (TextView) findViewById(R.id.hours);
         mRating = (RatingBar) findViewById(R.id.ratingsBar);
 
 
         Intent intent = getIntent();
         Bundle bundle = intent.getExtras();
         if(bundle!=null){
-            mBusiness = (Business) getIntent().getSerializableExtra(EXTRA_BUSINESS);
-
-            mName.setText(mBusiness.getName());
-            mPhone.setText(mBusiness.getDisplayPhone());
-            mAddress.setText(parseAddressArray(mBusiness.getLocation().getDisplayAddress()));
-            mRating.setRating((float) mBusiness.getRating());
-
-            CheckboxChecking(mBusiness.getPrice());
+            mSummary = (BusinessSummary) getIntent().getSerializableExtra(EXTRA_BUSINESS);
 
-            mUrl.setText(mBusiness.getUrl());
-            Linkify.addLinks(mUrl, Linkify.WEB_URLS);
+            mName.setText(mSummary.getName());
+            mRating.setRating((float) mSummary.getRating());
 
+            // The header spans the screen width, no need for the full size original photo
             ImageView mImgURL = (ImageView) findViewById(R.id.imgURL);
-            Picasso.with(this)
-                    .load(mBusiness.getImageUrl())
-                    .into(mImgURL);
-
-
-            Coordinate coordinate = mBusiness.getCoordinate();
-            MAP_API_ENDPOINT ="http://maps.google.com/maps/api/staticmap?center="+coordinate.getLatitude()+","+coordinate.getLongitude()+"&zoom=15&size=2000x500&scale=2&sensor=false";
+            ImageLoader.get(this).load(mSummary.getImageUrl(),
+                    getResources().getDisplayMetrics().widthPixels, mImgURL,
+                    R.drawable.restaurant_default_image);
 
             //setting Rest Name for collapsingToolbar
             CollapsingToolbarLayout collapsingToolbar = (CollapsingToolbarLayout) findViewById(R.id.collapsing_toolbar);
-            collapsingToolbar.setTitle(mBusiness.getName());
+            collapsingToolbar.setTitle(mSummary.getName());
             collapsingToolbar.setExpandedTitleTextAppearance(R.style.ExpandedAppBar);
             collapsingToolbar.setCollapsedTitleTextAppearance(R.style.CollapsedAppBar);
+
+            // Phone, address, url, price and location come from the businesses catalog right
+            // away, the Yelp details (usually prefetched by ListActivity) add the hours
+            BusinessCatalog.load(mSummary.getId(), this);
+            BusinessDetailsService.get(this).load(mSummary.getId(), this);
         }
 
         if (bundle == null){
                     viewModel();
+                    loadMapSnapshot();
+        }
+    }
+
+    @Override
+    public void onDetailsLoaded(Business business) {
+        if (business == null || destroyed || isFinishing()) {
+            return;     // Without a connection, the catalog is what we show
+        }
+        detailsShown = true;
+        showBusiness(business);
+
+        if (business.getHours() != null && !business.getHours().isEmpty()) {
+            mHours.setText(formatHours(business.getHours()));
+            mHours.setVisibility(View.VISIBLE);
+        }
+    }
+
+    @Override
+    public void onBusinessLoaded(Business business) {
+        if (business == null || detailsShown || destroyed || isFinishing()) {
+            return;
+        }
+        showBusiness(business);
+    }
+
+    private void showBusiness(Business business) {
+        mBusiness = business;
+
+        mPhone.setText(mBusiness.getDisplayPhone());
+        if (mBusiness.getLocation() != null) {
+            mAddress.setText(parseAddressArray(mBusiness.getLocation().getDisplayAddress()));
+        }
+
+        if (mBusiness.getPrice() != null) {
+            CheckboxChecking(mBusiness.getPrice());
         }
 
+        mUrl.setText(mBusiness.getUrl());
+        Linkify.addLinks(mUrl, Linkify.WEB_URLS);
+
+        // The catalog and the details have the same location, only load the map once
+        if (mapCoordinate == null) {
+            mapCoordinate = mBusiness.getCoordinate();
+            loadMapSnapshot();
+        }
+    }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        destroyed = true;
+        if (mSummary != null) {
+            BusinessDetailsService.get(this).cancel(mSummary.getId(), this);
+        }
+        if (mapSnapshotTask != null) {
+            mapSnapshotTask.cancel(true);
+        }
+    }
 
-        AsyncTask<Void, Void, Bitmap> setImageFromUrl = new AsyncTask<Void, Void, Bitmap>(){
+    /**
+     * Show the map snapshot once the image view is laid out, so we can ask for its exact size.
+     */
+    private void loadMapSnapshot() {
+        if (mapCoordinate == null) {
+            return;
+        }
+
+        final ImageView mapImageView = (ImageView) findViewById(R.id.img);
+        mapImageView.post(new Runnable() {
             @Override
-            protected Bitmap doInBackground(Void... params) {
-                Bitmap bmp = null;
-                HttpClient httpclient = new DefaultHttpClient();
-                HttpGet request = new HttpGet(MAP_API_ENDPOINT);
-
-                InputStream in = null;
-                try {
-                    in = httpclient.execute(request).getEntity().getContent();
-                    bmp = BitmapFactory.decodeStream(in);
-                    in.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                return bmp;
-            }
-            protected void onPostExecute(Bitmap bmp) {
-                if (bmp!=null) {
-                    final ImageView iv = (ImageView) findViewById(R.id.img);
-                    iv.setImageBitmap(bmp);
+            public void run() {
+                int widthPx = mapImageView.getWidth();
+                if (widthPx == 0 || isFinishing()) {
+                    return;
                 }
+                mapSnapshotTask = MapSnapshotService.get(DetailActivity.this)
+                        .load(mapCoordinate, widthPx, widthPx / MAP_ASPECT_RATIO, mapImageView);
             }
-        };
-        setImageFromUrl.execute();
-
+        });
     }
 
     public void CheckboxChecking(String price){
@@ -186,11 +240,11 @@ public class DetailActivity extends AppCompatActivity {
 
         mImageURL = (ImageView) findViewById(R.id.imgURL);
         details.setImgURL("http://s3-media3.fl.yelpcdn.com/bphoto/nQK-6_vZMt5n88zsAS94ew/o.jpg");
-        Picasso.with(this)
-                .load(details.getImgURL())
-                .into(mImageURL);
+        ImageLoader.get(this).load(details.getImgURL(),
+                getResources().getDisplayMetrics().widthPixels, mImageURL,
+                R.drawable.restaurant_default_image);
 
-         MAP_API_ENDPOINT ="http://maps.google.com/maps/api/staticmap?center="+longitude+","+latitude+"&zoom=15&size=2000x500&scale=2&sensor=false";
+        mapCoordinate = new Coordinate(Double.parseDouble(longitude), Double.parseDouble(latitude));
 
         //setting Rest Name
         CollapsingToolbarLayout collapsingToolbar = (CollapsingToolbarLayout) findViewById(R.id.collapsing_toolbar);
@@ -202,6 +256,28 @@ public class DetailActivity extends AppCompatActivity {
 
 
 
+    /**
+     * One line per opening interval, i.e. "Mon 10:00 - 23:00".
+     */
+    private static String formatHours(List<Hours> hoursList) {
+        StringBuilder text = new StringBuilder();
+        for (Hours hours : hoursList) {
+            if (text.length() > 0) {
+                text.append("\n");
+            }
+            text.append(String.format(Locale.US, "%s %s - %s", DAYS[hours.getDay() % DAYS.length],
+                    formatTime(hours.getStart()), formatTime(hours.getEnd())));
+        }
+        return text.toString();
+    }
+
+    /**
+     * "1000" => "10:00"
+     */
+    private static String formatTime(String time) {
+        return time.length() == 4 ? time.substring(0, 2) + ":" + time.substring(2) : time;
+    }
+
     private static String parseAddressArray(List<String> displayAddress){
         String address = "";
         for (String str : displayAddress) {
@@ -0,0 +1,23 @@
+package com.android.summer.csula.foodvoter;
+
+
+import android.app.Application;
+
+import com.android.summer.csula.foodvoter.network.HttpClient;
+import com.android.summer.csula.foodvoter.startup.StartupTracer;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpRateLimiter;
+
+public class FoodVoterApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        StartupTracer.reset();
+        StartupTracer.beginSection("FoodVoterApplication.onCreate");
+        super.onCreate();
+        // Before any screen asks for it, so the shared client gets its disk cache
+        HttpClient.init(this);
+        YelpRateLimiter.init(this);
+        StartupTracer.endSection();
+        StartupTracer.mark(StartupTracer.APPLICATION_CREATED);
+    }
+}
@@ -123,9 +123,6 @@ public class FriendsActivity extends AppCompatActivity implements
         usersAdapter.clear();
     }
 
-    @Override
-    public void onUserAdded(User user) { } // Do nothing
-
     @Override
     public void onUserChanged(User user) {
         usersAdapter.updateOnlineStatus(user);
@@ -21,12 +21,22 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.android.summer.csula.foodvoter.database.FoodVoterFirebaseDb;
+import com.android.summer.csula.foodvoter.database.PresenceManager;
+import com.android.summer.csula.foodvoter.database.ServerClock;
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
 import com.android.summer.csula.foodvoter.database.UserUpdater;
+import com.android.summer.csula.foodvoter.database.local.SyncCursors;
+import com.android.summer.csula.foodvoter.database.local.SyncEngine;
+import com.android.summer.csula.foodvoter.database.local.SyncManager;
+import com.android.summer.csula.foodvoter.metrics.MetricsActivity;
 import com.android.summer.csula.foodvoter.models.User;
 import com.android.summer.csula.foodvoter.polls.AllPollsFragment;
 import com.android.summer.csula.foodvoter.polls.InvitedToPollFragment;
 import com.android.summer.csula.foodvoter.polls.PollActivity;
+import com.android.summer.csula.foodvoter.polls.PollTemplatesActivity;
 import com.android.summer.csula.foodvoter.pushNotifications.MyFirebasePreference;
+import com.android.summer.csula.foodvoter.startup.StagedInitializer;
+import com.android.summer.csula.foodvoter.startup.StartupTracer;
 import com.firebase.ui.auth.AuthUI;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -42,12 +52,14 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
 
     private static final String TAG = HomeActivity.class.getSimpleName();
     private static final int REQUEST_CODE_SIGN_IN = 1;
+    private static final String KEY_SELECTED_TAB = "selected_tab";
 
     private FirebaseAuth firebaseAuth;
     private FirebaseAuth.AuthStateListener authStateListener;
     private DatabaseReference connectedDatabaseReference;
     private ValueEventListener connectedValueListener;
     private FoodVoterFirebaseDb database;
+    private StagedInitializer stagedInitializer;
 
     private FirebaseUser firebaseUser;
 
@@ -60,11 +72,22 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
 
     protected void onCreate(Bundle savedInstanceState) {
         Log.d(TAG, "onCreate()");
+        StartupTracer.beginSection("HomeActivity.onCreate");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home);
 
         Log.d(TAG, "token => " + MyFirebasePreference.getToken(this));
 
+        // Only auth and the visible tab are on the startup critical path, everything else waits
+        // for the first frame
+        stagedInitializer = new StagedInitializer(this);
+        stagedInitializer.runAfterFirstDraw("ServerClock.start", new Runnable() {
+            @Override
+            public void run() {
+                ServerClock.start();
+            }
+        });
+
         /* Setup firebase database */
         connectedDatabaseReference = FirebaseDatabase.getInstance().getReference(".info/connected");
 
@@ -72,8 +95,17 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         authStateListener = setupAuthStateListener();
 
         usernameTextView = (TextView) findViewById(R.id.tv_username);
+        usernameTextView.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                // Hidden on purpose, see MetricsActivity
+                startActivity(MetricsActivity.newIntent(HomeActivity.this));
+                return true;
+            }
+        });
         userPresenceImage = (ImageView) findViewById(R.id.image_view_my_presence);
         tabLayout = (TabLayout) findViewById(R.id.tab_layout_home_polls);
+        initializeTabLayout(savedInstanceState);
 
         FloatingActionButton addPollButton = (FloatingActionButton) findViewById(R.id.button_add_poll);
         addPollButton.setOnClickListener(new View.OnClickListener() {
@@ -90,17 +122,17 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         pollIntentFilter = new IntentFilter();
         pollIntentFilter.addAction(PollBroadcastReceiver.ACTION_SUCCESSFUL_WRITE);
         pollIntentFilter.addAction(PollBroadcastReceiver.ACTION_UNSUCCESSFUL_WRITE);
+        pollIntentFilter.addAction(PollBroadcastReceiver.ACTION_PENDING_WRITE);
         pollBroadcastReceiver = new PollBroadcastReceiver();
+        StartupTracer.endSection();
     }
 
     @Override
     protected void onResume() {
         Log.d(TAG, "onResume()");
         super.onResume();
+        stagedInitializer.resume();
         firebaseAuth.addAuthStateListener(authStateListener);
-        // Since the fragment data could change during onPause, we need to (re) initialized the tab
-        // layout during onResume();
-        initializeTabLayout();
 
         LocalBroadcastManager.getInstance(this)
                 .registerReceiver(pollBroadcastReceiver, pollIntentFilter);
@@ -110,6 +142,7 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
     protected void onPause() {
         Log.d(TAG, "onPause()");
         super.onPause();
+        stagedInitializer.pause();
         if (authStateListener != null) {
             firebaseAuth.removeAuthStateListener(authStateListener);
         }
@@ -117,6 +150,12 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         LocalBroadcastManager.getInstance(this).unregisterReceiver(pollBroadcastReceiver);
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(KEY_SELECTED_TAB, tabLayout.getSelectedTabPosition());
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         Log.d(TAG, "onActivityResult()");
@@ -148,8 +187,15 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
             case R.id.friends_menu:
                 launchFriendsActivity();
                 return true;
+            case R.id.poll_templates_menu:
+                startActivity(PollTemplatesActivity.newIntent(this, firebaseUser.getUid()));
+                return true;
             case R.id.sign_out_menu:
-                setUserOnlineStatus(false);
+                PresenceManager.getInstance().stop();
+                SyncEngine.get(this).stop();
+                SyncManager.cancelPeriodicSync(this);
+                // The next user syncs from scratch, not from this user's cursors
+                SyncCursors.clear(this);
                 AuthUI.getInstance().signOut(this);
                 return true;
             default:
@@ -185,13 +231,47 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
     private void onSignedInInitialized() {
         database = new FoodVoterFirebaseDb(this, firebaseUser.getUid());
         usernameTextView.setText(firebaseUser.getDisplayName());
-        logUserOnline();
-        attachDatabaseReadListener();
-        attachConnectedValueListener();
+
+        stagedInitializer.runAfterFirstDraw("logUserOnline", new Runnable() {
+            @Override
+            public void run() {
+                logUserOnline();
+            }
+        });
+        stagedInitializer.runAfterFirstDraw("presence", new Runnable() {
+            @Override
+            public void run() {
+                PresenceManager.getInstance().start(firebaseUser.getUid());
+                attachConnectedValueListener();
+            }
+        });
+        stagedInitializer.runAfterFirstDraw("friendSync", new Runnable() {
+            @Override
+            public void run() {
+                attachDatabaseReadListener();
+            }
+        });
+        stagedInitializer.runAfterFirstDraw("localStoreSync", new Runnable() {
+            @Override
+            public void run() {
+                SyncEngine.get(HomeActivity.this).start(firebaseUser.getUid());
+                SyncManager.schedulePeriodicSync(HomeActivity.this);
+            }
+        });
     }
 
-    private void initializeTabLayout() {
-        tabLayout = (TabLayout) findViewById(R.id.tab_layout_home_polls);
+    /**
+     * Called once from onCreate. The poll fragments keep their data in a retained PollListModel,
+     * and after a rotation the fragment manager restores the fragment that was showing.
+     */
+    private void initializeTabLayout(Bundle savedInstanceState) {
+        if (savedInstanceState != null) {
+            TabLayout.Tab selectedTab = tabLayout.getTabAt(savedInstanceState.getInt(KEY_SELECTED_TAB));
+            if (selectedTab != null) {
+                selectedTab.select();
+            }
+        }
+
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
@@ -205,6 +285,10 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
             public void onTabReselected(TabLayout.Tab tab) { }
         });
 
+        if (savedInstanceState != null) {
+            return;
+        }
+
         getSupportFragmentManager()
                 .beginTransaction()
                 .replace(R.id.fragment_container_poll_list, AllPollsFragment.newInstance())
@@ -243,7 +327,13 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         database.attachReadListener();
     }
 
+    /**
+     * Only updates the presence icon, writing the presence itself is done by PresenceManager.
+     */
     private void attachConnectedValueListener() {
+        if (connectedValueListener != null) {
+            TrackedListeners.removeEventListener(connectedDatabaseReference, connectedValueListener);
+        }
         connectedValueListener = new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
@@ -254,15 +344,13 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
                 } else {
                     userPresenceImage.setImageResource(android.R.drawable.presence_offline);
                 }
-
-                setUserOnlineStatus(isConnected);
             }
 
             @Override
             public void onCancelled(DatabaseError databaseError) {
             }
         };
-        connectedDatabaseReference.addValueEventListener(connectedValueListener);
+        TrackedListeners.addValueEventListener(connectedDatabaseReference, connectedValueListener);
     }
 
     private void onSignedOutCleanup() {
@@ -276,7 +364,7 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         }
 
         if (connectedDatabaseReference != null && connectedValueListener != null) {
-            connectedDatabaseReference.removeEventListener(connectedValueListener);
+            TrackedListeners.removeEventListener(connectedDatabaseReference, connectedValueListener);
         }
     }
 
@@ -287,13 +375,6 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         startActivity(friendsIntent);
     }
 
-    private void setUserOnlineStatus(final boolean isOnline) {
-        UserUpdater.updateOnlineStatus(firebaseUser.getUid(), isOnline);
-    }
-
-    @Override
-    public void onUserAdded(User user) { } // Left intentionally blank
-
     @Override
     public void onUserChanged(User user) { } // Left intentionally blank
 
@@ -308,6 +389,8 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
     public class PollBroadcastReceiver extends BroadcastReceiver {
         public static final String ACTION_SUCCESSFUL_WRITE = "successful_create";
         public static final String ACTION_UNSUCCESSFUL_WRITE = "unsuccessful_create";
+        /* Timed out but couldn't be cancelled, the poll shows up once the server publishes it */
+        public static final String ACTION_PENDING_WRITE = "pending_create";
 
 
         @Override
@@ -321,6 +404,9 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
                 case ACTION_UNSUCCESSFUL_WRITE:
                     displayUnsuccessfulWriteToast(context);
                     break;
+                case ACTION_PENDING_WRITE:
+                    displayPendingWriteToast(context);
+                    break;
             }
         }
 
@@ -329,7 +415,11 @@ public class HomeActivity extends AppCompatActivity implements FoodVoterFirebase
         }
 
         private void displayUnsuccessfulWriteToast(Context context) {
-            Toast.makeText(context, "Poll Creation was successful!", Toast.LENGTH_LONG).show();
+            Toast.makeText(context, "Poll Creation failed, please try again", Toast.LENGTH_LONG).show();
+        }
+
+        private void displayPendingWriteToast(Context context) {
+            Toast.makeText(context, "Your poll is still being published, it will show up soon", Toast.LENGTH_LONG).show();
         }
     }
 }
@@ -3,6 +3,7 @@ package com.android.summer.csula.foodvoter;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
@@ -11,11 +12,15 @@ import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import com.android.summer.csula.foodvoter.database.ServerClock;
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.details.BusinessDetailsService;
+import com.android.summer.csula.foodvoter.images.ImageLoader;
 import com.android.summer.csula.foodvoter.models.Vote;
+import com.android.summer.csula.foodvoter.polls.PollUtilities;
+import com.android.summer.csula.foodvoter.polls.VoteSubmitter;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
 import com.android.summer.csula.foodvoter.polls.models.Poll;
-import com.android.summer.csula.foodvoter.yelpApi.models.Business;
-import com.android.summer.csula.foodvoter.yelpApi.models.Coordinate;
-import com.android.summer.csula.foodvoter.yelpApi.models.Location;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.DataSnapshot;
@@ -27,27 +32,39 @@ import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ListActivity extends AppCompatActivity implements RVoteAdapter.ListItemClickListener, RVoteAdapter.SwitchListener {
+public class ListActivity extends AppCompatActivity implements RVoteAdapter.ListItemClickListener,
+        RVoteAdapter.SwitchListener, VoteSubmitter.Listener {
 
     private static final String EXTRA_POLL = "poll";
     private static final String POLLS_TREE = "polls";
-    private static final String VOTES_TREE = "votes";
     private static final String TOAST_VOTE_RECORDED = "You're vote is recorded!";
     private static final String TOAST_VOTE_ABSENT =  "You haven't made a choice yet!";
     private static final String TOAST_WELCOME_MSG =  "Pleace select a place you like!";
+    private static final String TOAST_POLL_CLOSED =  "This poll is closed, votes are no longer accepted.";
+    private static final int PREFETCH_AHEAD = 3;
+    private static final String TOAST_VOTE_REJECTED =  "Your vote couldn't be recorded, the poll may be closed.";
 
     private RVoteAdapter rVoteAdapter;
     private RecyclerView rVoteRecyclerView;
-    private List<Business> rChoiceData;
+    private List<BusinessSummary> rChoiceData;
     private Toast mToast;
     private final static String TAG = "ListActivity";
 
-    private Business votedBusiness;
+    private BusinessSummary votedBusiness;
     private DatabaseReference pollRef;      // polls/{id}
     private Poll poll;                      // the object corresponding to polls/{id}
-    private DatabaseReference voteRef;      // polls/{id}/votes/{id}/  key-value <String, String>
+    private VoteSubmitter voteSubmitter;    // writes polls/{id}/votes/{id}/ and its tally entry
     private String userId;
 
+    // Stop accepting votes locally the moment the poll's time limit runs out, the server will
+    // close the poll shortly after.
+    private final Handler pollCloseHandler = new Handler();
+    private final Runnable pollCloseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            showShortToast(TOAST_POLL_CLOSED);
+        }
+    };
 
     public static Intent newIntent(Context context, Poll poll) {
         Intent intent = new Intent(context, ListActivity.class);
@@ -68,10 +85,17 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
         rChoiceData = new ArrayList<>();
         rVoteAdapter = new RVoteAdapter(this,rChoiceData,this,this);
         rVoteRecyclerView.setAdapter(rVoteAdapter);
-        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         rVoteRecyclerView.setLayoutManager(layoutManager);
+        rVoteRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                prefetchImagesAfter(layoutManager.findLastVisibleItemPosition());
+            }
+        });
 
         userId = getCurrentUserId();
+        ServerClock.start();
 
         // This seems like the only way you can instantiate a toast object.
         mToast = Toast.makeText(this, TOAST_WELCOME_MSG, Toast.LENGTH_SHORT);
@@ -87,7 +111,20 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
     }
 
     @Override
-    public void onListItemClick(Business business) {
+    protected void onPause() {
+        super.onPause();
+        pollCloseHandler.removeCallbacks(pollCloseRunnable);
+        ImageLoader.get(this).logStats();
+
+        // Let a vote tapped just before leaving go through, only stop updating this screen
+        if (voteSubmitter != null) {
+            voteSubmitter.detach();
+            voteSubmitter = null;
+        }
+    }
+
+    @Override
+    public void onListItemClick(BusinessSummary business) {
         Intent intent = DetailActivity.newIntent(this, business);
         startActivity(intent);
     }
@@ -98,12 +135,11 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
     private void initializeDatabaseReference() {
         String pollId = getExtraPollId(getIntent());
         pollRef = buildPollRef(pollId);
-        voteRef = buildVoteRef(pollRef, userId);
         attachSingleValueListenerToPoll();
     }
 
     @Override
-    public void onSwitchSwiped(Business business, boolean swiped) {
+    public void onSwitchSwiped(BusinessSummary business, boolean swiped) {
         String toastMessage = "";
 
         if(swiped){
@@ -125,15 +161,32 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
             return;
         }
 
+        if (poll == null || voteSubmitter == null || PollUtilities.isClosed(poll)) {
+            showShortToast(TOAST_POLL_CLOSED);
+            return;
+        }
+
         // Business' id may look like business' name: "good-burger-place"
         Vote vote = new Vote(userId, votedBusiness.getId());
 
-        // Warning, the vote is not recorded onto the Poll.class, only onto firebase json node
-        writeVoteToFirebase(voteRef, vote);
-        showShortToast(buildChoiceMessage(votedBusiness));
+        // Warning, the vote is not recorded onto the Poll.class, only onto firebase json node.
+        // Repeated taps are coalesced by the submitter, only the latest choice is written.
+        voteSubmitter.submit(vote);
+    }
+
+    @Override
+    public void onVoteCommitted(String businessId, long latencyInMs) {
+        if (votedBusiness != null && votedBusiness.getId().equals(businessId)) {
+            showShortToast(buildChoiceMessage(votedBusiness));
+        }
+    }
+
+    @Override
+    public void onVoteRejected(String businessId, DatabaseError databaseError) {
+        showShortToast(TOAST_VOTE_REJECTED);
     }
 
-    private static String buildChoiceMessage(Business business) {
+    private static String buildChoiceMessage(BusinessSummary business) {
         return TOAST_VOTE_RECORDED + " " + "You selected " + business.getName();
     }
     private void showShortToast(String message) {
@@ -142,10 +195,6 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
         mToast.show();
     }
 
-    private void writeVoteToFirebase(DatabaseReference userVoteReference, Vote vote) {
-        userVoteReference.setValue(vote.getBusinessId());
-    }
-
     /**
      * Return the id of the current logged in user.
      */
@@ -154,14 +203,6 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
         return firebaseUser == null ? null : firebaseUser.getUid();
     }
 
-    /**
-     * polls/{poll_id}/votes{user_id}/
-     * Return Database reference of the currently logged in user voting JSON tree.
-     */
-    public DatabaseReference buildVoteRef(DatabaseReference pollReference, String userId) {
-        return pollReference.child(VOTES_TREE).child(userId);
-    }
-
     /**
      * Returns a DatabaseReference to polls/{pollId}.
      */
@@ -184,6 +225,13 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
 
                 if (poll != null) {
                     rVoteAdapter.swapData(poll.getBusinesses());
+                    prefetchImagesAfter(0);
+                    prefetchDetails(poll.getBusinesses());
+                    schedulePollClose(poll);
+
+                    String committedBusinessId = poll.getVotes().get(userId);
+                    voteSubmitter = new VoteSubmitter(poll.getPollId(), userId,
+                            committedBusinessId, ListActivity.this);
                 }
             }
 
@@ -192,12 +240,56 @@ public class ListActivity extends AppCompatActivity implements RVoteAdapter.List
         };
     }
 
+    /**
+     * Fetch the Yelp details of every candidate, so opening one shows everything at once.
+     */
+    private void prefetchDetails(List<BusinessSummary> businesses) {
+        List<String> businessIds = new ArrayList<>();
+        for (BusinessSummary business : businesses) {
+            businessIds.add(business.getId());
+        }
+        BusinessDetailsService.get(this).prefetch(businessIds);
+    }
+
+    /**
+     * Warm up the image cache for the next few cards below the last visible one.
+     */
+    private void prefetchImagesAfter(int lastVisiblePosition) {
+        if (poll == null) {
+            return;
+        }
+
+        List<BusinessSummary> businesses = poll.getBusinesses();
+        int from = Math.max(0, lastVisiblePosition + 1);
+        int to = Math.min(businesses.size(), from + PREFETCH_AHEAD);
+
+        List<String> imageUrls = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            imageUrls.add(businesses.get(i).getImageUrl());
+        }
+        ImageLoader.get(this).prefetch(imageUrls, rVoteAdapter.getCardImageSizePx());
+    }
+
+    /**
+     * Let the user know as soon as the poll stops accepting votes, using the server time rather
+     * than the device clock.
+     */
+    private void schedulePollClose(Poll poll) {
+        pollCloseHandler.removeCallbacks(pollCloseRunnable);
+
+        if (PollUtilities.isClosed(poll)) {
+            showShortToast(TOAST_POLL_CLOSED);
+        } else if (poll.getClosesAt() > 0) {
+            pollCloseHandler.postDelayed(pollCloseRunnable, poll.getClosesAt() - ServerClock.now());
+        }
+    }
+
     /**
      *  Attach a listener for a single event, meaning it will read perform its operation once, and
      *  stop. Thus you don't have to detach it.
      */
     private void attachSingleValueListenerToPoll() {
         ValueEventListener valueEventListener = getValueEventListenerForPoll();
-        pollRef.addListenerForSingleValueEvent(valueEventListener);
+        TrackedListeners.addListenerForSingleValueEvent(pollRef, valueEventListener);
     }
 }
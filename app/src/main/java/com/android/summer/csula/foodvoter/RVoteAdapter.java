@@ -12,10 +12,11 @@ import android.widget.RatingBar;
 import android.widget.Switch;
 import android.widget.TextView;
 
+import com.android.summer.csula.foodvoter.images.ImageLoader;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
 import com.android.summer.csula.foodvoter.models.BusinessVoteHelper;
-import com.android.summer.csula.foodvoter.yelpApi.models.Business;
-import com.android.summer.csula.foodvoter.yelpApi.models.Category;
-import com.squareup.picasso.Picasso;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -32,10 +33,16 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
 
     private static int viewHolderCount;
 
+    private static final Timer bindTimer = Metrics.timer("adapter.vote.bind");
+
     private int mNumberItems;
 
     private final Context mContext;
 
+    /* Size of the business photo on a card, list_item.xml's rv_choice_item_image is 80dp */
+    private static final int CARD_IMAGE_SIZE_DP = 80;
+    private final int cardImageSizePx;
+
     private List<BusinessVoteHelper> mChoiceData;
 
     private final int ListItem = 0;
@@ -44,12 +51,12 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
     private String TAG = "RVoteAdapter";
 
     public interface ListItemClickListener{
-        void onListItemClick(Business business);
+        void onListItemClick(BusinessSummary business);
     }
 
     public interface SwitchListener{
         //void onSwitchSwiped(int swipedItemIndex, boolean swiped);
-        void onSwitchSwiped(Business swipedItem, boolean swiped);
+        void onSwitchSwiped(BusinessSummary swipedItem, boolean swiped);
     }
 
 
@@ -59,8 +66,9 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
         switchListener = swListener;
 
     }*/
-    public RVoteAdapter(@NonNull Context context, List<Business> businesses, ListItemClickListener listener, SwitchListener swListener) {
+    public RVoteAdapter(@NonNull Context context, List<BusinessSummary> businesses, ListItemClickListener listener, SwitchListener swListener) {
         mContext = context;
+        cardImageSizePx = (int) (CARD_IMAGE_SIZE_DP * context.getResources().getDisplayMetrics().density);
         mChoiceData = wrapBusiness(businesses);
         mOnClickListener = listener;
         switchListener = swListener;
@@ -70,9 +78,9 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
      * Wrap every bussiness object into a BusinesVoteHelper class so we can store data for it is
      * is selected or not.
      */
-    private static List<BusinessVoteHelper> wrapBusiness(List<Business> businesses) {
+    private static List<BusinessVoteHelper> wrapBusiness(List<BusinessSummary> businesses) {
         List<BusinessVoteHelper> businessVoteHelpers = new ArrayList<>();
-        for (Business business : businesses) {
+        for (BusinessSummary business : businesses) {
             businessVoteHelpers.add(new BusinessVoteHelper(business));
         }
         return businessVoteHelpers;
@@ -100,7 +108,9 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
+        long start = Timer.start();
         holder.bind(holder, position);
+        bindTimer.stop(start);
     }
 
     @Override
@@ -109,7 +119,14 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
         return mChoiceData.size() + 1;
     }
 
-    public void swapData(List<Business> businesses) {
+    /**
+     * Size, in pixels, of the photos shown on the cards. Used to prefetch the right variant.
+     */
+    public int getCardImageSizePx() {
+        return cardImageSizePx;
+    }
+
+    public void swapData(List<BusinessSummary> businesses) {
         //replace the old data with new data and force the recyclerView to refresh
         this.mChoiceData = wrapBusiness(businesses);
         this.notifyDataSetChanged();
@@ -139,20 +156,14 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
         public void bind(ViewHolder holder, int position){
             if(position < mChoiceData.size()){
                 //restaurant restaurant = mChoiceData.get(position);
-                final Business business = mChoiceData.get(position).getBusiness();
+                final BusinessSummary business = mChoiceData.get(position).getBusiness();
                 choiceItemView.setText(business.getName());
-                List<Category> categories = business.getCategories();
-                String list = "";
-                for(Category category : categories){
-                   list = list + " " + category.getTitle();
-                }
-                choiceDescView.setText(list);
+                choiceDescView.setText(business.getCategoryTitles());
                 choiceRatingView.setRating((float)business.getRating());
 
                 String imageUri = business.getImageUrl();
-                Picasso.with(mContext).load(imageUri).fit().centerCrop()
-                        .placeholder(R.drawable.restaurant_default_image)
-                        .into(choiceImageView);
+                ImageLoader.get(mContext).load(imageUri, cardImageSizePx, choiceImageView,
+                        R.drawable.restaurant_default_image);
 
                 voteSwitch.setTextOn("Yes");
                 voteSwitch.setTextOff("No");
@@ -185,7 +196,7 @@ public class RVoteAdapter extends RecyclerView.Adapter<RVoteAdapter.ViewHolder>{
         @Override
         public void onClick(View v) {
             int pos = getAdapterPosition();
-            Business business = mChoiceData.get(pos).getBusiness();
+            BusinessSummary business = mChoiceData.get(pos).getBusiness();
             mOnClickListener.onListItemClick(business);
         }
 
@@ -13,6 +13,8 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.android.summer.csula.foodvoter.R;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
 import com.android.summer.csula.foodvoter.models.Invitee;
 import com.android.summer.csula.foodvoter.models.User;
 import com.android.summer.csula.foodvoter.polls.InvitedVotersFragment;
@@ -27,6 +29,7 @@ import java.util.List;
 public class FriendsVoterAdapter extends RecyclerView.Adapter<FriendsVoterAdapter.ViewHolder> {
 
     private static final String TAG = FriendsVoterAdapter.class.getSimpleName();
+    private static final Timer bindTimer = Metrics.timer("adapter.invitees.bind");
 
 
     private List<Invitee> friends = new ArrayList<>();
@@ -52,7 +55,9 @@ public class FriendsVoterAdapter extends RecyclerView.Adapter<FriendsVoterAdapte
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
+        long start = Timer.start();
         holder.bind(position);
+        bindTimer.stop(start);
     }
 
     @Override
@@ -70,6 +75,17 @@ public class FriendsVoterAdapter extends RecyclerView.Adapter<FriendsVoterAdapte
         }
     }
 
+    /* Update the online status of the invitee matching the input user, if there is one */
+    public void updateOnlineStatus(User updatedUser) {
+        for (Invitee inv : friends) {
+            if (inv.getUser().equals(updatedUser)) {
+                inv.getUser().setOnline(updatedUser.isOnline());
+                notifyDataSetChanged();
+                return;
+            }
+        }
+    }
+
     public void addFriend(User user) {
         friends.add(new Invitee(user));
         notifyDataSetChanged();
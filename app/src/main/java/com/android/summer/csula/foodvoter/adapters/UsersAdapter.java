@@ -12,6 +12,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.android.summer.csula.foodvoter.R;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
 import com.android.summer.csula.foodvoter.models.User;
 
 import java.util.ArrayList;
@@ -20,6 +22,7 @@ import java.util.List;
 public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.ViewHolder> {
 
     private static final String TAG = UsersAdapter.class.getSimpleName();
+    private static final Timer bindTimer = Metrics.timer("adapter.users.bind");
 
     private List<User> users = new ArrayList<>();
     private UserAdapterListener listener;
@@ -45,7 +48,9 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.ViewHolder>
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
+        long start = Timer.start();
         holder.bind(holder, position);
+        bindTimer.stop(start);
     }
 
     @Override
@@ -58,6 +63,11 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.ViewHolder>
         notifyDataSetChanged();
     }
 
+    public void swap(List<User> users) {
+        this.users = new ArrayList<>(users);
+        notifyDataSetChanged();
+    }
+
     public void add(User friend) {
         users.add(friend);
         notifyDataSetChanged();
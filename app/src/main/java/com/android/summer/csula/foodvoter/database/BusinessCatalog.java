@@ -0,0 +1,70 @@
+package com.android.summer.csula.foodvoter.database;
+
+
+import android.support.v4.util.LruCache;
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+/**
+ * The businesses/{businessId} catalog. Every business offered in a poll is stored here once, in
+ * full, and shared by all the polls offering it; polls only carry a BusinessSummary. The details
+ * are loaded on demand, i.e. when the user opens a business, and kept in memory for a while.
+ */
+public class BusinessCatalog {
+
+    public static final String BUSINESSES_TREE = "businesses";
+
+    private static final int MEMORY_CACHE_SIZE = 50;
+    private static final LruCache<String, Business> cache = new LruCache<>(MEMORY_CACHE_SIZE);
+
+    private BusinessCatalog() {}
+
+    /**
+     * Return the path of a business in the catalog, for multi-path updates.
+     */
+    public static String getPath(String businessId) {
+        return BUSINESSES_TREE + "/" + businessId;
+    }
+
+    /**
+     * Load the full business, from memory when it was loaded before. The listener is called with
+     * null if the business isn't in the catalog (i.e. polls created before it existed).
+     */
+    public static void load(final String businessId, final Listener listener) {
+        Business cached = cache.get(businessId);
+        if (cached != null) {
+            listener.onBusinessLoaded(cached);
+            return;
+        }
+
+        DatabaseReference businessRef = FirebaseDatabase.getInstance()
+                .getReference()
+                .child(BUSINESSES_TREE)
+                .child(businessId);
+
+        TrackedListeners.addListenerForSingleValueEvent(businessRef, new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                Business business = dataSnapshot.getValue(Business.class);
+                if (business != null) {
+                    cache.put(businessId, business);
+                }
+                listener.onBusinessLoaded(business);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                listener.onBusinessLoaded(null);
+            }
+        });
+    }
+
+    public interface Listener {
+        void onBusinessLoaded(Business business);
+    }
+}
@@ -3,6 +3,9 @@ package com.android.summer.csula.foodvoter.database;
 
 import android.util.Log;
 
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
+import com.android.summer.csula.foodvoter.models.Presence;
 import com.android.summer.csula.foodvoter.models.User;
 import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
@@ -11,15 +14,20 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class FoodVoterFirebaseDb {
 
     private static final String TAG = FoodVoterFirebaseDb.class.getSimpleName();
     private static final String KEY_FRIENDSHIP = "friendship";
 
+    private static final Timer deserializeTimer = Metrics.timer("firebase.user.deserialize");
+
     private FoodVoterFirebaseDb.Listener listener;
     private DatabaseReference friendshipRef;
-    private ChildEventListener userChildEventListener;
     private ChildEventListener friendsChildEventListener;
+    private Map<String, ValueEventListener> presenceListeners = new HashMap<>();
     private String userId;
 
 
@@ -31,42 +39,16 @@ public class FoodVoterFirebaseDb {
         friendshipRef = database.getReference().child(KEY_FRIENDSHIP).child(userId);
     }
 
+    /**
+     * Listen to the user's friend list (and their presence). The whole users tree is no longer
+     * streamed, use UserSearch to find users that aren't friends yet.
+     */
     public void attachReadListener() {
-        if (userChildEventListener == null) {
-            attachUserChildEventListener();
-        }
-
         if (friendsChildEventListener == null) {
             attachFriendsChildEventListener();
         }
     }
 
-    private void attachUserChildEventListener() {
-        userChildEventListener = new ChildEventListener() {
-            @Override
-            public void onChildAdded(DataSnapshot dataSnapshot, String s) {
-                User user = dataSnapshot.getValue(User.class);
-                listener.onUserAdded(user);
-            }
-
-            @Override
-            public void onChildChanged(DataSnapshot dataSnapshot, String s) {
-                User user = dataSnapshot.getValue(User.class);
-                listener.onUserChanged(user);
-            }
-
-            @Override
-            public void onChildRemoved(DataSnapshot dataSnapshot) { }
-
-            @Override
-            public void onChildMoved(DataSnapshot dataSnapshot, String s) { }
-
-            @Override
-            public void onCancelled(DatabaseError databaseError) { }
-        };
-        UserUpdater.USERS_REFERENCE.addChildEventListener(userChildEventListener);
-    }
-
     private void attachFriendsChildEventListener() {
         friendsChildEventListener = new ChildEventListener() {
             @Override
@@ -75,14 +57,14 @@ public class FoodVoterFirebaseDb {
                 // different tree(friendships) from the  main Users tree which gets updated regularly
                 // The reason they can be outdated b/c the user could switch device, reinstall the app,
                 // delete the data, etc..
-                final User friend = myFriendsSnapshot.getValue(User.class);
+                final User friend = readUser(myFriendsSnapshot);
 
                 // So if compare the two to see if they are in sync
                 DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference().child("users").child(friend.getId());
-                usersRef.addListenerForSingleValueEvent(new ValueEventListener() {
+                TrackedListeners.addListenerForSingleValueEvent(usersRef, new ValueEventListener() {
                     @Override
                     public void onDataChange(DataSnapshot userSnapShot) {
-                        User updatedFriend = userSnapShot.getValue(User.class);
+                        User updatedFriend = readUser(userSnapShot);
                         Log.d(TAG, "is friend token in sync?: " + friend.toString());
 
                         if (!updatedFriend.getToken().equals(friend.getToken())) {
@@ -94,6 +76,7 @@ public class FoodVoterFirebaseDb {
                         }
 
                         listener.onFriendAdded(updatedFriend);
+                        attachPresenceListener(updatedFriend.getId());
                     }
 
                     @Override
@@ -105,8 +88,9 @@ public class FoodVoterFirebaseDb {
             public void onChildChanged(DataSnapshot dataSnapshot, String s) { }
 
             @Override
-
-            public void onChildRemoved(DataSnapshot dataSnapshot) { }
+            public void onChildRemoved(DataSnapshot dataSnapshot) {
+                detachPresenceListener(dataSnapshot.getKey());
+            }
 
             @Override
             public void onChildMoved(DataSnapshot dataSnapshot, String s) { }
@@ -114,23 +98,61 @@ public class FoodVoterFirebaseDb {
             @Override
             public void onCancelled(DatabaseError databaseError) { }
         };
-        friendshipRef.addChildEventListener(friendsChildEventListener);
+        TrackedListeners.addChildEventListener(friendshipRef, friendsChildEventListener);
     }
 
-    public void detachReadListener() {
-        if (userChildEventListener != null) {
-            UserUpdater.USERS_REFERENCE.removeEventListener(userChildEventListener);
-            userChildEventListener = null;
+    /**
+     * Watch the small presence/{friendId} node instead of the friend's whole User record, the
+     * listener is told about changes through onUserChanged with the online field filled in.
+     */
+    private void attachPresenceListener(final String friendId) {
+        if (presenceListeners.containsKey(friendId)) {
+            return;
+        }
+
+        ValueEventListener presenceListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                Presence presence = dataSnapshot.getValue(Presence.class);
+                User friend = new User(null, friendId, presence != null && presence.isOnline());
+                listener.onUserChanged(friend);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) { }
+        };
+        presenceListeners.put(friendId, presenceListener);
+        TrackedListeners.addValueEventListener(PresenceManager.getPresenceRef(friendId), presenceListener);
+    }
+
+    private static User readUser(DataSnapshot dataSnapshot) {
+        long start = Timer.start();
+        User user = dataSnapshot.getValue(User.class);
+        deserializeTimer.stop(start);
+        return user;
+    }
+
+    private void detachPresenceListener(String friendId) {
+        ValueEventListener presenceListener = presenceListeners.remove(friendId);
+        if (presenceListener != null) {
+            TrackedListeners.removeEventListener(PresenceManager.getPresenceRef(friendId), presenceListener);
         }
+    }
 
+    public void detachReadListener() {
         if (friendsChildEventListener != null) {
-            friendshipRef.removeEventListener(friendsChildEventListener);
+            TrackedListeners.removeEventListener(friendshipRef, friendsChildEventListener);
             friendsChildEventListener = null;
         }
+
+        for (Map.Entry<String, ValueEventListener> entry : presenceListeners.entrySet()) {
+            TrackedListeners.removeEventListener(PresenceManager.getPresenceRef(entry.getKey()), entry.getValue());
+        }
+        presenceListeners.clear();
     }
 
     public void befriendUser(final String hostId, final User friend) {
-        friendshipRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        TrackedListeners.addListenerForSingleValueEvent(friendshipRef, new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (!dataSnapshot.child(hostId).hasChild(friend.getId())) {
@@ -148,8 +170,6 @@ public class FoodVoterFirebaseDb {
     }
 
     public interface Listener {
-        void onUserAdded(User user);
-
         void onUserChanged(User user);
 
         void onFriendAdded(User user);
@@ -0,0 +1,133 @@
+package com.android.summer.csula.foodvoter.database;
+
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Estimates how many bytes a value takes once it is serialized to JSON the way the Firebase
+ * Realtime Database does it: maps and lists as they are, other objects through their public
+ * getters (getX() / isX()), skipping the ones annotated with @Exclude.
+ *
+ * Plain Java on purpose, so it also runs in unit tests and benchmarks.
+ */
+public class PayloadSizer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String EXCLUDE_ANNOTATION = "Exclude";
+
+    private PayloadSizer() {}
+
+    /**
+     * Return the size, in bytes, of the value serialized to JSON.
+     */
+    public static int sizeOf(Object value) {
+        if (value == null) {
+            return 4;   // null
+        }
+        if (value instanceof String) {
+            return value.toString().getBytes(UTF_8).length + 2;   // the quotes
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return String.valueOf(value).length();
+        }
+        if (value instanceof Enum) {
+            return ((Enum) value).name().length() + 2;
+        }
+        if (value instanceof Map) {
+            return sizeOfMap((Map<?, ?>) value);
+        }
+        if (value instanceof Collection) {
+            return sizeOfCollection((Collection<?>) value);
+        }
+        return sizeOfBean(value);
+    }
+
+    private static int sizeOfMap(Map<?, ?> map) {
+        int size = 2;   // {}
+        int entries = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;   // a null value deletes the key, it isn't stored
+            }
+            size += sizeOfEntry(String.valueOf(entry.getKey()), entry.getValue());
+            entries++;
+        }
+        return size + Math.max(0, entries - 1);   // the commas
+    }
+
+    private static int sizeOfCollection(Collection<?> collection) {
+        int size = 2;   // []
+        for (Object item : collection) {
+            size += sizeOf(item);
+        }
+        return size + Math.max(0, collection.size() - 1);
+    }
+
+    private static int sizeOfBean(Object bean) {
+        int size = 2;
+        int properties = 0;
+        for (Method method : bean.getClass().getMethods()) {
+            String property = propertyName(method);
+            if (property == null) {
+                continue;
+            }
+
+            Object value;
+            try {
+                value = method.invoke(bean);
+            } catch (Exception e) {
+                continue;
+            }
+            if (value == null) {
+                continue;
+            }
+            size += sizeOfEntry(property, value);
+            properties++;
+        }
+        return size + Math.max(0, properties - 1);
+    }
+
+    private static int sizeOfEntry(String key, Object value) {
+        return sizeOf(key) + 1 + sizeOf(value);   // "key":value
+    }
+
+    /**
+     * Return the name of the property the getter exposes, or null if the method isn't one.
+     */
+    private static String propertyName(Method method) {
+        if (Modifier.isStatic(method.getModifiers())
+                || method.getParameterTypes().length != 0
+                || method.getDeclaringClass() == Object.class
+                || isExcluded(method)) {
+            return null;
+        }
+
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return decapitalize(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2
+                && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+            return decapitalize(name.substring(2));
+        }
+        return null;
+    }
+
+    private static boolean isExcluded(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            if (annotation.annotationType().getSimpleName().equals(EXCLUDE_ANNOTATION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String decapitalize(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -0,0 +1,143 @@
+package com.android.summer.csula.foodvoter.database;
+
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.models.Presence;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keep presence/{userId} up to date for the signed in user.
+ *
+ * Every time the client (re)connects, an onDisconnect() write is registered first so the server
+ * flips the user offline even if the app crashes or loses its network. The "online" write itself
+ * is coalesced: connection flapping (switching apps, spotty network) only results in a write once
+ * the state has been stable for a moment, and nothing is written if the state didn't change.
+ */
+public class PresenceManager {
+
+    private static final String TAG = PresenceManager.class.getSimpleName();
+    private static final String PRESENCE_TREE = "presence";
+    private static final String CONNECTED = ".info/connected";
+    private static final long COALESCE_IN_MS = 3000;
+
+    private static PresenceManager instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final DatabaseReference connectedRef;
+
+    private DatabaseReference presenceRef;
+    private ValueEventListener connectedListener;
+
+    /* Last state written to the database, null when unknown (i.e. after a disconnect) */
+    private Boolean writtenOnline;
+    private boolean desiredOnline;
+
+    private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            writePresence(desiredOnline);
+        }
+    };
+
+    private PresenceManager() {
+        connectedRef = FirebaseDatabase.getInstance().getReference(CONNECTED);
+    }
+
+    public static synchronized PresenceManager getInstance() {
+        if (instance == null) {
+            instance = new PresenceManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Return a reference to presence/{userId}
+     */
+    public static DatabaseReference getPresenceRef(String userId) {
+        return FirebaseDatabase.getInstance().getReference().child(PRESENCE_TREE).child(userId);
+    }
+
+    /**
+     * Start publishing the presence of the user. Calling it again for the same user is a no-op.
+     */
+    public void start(String userId) {
+        if (connectedListener != null && presenceRef.getKey().equals(userId)) {
+            return;
+        }
+        stop();
+
+        presenceRef = getPresenceRef(userId);
+        connectedListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                Boolean connected = dataSnapshot.getValue(Boolean.class);
+
+                if (connected != null && connected) {
+                    // onDisconnect is tied to a single connection, so register it on every connect
+                    presenceRef.onDisconnect().setValue(buildPresence(false));
+                    schedulePresence(true);
+                } else {
+                    // The server takes care of the offline write, we just don't know the state
+                    writtenOnline = null;
+                    handler.removeCallbacks(writeRunnable);
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) { }
+        };
+        TrackedListeners.addValueEventListener(connectedRef, connectedListener);
+    }
+
+    /**
+     * Stop publishing and immediately mark the user offline, i.e. when they sign out.
+     */
+    public void stop() {
+        handler.removeCallbacks(writeRunnable);
+
+        if (connectedListener != null) {
+            TrackedListeners.removeEventListener(connectedRef, connectedListener);
+            connectedListener = null;
+        }
+
+        if (presenceRef != null) {
+            presenceRef.onDisconnect().cancel();
+            writePresence(false);
+            presenceRef = null;
+        }
+        writtenOnline = null;
+    }
+
+    private void schedulePresence(boolean online) {
+        desiredOnline = online;
+        handler.removeCallbacks(writeRunnable);
+        handler.postDelayed(writeRunnable, COALESCE_IN_MS);
+    }
+
+    private void writePresence(boolean online) {
+        if (presenceRef == null || (writtenOnline != null && writtenOnline == online)) {
+            return;
+        }
+        Log.d(TAG, "presence => online: " + online);
+        writtenOnline = online;
+        presenceRef.setValue(buildPresence(online));
+    }
+
+    private static Map<String, Object> buildPresence(boolean online) {
+        Map<String, Object> presence = new HashMap<>();
+        presence.put(Presence.ONLINE, online);
+        presence.put(Presence.LAST_SEEN, ServerValue.TIMESTAMP);
+        return presence;
+    }
+}
@@ -0,0 +1,52 @@
+package com.android.summer.csula.foodvoter.database;
+
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+/**
+ * Estimates the Firebase server time using the ".info/serverTimeOffset" node, so the client can
+ * compare its clock against timestamps written by the server (i.e. Poll.closesAt).
+ */
+public class ServerClock {
+
+    private static final String SERVER_TIME_OFFSET = ".info/serverTimeOffset";
+
+    private static volatile long offsetInMs;
+    private static boolean listening;
+
+    private ServerClock() {}
+
+    /**
+     * Start tracking the server time offset. Safe to call more than once, the listener is only
+     * attached the first time.
+     */
+    public static synchronized void start() {
+        if (listening) {
+            return;
+        }
+        listening = true;
+
+        TrackedListeners.addValueEventListener(
+                FirebaseDatabase.getInstance().getReference(SERVER_TIME_OFFSET),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        Long offset = dataSnapshot.getValue(Long.class);
+                        offsetInMs = offset == null ? 0 : offset;
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) { }
+                });
+    }
+
+    /**
+     * Return the estimated server time in milliseconds since UNIX epoch.
+     */
+    public static long now() {
+        return System.currentTimeMillis() + offsetInMs;
+    }
+}
@@ -0,0 +1,331 @@
+package com.android.summer.csula.foodvoter.database;
+
+
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Section;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attach and detach Firebase listeners through here to know what every path costs: callbacks,
+ * estimated bytes delivered, and how often listeners are attached and detached.
+ *
+ * Paths are grouped by pattern, ids replaced with {id}: "friendship/{id}", "polls/{id}/votes".
+ * The size of a delivered snapshot is its JSON size (PayloadSizer), estimated on a background
+ * thread so the callbacks aren't slowed down. For a changed child that is the whole child, as
+ * handed to the listener, not the delta the server sent. Sizing deserializes the snapshot a
+ * second time, so only one callback in SAMPLE_EVERY per path is sized, and samples are dropped
+ * while the sizer is behind. The bytes of a path are extrapolated from its samples.
+ *
+ *   TrackedListeners.addChildEventListener(query, listener);
+ *   ...
+ *   TrackedListeners.removeEventListener(query, listener);
+ *
+ * The counts cover the process lifetime, getReport() lists the most expensive paths first.
+ */
+public class TrackedListeners {
+
+    /* Every other segment is an id (user, poll, business, search token...) */
+    private static final Set<String> TREE_NAMES = new HashSet<>(Arrays.asList(
+            "users", "friendship", "presence", "polls", "votes", "businesses", "pollTallies",
+            "userPolls", "pollsByAuthor", "pollSearch", "searchTokens", "completedPolls",
+            "openPolls", "pollDrafts", "pollTemplates", "yelpCache"));
+    private static final String ID = "{id}";
+
+    private static final ConcurrentMap<String, PathStats> statsByPattern = new ConcurrentHashMap<>();
+
+    /* Original listener => the wrapper attached in its place, so it can be removed */
+    private static final Map<Object, Wrapper> wrappers = new IdentityHashMap<>();
+
+    /* Size the first callback of a path, then one in SAMPLE_EVERY */
+    private static final int SAMPLE_EVERY = 20;
+    /* Snapshots waiting to be sized, more are dropped */
+    private static final int SIZER_QUEUE_CAPACITY = 50;
+
+    private static final ExecutorService sizer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(SIZER_QUEUE_CAPACITY));
+
+    private static final int REPORTED_PATHS = 10;
+
+    static {
+        Metrics.section("firebase listeners, most downloaded first", new Section() {
+            @Override
+            public String render() {
+                return getReport(REPORTED_PATHS);
+            }
+        });
+    }
+
+    private TrackedListeners() {}
+
+    public static void addValueEventListener(Query query, ValueEventListener listener) {
+        PathStats stats = statsFor(query);
+        stats.attaches.incrementAndGet();
+        query.addValueEventListener(wrap(listener, stats));
+    }
+
+    public static void addChildEventListener(Query query, ChildEventListener listener) {
+        PathStats stats = statsFor(query);
+        stats.attaches.incrementAndGet();
+        query.addChildEventListener(wrap(listener, stats));
+    }
+
+    public static void addListenerForSingleValueEvent(Query query, ValueEventListener listener) {
+        PathStats stats = statsFor(query);
+        stats.singleReads.incrementAndGet();
+        // Not kept in wrappers, Firebase removes it after the first callback
+        query.addListenerForSingleValueEvent(new TrackedValueListener(listener, stats));
+    }
+
+    public static void removeEventListener(Query query, ValueEventListener listener) {
+        ValueEventListener wrapper = (ValueEventListener) unwrap(listener);
+        if (wrapper != null) {
+            statsFor(query).detaches.incrementAndGet();
+            query.removeEventListener(wrapper);
+        }
+    }
+
+    public static void removeEventListener(Query query, ChildEventListener listener) {
+        ChildEventListener wrapper = (ChildEventListener) unwrap(listener);
+        if (wrapper != null) {
+            statsFor(query).detaches.incrementAndGet();
+            query.removeEventListener(wrapper);
+        }
+    }
+
+    /**
+     * The paths that downloaded the most, one per line, at most limit of them.
+     */
+    public static String getReport(int limit) {
+        List<Map.Entry<String, PathStats>> entries = new ArrayList<>(statsByPattern.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, PathStats>>() {
+            @Override
+            public int compare(Map.Entry<String, PathStats> first, Map.Entry<String, PathStats> second) {
+                long firstBytes = first.getValue().getBytes();
+                long secondBytes = second.getValue().getBytes();
+                return firstBytes < secondBytes ? 1 : (firstBytes == secondBytes ? 0 : -1);
+            }
+        });
+
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, PathStats> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            PathStats stats = entry.getValue();
+            builder.append(String.format(Locale.US,
+                    "  %-28s %10d KB  callbacks %7d  reads %5d  attached %4d  detached %4d%n",
+                    entry.getKey(), stats.getBytes() / 1024, stats.callbacks.get(),
+                    stats.singleReads.get(), stats.attaches.get(), stats.detaches.get()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * "polls/-KqT2x/votes/abc" => "polls/{id}/votes/{id}", the root is "/".
+     */
+    static String toPattern(List<String> segments) {
+        // .info/connected, .info/serverTimeOffset... have no ids
+        boolean special = !segments.isEmpty() && segments.get(0).startsWith(".");
+
+        StringBuilder pattern = new StringBuilder();
+        for (String segment : segments) {
+            if (pattern.length() > 0) {
+                pattern.append('/');
+            }
+            pattern.append(special || TREE_NAMES.contains(segment) ? segment : ID);
+        }
+        return pattern.length() == 0 ? "/" : pattern.toString();
+    }
+
+    private static PathStats statsFor(Query query) {
+        List<String> segments = new ArrayList<>();
+        for (DatabaseReference ref = query.getRef(); ref != null && ref.getKey() != null; ref = ref.getParent()) {
+            segments.add(0, ref.getKey());
+        }
+
+        String pattern = toPattern(segments);
+        PathStats stats = statsByPattern.get(pattern);
+        if (stats == null) {
+            statsByPattern.putIfAbsent(pattern, new PathStats());
+            stats = statsByPattern.get(pattern);
+        }
+        return stats;
+    }
+
+    /**
+     * Return the wrapper already attached for the listener, or a new one. A listener attached to
+     * several queries has one wrapper, counted in the stats of the first query.
+     */
+    private static ValueEventListener wrap(ValueEventListener listener, PathStats stats) {
+        synchronized (wrappers) {
+            Wrapper wrapper = wrappers.get(listener);
+            if (wrapper == null) {
+                wrapper = new TrackedValueListener(listener, stats);
+                wrappers.put(listener, wrapper);
+            }
+            wrapper.attachedCount++;
+            return (ValueEventListener) wrapper;
+        }
+    }
+
+    private static ChildEventListener wrap(ChildEventListener listener, PathStats stats) {
+        synchronized (wrappers) {
+            Wrapper wrapper = wrappers.get(listener);
+            if (wrapper == null) {
+                wrapper = new TrackedChildListener(listener, stats);
+                wrappers.put(listener, wrapper);
+            }
+            wrapper.attachedCount++;
+            return (ChildEventListener) wrapper;
+        }
+    }
+
+    /**
+     * Return the wrapper of the listener, or null if it wasn't added through here. It is
+     * forgotten once removed from every query it was attached to.
+     */
+    private static Wrapper unwrap(Object listener) {
+        synchronized (wrappers) {
+            Wrapper wrapper = wrappers.get(listener);
+            if (wrapper != null && --wrapper.attachedCount == 0) {
+                wrappers.remove(listener);
+            }
+            return wrapper;
+        }
+    }
+
+    private static class PathStats {
+
+        final AtomicLong attaches = new AtomicLong();
+        final AtomicLong detaches = new AtomicLong();
+        final AtomicLong singleReads = new AtomicLong();
+        final AtomicLong callbacks = new AtomicLong();
+        /* Callbacks whose size is known, and their bytes */
+        final AtomicLong sizedCallbacks = new AtomicLong();
+        final AtomicLong sizedBytes = new AtomicLong();
+
+        void record(final DataSnapshot dataSnapshot) {
+            if (callbacks.incrementAndGet() % SAMPLE_EVERY != 1) {
+                return;
+            }
+            try {
+                sizer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        sizedBytes.addAndGet(keyLength(dataSnapshot) + PayloadSizer.sizeOf(dataSnapshot.getValue()));
+                        sizedCallbacks.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException ignored) {
+                // The sizer is behind, i.e. during the first download of a big tree
+            }
+        }
+
+        /* Removals and moves only carry the key */
+        void recordKey(DataSnapshot dataSnapshot) {
+            callbacks.incrementAndGet();
+            sizedBytes.addAndGet(keyLength(dataSnapshot));
+            sizedCallbacks.incrementAndGet();
+        }
+
+        /**
+         * Return the bytes of every callback, extrapolated from the sized ones.
+         */
+        long getBytes() {
+            long sized = sizedCallbacks.get();
+            return sized == 0 ? 0 : sizedBytes.get() * callbacks.get() / sized;
+        }
+
+        private static int keyLength(DataSnapshot dataSnapshot) {
+            return dataSnapshot.getKey() == null ? 0 : dataSnapshot.getKey().length();
+        }
+    }
+
+    private abstract static class Wrapper {
+        /* Queries the wrapper is attached to, guarded by wrappers */
+        int attachedCount;
+    }
+
+    private static class TrackedValueListener extends Wrapper implements ValueEventListener {
+
+        private final ValueEventListener listener;
+        private final PathStats stats;
+
+        TrackedValueListener(ValueEventListener listener, PathStats stats) {
+            this.listener = listener;
+            this.stats = stats;
+        }
+
+        @Override
+        public void onDataChange(DataSnapshot dataSnapshot) {
+            stats.record(dataSnapshot);
+            listener.onDataChange(dataSnapshot);
+        }
+
+        @Override
+        public void onCancelled(DatabaseError databaseError) {
+            listener.onCancelled(databaseError);
+        }
+    }
+
+    private static class TrackedChildListener extends Wrapper implements ChildEventListener {
+
+        private final ChildEventListener listener;
+        private final PathStats stats;
+
+        TrackedChildListener(ChildEventListener listener, PathStats stats) {
+            this.listener = listener;
+            this.stats = stats;
+        }
+
+        @Override
+        public void onChildAdded(DataSnapshot dataSnapshot, String previousChildName) {
+            stats.record(dataSnapshot);
+            listener.onChildAdded(dataSnapshot, previousChildName);
+        }
+
+        @Override
+        public void onChildChanged(DataSnapshot dataSnapshot, String previousChildName) {
+            stats.record(dataSnapshot);
+            listener.onChildChanged(dataSnapshot, previousChildName);
+        }
+
+        @Override
+        public void onChildRemoved(DataSnapshot dataSnapshot) {
+            stats.recordKey(dataSnapshot);
+            listener.onChildRemoved(dataSnapshot);
+        }
+
+        @Override
+        public void onChildMoved(DataSnapshot dataSnapshot, String previousChildName) {
+            stats.recordKey(dataSnapshot);
+            listener.onChildMoved(dataSnapshot, previousChildName);
+        }
+
+        @Override
+        public void onCancelled(DatabaseError databaseError) {
+            listener.onCancelled(databaseError);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.android.summer.csula.foodvoter.database;
+
+
+import android.os.Handler;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Search-as-you-type over the users tree using the "usernameLower" index. Only the first few
+ * matches of a prefix are downloaded, instead of streaming every registered user to the device.
+ *
+ * Keystrokes are debounced, results are cached per prefix and a cached prefix whose result was
+ * complete (fewer matches than the limit) also answers every longer prefix without a query.
+ */
+public class UserSearch {
+
+    private static final String TAG = UserSearch.class.getSimpleName();
+    private static final String KEY_USERNAME_LOWER = "usernameLower";
+    private static final String HIGH_UNICODE = "\uf8ff";
+    private static final long DEBOUNCE_IN_MS = 300;
+    private static final int MAX_RESULTS = 20;
+    private static final int MAX_CACHED_PREFIXES = 32;
+
+    private final LruCache<String, List<User>> cache = new LruCache<>(MAX_CACHED_PREFIXES);
+    private final Handler handler = new Handler();
+    private final Listener listener;
+
+    private String currentPrefix;
+
+    private final Runnable searchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            query(currentPrefix);
+        }
+    };
+
+    public UserSearch(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Search users whose username starts with the input text (case insensitive).
+     */
+    public void search(String text) {
+        final String prefix = User.toLowerCaseKey(text);
+        currentPrefix = prefix;
+        handler.removeCallbacks(searchRunnable);
+
+        if (prefix == null || prefix.isEmpty()) {
+            listener.onSearchResults(Collections.<User>emptyList());
+            return;
+        }
+
+        List<User> cached = findCached(prefix);
+        if (cached != null) {
+            listener.onSearchResults(cached);
+            return;
+        }
+
+        handler.postDelayed(searchRunnable, DEBOUNCE_IN_MS);
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(searchRunnable);
+        currentPrefix = null;
+    }
+
+    /**
+     * Return the result for the prefix from the cache, either an exact hit or a narrowed down
+     * complete result of a shorter prefix. Null if the database has to be queried.
+     */
+    private List<User> findCached(String prefix) {
+        List<User> exact = cache.get(prefix);
+        if (exact != null) {
+            return exact;
+        }
+
+        for (int length = prefix.length() - 1; length > 0; length--) {
+            List<User> shorter = cache.get(prefix.substring(0, length));
+            if (shorter != null && shorter.size() < MAX_RESULTS) {
+                List<User> narrowed = new ArrayList<>();
+                for (User user : shorter) {
+                    if (user.getUsernameLower() != null && user.getUsernameLower().startsWith(prefix)) {
+                        narrowed.add(user);
+                    }
+                }
+                cache.put(prefix, narrowed);
+                return narrowed;
+            }
+        }
+        return null;
+    }
+
+    private void query(final String prefix) {
+        if (prefix == null) {
+            return;
+        }
+
+        Query query = UserUpdater.USERS_REFERENCE
+                .orderByChild(KEY_USERNAME_LOWER)
+                .startAt(prefix)
+                .endAt(prefix + HIGH_UNICODE)
+                .limitToFirst(MAX_RESULTS);
+
+        TrackedListeners.addListenerForSingleValueEvent(query, new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                List<User> users = new ArrayList<>();
+                for (DataSnapshot child : dataSnapshot.getChildren()) {
+                    users.add(child.getValue(User.class));
+                }
+                cache.put(prefix, users);
+                Log.d(TAG, "search '" + prefix + "' => " + users.size() + " users");
+
+                // The user kept typing, this result is stale
+                if (prefix.equals(currentPrefix)) {
+                    listener.onSearchResults(users);
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                Log.d(TAG, "search '" + prefix + "' failed: " + databaseError.getMessage());
+            }
+        });
+    }
+
+    public interface Listener {
+        void onSearchResults(List<User> users);
+    }
+}
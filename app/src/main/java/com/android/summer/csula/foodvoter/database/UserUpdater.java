@@ -18,39 +18,28 @@ public class UserUpdater {
     public static final DatabaseReference USERS_REFERENCE = getUserRef();
 
     private static final String TAG = UserUpdater.class.getSimpleName();
+    private static final String KEY_USERNAME_LOWER = "usernameLower";
 
 
     private UserUpdater() {}
 
-    public static void updateOnlineStatus(final String userId, final boolean isOnline) {
-        USERS_REFERENCE.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                // If you don't check that the user exist, you could insert a new user with
-                // a single field, "online => false"
-                if (dataSnapshot.hasChild(userId)) {
-                    USERS_REFERENCE
-                            .child(userId)
-                            .child("online")
-                            .setValue(isOnline);
-                }
-            }
-
-            @Override
-            public void onCancelled(DatabaseError databaseError) { }
-        });
-    }
-
-
+    /**
+     * Only reads users/{userId}, not the whole users tree.
+     */
     public static void logUserOnline(final Context context, final User user) {
-        USERS_REFERENCE.addListenerForSingleValueEvent(new ValueEventListener() {
+        final String userId = user.getId();
+
+        TrackedListeners.addListenerForSingleValueEvent(USERS_REFERENCE.child(userId), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
 
-                String userId = user.getId();
-
-                if (dataSnapshot.hasChild(userId)) {
+                if (dataSnapshot.exists()) {
                     Log.d(TAG, "existing_user: " + user.toString());
+                    // Users created before the friend search existed don't have the search key
+                    USERS_REFERENCE
+                            .child(userId)
+                            .child(KEY_USERNAME_LOWER)
+                            .setValue(user.getUsernameLower());
                 } else {
                     Log.d(TAG, "new_user: " + user.toString());
                     USERS_REFERENCE
@@ -58,8 +47,10 @@ public class UserUpdater {
                             .setValue(user);
                 }
 
-                updateOnlineStatus(userId, true);
-                updateToken(userId, MyFirebasePreference.getToken(context));
+                // The user node exists at this point, no need to read it again
+                USERS_REFERENCE.child(userId)
+                        .child("token")
+                        .setValue(MyFirebasePreference.getToken(context));
             }
 
             @Override
@@ -68,10 +59,10 @@ public class UserUpdater {
     }
 
     public static void updateToken(final String userId, final String token) {
-        USERS_REFERENCE.addListenerForSingleValueEvent(new ValueEventListener() {
+        TrackedListeners.addListenerForSingleValueEvent(USERS_REFERENCE.child(userId), new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
-                if (dataSnapshot.hasChild(userId)) {
+                if (dataSnapshot.exists()) {
                     USERS_REFERENCE.child(userId)
                             .child("token")
                             .setValue(token);
@@ -90,7 +81,7 @@ public class UserUpdater {
                 .child("friendship")
                 .child(hostId);
 
-        myFriendshipRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        TrackedListeners.addListenerForSingleValueEvent(myFriendshipRef, new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 if (dataSnapshot.hasChild(friendId)) {
@@ -0,0 +1,72 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+/**
+ * Tables of the on-device copy of the database, see LocalDbHelper.
+ */
+public final class LocalContract {
+
+    private LocalContract() {}
+
+    public static final class PollEntry {
+        public static final String TABLE_NAME = "polls";
+        public static final String COLUMN_POLL_ID = "poll_id";
+        public static final String COLUMN_AUTHOR_ID = "author_id";
+        public static final String COLUMN_TITLE = "title";
+        public static final String COLUMN_DESCRIPTION = "description";
+        public static final String COLUMN_ACTIVATED_ON = "activated_on";
+        public static final String COLUMN_CLOSES_AT = "closes_at";
+        public static final String COLUMN_COMPLETED = "completed";
+        public static final String COLUMN_WINNER = "winner";
+    }
+
+    /**
+     * The businesses offered in a poll, in the order they are shown.
+     */
+    public static final class PollBusinessEntry {
+        public static final String TABLE_NAME = "poll_businesses";
+        public static final String COLUMN_POLL_ID = "poll_id";
+        public static final String COLUMN_BUSINESS_ID = "business_id";
+        public static final String COLUMN_POSITION = "position";
+    }
+
+    public static final class VoteEntry {
+        public static final String TABLE_NAME = "votes";
+        public static final String COLUMN_POLL_ID = "poll_id";
+        public static final String COLUMN_USER_ID = "user_id";
+        public static final String COLUMN_BUSINESS_ID = "business_id";
+    }
+
+    /**
+     * Mirror of userPolls/{userId}: the polls a user authored or is invited to.
+     */
+    public static final class UserPollEntry {
+        public static final String TABLE_NAME = "user_polls";
+        public static final String COLUMN_USER_ID = "user_id";
+        public static final String COLUMN_POLL_ID = "poll_id";
+        public static final String COLUMN_ACTIVATED_ON = "activated_on";
+    }
+
+    public static final class UserEntry {
+        public static final String TABLE_NAME = "users";
+        public static final String COLUMN_USER_ID = "user_id";
+        public static final String COLUMN_USERNAME = "username";
+        public static final String COLUMN_USERNAME_LOWER = "username_lower";
+        public static final String COLUMN_TOKEN = "token";
+    }
+
+    public static final class FriendshipEntry {
+        public static final String TABLE_NAME = "friendships";
+        public static final String COLUMN_USER_ID = "user_id";
+        public static final String COLUMN_FRIEND_ID = "friend_id";
+    }
+
+    public static final class BusinessEntry {
+        public static final String TABLE_NAME = "businesses";
+        public static final String COLUMN_BUSINESS_ID = "business_id";
+        public static final String COLUMN_NAME = "name";
+        public static final String COLUMN_IMAGE_URL = "image_url";
+        public static final String COLUMN_RATING = "rating";
+        public static final String COLUMN_CATEGORY_TITLES = "category_titles";
+    }
+}
@@ -0,0 +1,109 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.BusinessEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.FriendshipEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.PollBusinessEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.PollEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.UserEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.UserPollEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.VoteEntry;
+
+/**
+ * The local store only mirrors the Firebase database, so an upgrade just drops everything and the
+ * next sync fills it again.
+ */
+class LocalDbHelper extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "foodvoter.db";
+    private static final int DATABASE_VERSION = 2;
+
+    LocalDbHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * A null name opens an in-memory database, for tests.
+     */
+    LocalDbHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + PollEntry.TABLE_NAME + " ("
+                + PollEntry.COLUMN_POLL_ID + " TEXT PRIMARY KEY, "
+                + PollEntry.COLUMN_AUTHOR_ID + " TEXT, "
+                + PollEntry.COLUMN_TITLE + " TEXT, "
+                + PollEntry.COLUMN_DESCRIPTION + " TEXT, "
+                + PollEntry.COLUMN_ACTIVATED_ON + " INTEGER NOT NULL DEFAULT 0, "
+                + PollEntry.COLUMN_CLOSES_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + PollEntry.COLUMN_COMPLETED + " INTEGER NOT NULL DEFAULT 0, "
+                + PollEntry.COLUMN_WINNER + " TEXT)");
+        // Newest first paging: WHERE activated_on < ? ORDER BY activated_on DESC LIMIT ?
+        createIndex(db, PollEntry.TABLE_NAME, PollEntry.COLUMN_ACTIVATED_ON);
+        createIndex(db, PollEntry.TABLE_NAME, PollEntry.COLUMN_AUTHOR_ID);
+        createIndex(db, PollEntry.TABLE_NAME, PollEntry.COLUMN_CLOSES_AT);
+
+        db.execSQL("CREATE TABLE " + PollBusinessEntry.TABLE_NAME + " ("
+                + PollBusinessEntry.COLUMN_POLL_ID + " TEXT NOT NULL, "
+                + PollBusinessEntry.COLUMN_BUSINESS_ID + " TEXT NOT NULL, "
+                + PollBusinessEntry.COLUMN_POSITION + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + PollBusinessEntry.COLUMN_POLL_ID + ", " + PollBusinessEntry.COLUMN_BUSINESS_ID + "))");
+        createIndex(db, PollBusinessEntry.TABLE_NAME, PollBusinessEntry.COLUMN_BUSINESS_ID);
+
+        db.execSQL("CREATE TABLE " + VoteEntry.TABLE_NAME + " ("
+                + VoteEntry.COLUMN_POLL_ID + " TEXT NOT NULL, "
+                + VoteEntry.COLUMN_USER_ID + " TEXT NOT NULL, "
+                + VoteEntry.COLUMN_BUSINESS_ID + " TEXT NOT NULL, "
+                + "PRIMARY KEY (" + VoteEntry.COLUMN_POLL_ID + ", " + VoteEntry.COLUMN_USER_ID + "))");
+        createIndex(db, VoteEntry.TABLE_NAME, VoteEntry.COLUMN_USER_ID);
+        createIndex(db, VoteEntry.TABLE_NAME, VoteEntry.COLUMN_BUSINESS_ID);
+
+        db.execSQL("CREATE TABLE " + UserPollEntry.TABLE_NAME + " ("
+                + UserPollEntry.COLUMN_USER_ID + " TEXT NOT NULL, "
+                + UserPollEntry.COLUMN_POLL_ID + " TEXT NOT NULL, "
+                + UserPollEntry.COLUMN_ACTIVATED_ON + " INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (" + UserPollEntry.COLUMN_USER_ID + ", " + UserPollEntry.COLUMN_POLL_ID + "))");
+        createIndex(db, UserPollEntry.TABLE_NAME, UserPollEntry.COLUMN_ACTIVATED_ON);
+
+        db.execSQL("CREATE TABLE " + UserEntry.TABLE_NAME + " ("
+                + UserEntry.COLUMN_USER_ID + " TEXT PRIMARY KEY, "
+                + UserEntry.COLUMN_USERNAME + " TEXT, "
+                + UserEntry.COLUMN_USERNAME_LOWER + " TEXT, "
+                + UserEntry.COLUMN_TOKEN + " TEXT)");
+        createIndex(db, UserEntry.TABLE_NAME, UserEntry.COLUMN_USERNAME_LOWER);
+
+        db.execSQL("CREATE TABLE " + FriendshipEntry.TABLE_NAME + " ("
+                + FriendshipEntry.COLUMN_USER_ID + " TEXT NOT NULL, "
+                + FriendshipEntry.COLUMN_FRIEND_ID + " TEXT NOT NULL, "
+                + "PRIMARY KEY (" + FriendshipEntry.COLUMN_USER_ID + ", " + FriendshipEntry.COLUMN_FRIEND_ID + "))");
+        createIndex(db, FriendshipEntry.TABLE_NAME, FriendshipEntry.COLUMN_FRIEND_ID);
+
+        db.execSQL("CREATE TABLE " + BusinessEntry.TABLE_NAME + " ("
+                + BusinessEntry.COLUMN_BUSINESS_ID + " TEXT PRIMARY KEY, "
+                + BusinessEntry.COLUMN_NAME + " TEXT, "
+                + BusinessEntry.COLUMN_IMAGE_URL + " TEXT, "
+                + BusinessEntry.COLUMN_RATING + " REAL, "
+                + BusinessEntry.COLUMN_CATEGORY_TITLES + " TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        String[] tables = {PollEntry.TABLE_NAME, PollBusinessEntry.TABLE_NAME, VoteEntry.TABLE_NAME,
+                UserPollEntry.TABLE_NAME, UserEntry.TABLE_NAME, FriendshipEntry.TABLE_NAME,
+                BusinessEntry.TABLE_NAME};
+        for (String table : tables) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+        onCreate(db);
+    }
+
+    private static void createIndex(SQLiteDatabase db, String table, String column) {
+        db.execSQL("CREATE INDEX index_" + table + "_" + column + " ON " + table + " (" + column + ")");
+    }
+}
@@ -0,0 +1,279 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.Nullable;
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.BusinessEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.FriendshipEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.PollBusinessEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.PollEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.UserEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.UserPollEntry;
+import static com.android.summer.csula.foodvoter.database.local.LocalContract.VoteEntry;
+
+/**
+ * Queryable on-device copy of polls, votes, users, friendships and businesses, filled by the
+ * SyncEngine. Writes happen in batches, one transaction per batch; reads return cursors so a
+ * screen can page through tens of thousands of polls without loading them in memory.
+ *
+ * The poll lists start from it: PollListModel seeds its keys from queryPollKeys() on a cold
+ * start, so its Firebase listener only asks for what changed since.
+ */
+public class LocalStore {
+
+    private static LocalStore instance;
+
+    private final LocalDbHelper dbHelper;
+
+    private LocalStore(Context context) {
+        this(new LocalDbHelper(context));
+    }
+
+    LocalStore(LocalDbHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    public static synchronized LocalStore get(Context context) {
+        if (instance == null) {
+            instance = new LocalStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Apply the changes in a single transaction, either all of them or none of them.
+     */
+    public void applyBatch(List<Change> changes) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Change change : changes) {
+                change.apply(db);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Return a page of polls, newest first. Pass Long.MAX_VALUE for the first page, then the
+     * activated_on of the last row to get the next one.
+     */
+    public Cursor queryPolls(long beforeActivatedOn, int limit) {
+        return dbHelper.getReadableDatabase().query(PollEntry.TABLE_NAME, null,
+                PollEntry.COLUMN_ACTIVATED_ON + " < ?",
+                new String[]{Long.toString(beforeActivatedOn)},
+                null, null,
+                PollEntry.COLUMN_ACTIVATED_ON + " DESC",
+                Integer.toString(limit));
+    }
+
+    /**
+     * Same as queryPolls(), limited to the polls the user authored or is invited to.
+     */
+    public Cursor queryUserPolls(String userId, long beforeActivatedOn, int limit) {
+        return dbHelper.getReadableDatabase().rawQuery("SELECT p.* FROM "
+                + PollEntry.TABLE_NAME + " p JOIN " + UserPollEntry.TABLE_NAME + " up ON p."
+                + PollEntry.COLUMN_POLL_ID + " = up." + UserPollEntry.COLUMN_POLL_ID
+                + " WHERE up." + UserPollEntry.COLUMN_USER_ID + " = ? AND up."
+                + UserPollEntry.COLUMN_ACTIVATED_ON + " < ? ORDER BY up."
+                + UserPollEntry.COLUMN_ACTIVATED_ON + " DESC LIMIT " + limit,
+                new String[]{userId, Long.toString(beforeActivatedOn)});
+    }
+
+    /**
+     * Return the poll_id, activated_on and completed columns of every poll (userId == null) or of
+     * the polls the user authored or is invited to, newest first.
+     */
+    public Cursor queryPollKeys(@Nullable String userId) {
+        String columns = "p." + PollEntry.COLUMN_POLL_ID + ", p." + PollEntry.COLUMN_ACTIVATED_ON
+                + ", p." + PollEntry.COLUMN_COMPLETED;
+        if (userId == null) {
+            return dbHelper.getReadableDatabase().rawQuery("SELECT " + columns + " FROM "
+                    + PollEntry.TABLE_NAME + " p ORDER BY p." + PollEntry.COLUMN_ACTIVATED_ON
+                    + " DESC", null);
+        }
+        return dbHelper.getReadableDatabase().rawQuery("SELECT " + columns + " FROM "
+                + PollEntry.TABLE_NAME + " p JOIN " + UserPollEntry.TABLE_NAME + " up ON p."
+                + PollEntry.COLUMN_POLL_ID + " = up." + UserPollEntry.COLUMN_POLL_ID
+                + " WHERE up." + UserPollEntry.COLUMN_USER_ID + " = ? ORDER BY p."
+                + PollEntry.COLUMN_ACTIVATED_ON + " DESC", new String[]{userId});
+    }
+
+    /**
+     * Return the activated_on of the oldest poll that isn't completed, -1 if there is none: the
+     * polls from there on may have new votes, a tally or a winner since they were stored.
+     */
+    public long queryOldestOpenActivatedOn() {
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("SELECT MIN("
+                + PollEntry.COLUMN_ACTIVATED_ON + ") FROM " + PollEntry.TABLE_NAME + " WHERE "
+                + PollEntry.COLUMN_COMPLETED + " = 0", null);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Return the businesses offered in the poll, in the order they are shown.
+     */
+    public Cursor queryPollBusinesses(String pollId) {
+        return dbHelper.getReadableDatabase().rawQuery("SELECT b.* FROM "
+                + BusinessEntry.TABLE_NAME + " b JOIN " + PollBusinessEntry.TABLE_NAME + " pb ON b."
+                + BusinessEntry.COLUMN_BUSINESS_ID + " = pb." + PollBusinessEntry.COLUMN_BUSINESS_ID
+                + " WHERE pb." + PollBusinessEntry.COLUMN_POLL_ID + " = ? ORDER BY pb."
+                + PollBusinessEntry.COLUMN_POSITION, new String[]{pollId});
+    }
+
+    public Cursor queryVotes(String pollId) {
+        return dbHelper.getReadableDatabase().query(VoteEntry.TABLE_NAME, null,
+                VoteEntry.COLUMN_POLL_ID + " = ?", new String[]{pollId}, null, null, null);
+    }
+
+    public Cursor queryFriends(String userId) {
+        return dbHelper.getReadableDatabase().rawQuery("SELECT u.* FROM "
+                + UserEntry.TABLE_NAME + " u JOIN " + FriendshipEntry.TABLE_NAME + " f ON u."
+                + UserEntry.COLUMN_USER_ID + " = f." + FriendshipEntry.COLUMN_FRIEND_ID
+                + " WHERE f." + FriendshipEntry.COLUMN_USER_ID + " = ? ORDER BY u."
+                + UserEntry.COLUMN_USERNAME_LOWER, new String[]{userId});
+    }
+
+    /**
+     * Read the poll at the cursor's position, with the fields the poll list shows.
+     */
+    public static Poll toPoll(Cursor cursor) {
+        Poll poll = new Poll();
+        poll.setPollId(cursor.getString(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_POLL_ID)));
+        poll.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_TITLE)));
+        poll.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_DESCRIPTION)));
+        poll.setActiveOn(cursor.getLong(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_ACTIVATED_ON)));
+        poll.setClosesAt(cursor.getLong(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_CLOSES_AT)));
+        poll.setCompleted(cursor.getInt(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_COMPLETED)) == 1);
+        poll.setWinner(cursor.getString(cursor.getColumnIndexOrThrow(PollEntry.COLUMN_WINNER)));
+        return poll;
+    }
+
+    /**
+     * Read the key columns at the cursor's position (see queryPollKeys()): a poll with only its
+     * id, activatedOn and completed flag set.
+     */
+    public static Poll toPollKey(Cursor cursor) {
+        Poll poll = new Poll();
+        poll.setPollId(cursor.getString(0));
+        poll.setActiveOn(cursor.getLong(1));
+        poll.setCompleted(cursor.getInt(2) == 1);
+        return poll;
+    }
+
+    /**
+     * Insert or replace the poll, its businesses and its votes.
+     */
+    static void upsertPoll(SQLiteDatabase db, Poll poll) {
+        String pollId = poll.getPollId();
+
+        ContentValues values = new ContentValues();
+        values.put(PollEntry.COLUMN_POLL_ID, pollId);
+        values.put(PollEntry.COLUMN_AUTHOR_ID, poll.getAuthor() == null ? null : poll.getAuthor().getId());
+        values.put(PollEntry.COLUMN_TITLE, poll.getTitle());
+        values.put(PollEntry.COLUMN_DESCRIPTION, poll.getDescription());
+        values.put(PollEntry.COLUMN_ACTIVATED_ON, poll.getActivatedOn());
+        values.put(PollEntry.COLUMN_CLOSES_AT, poll.getClosesAt());
+        values.put(PollEntry.COLUMN_COMPLETED, poll.isCompleted() ? 1 : 0);
+        values.put(PollEntry.COLUMN_WINNER, poll.getWinner());
+        db.insertWithOnConflict(PollEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        String[] pollIdArg = {pollId};
+        db.delete(PollBusinessEntry.TABLE_NAME, PollBusinessEntry.COLUMN_POLL_ID + " = ?", pollIdArg);
+        List<BusinessSummary> businesses = poll.getBusinesses();
+        for (int i = 0; i < businesses.size(); i++) {
+            BusinessSummary business = businesses.get(i);
+            upsertBusiness(db, business);
+
+            ContentValues link = new ContentValues();
+            link.put(PollBusinessEntry.COLUMN_POLL_ID, pollId);
+            link.put(PollBusinessEntry.COLUMN_BUSINESS_ID, business.getId());
+            link.put(PollBusinessEntry.COLUMN_POSITION, i);
+            db.insertWithOnConflict(PollBusinessEntry.TABLE_NAME, null, link, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+
+        db.delete(VoteEntry.TABLE_NAME, VoteEntry.COLUMN_POLL_ID + " = ?", pollIdArg);
+        for (Map.Entry<String, String> vote : poll.getVotes().entrySet()) {
+            ContentValues voteValues = new ContentValues();
+            voteValues.put(VoteEntry.COLUMN_POLL_ID, pollId);
+            voteValues.put(VoteEntry.COLUMN_USER_ID, vote.getKey());
+            voteValues.put(VoteEntry.COLUMN_BUSINESS_ID, vote.getValue());
+            db.insertWithOnConflict(VoteEntry.TABLE_NAME, null, voteValues, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+    }
+
+    static void deletePoll(SQLiteDatabase db, String pollId) {
+        String[] pollIdArg = {pollId};
+        db.delete(PollEntry.TABLE_NAME, PollEntry.COLUMN_POLL_ID + " = ?", pollIdArg);
+        db.delete(PollBusinessEntry.TABLE_NAME, PollBusinessEntry.COLUMN_POLL_ID + " = ?", pollIdArg);
+        db.delete(VoteEntry.TABLE_NAME, VoteEntry.COLUMN_POLL_ID + " = ?", pollIdArg);
+    }
+
+    static void upsertUserPoll(SQLiteDatabase db, String userId, String pollId, long activatedOn) {
+        ContentValues values = new ContentValues();
+        values.put(UserPollEntry.COLUMN_USER_ID, userId);
+        values.put(UserPollEntry.COLUMN_POLL_ID, pollId);
+        values.put(UserPollEntry.COLUMN_ACTIVATED_ON, activatedOn);
+        db.insertWithOnConflict(UserPollEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    static void upsertBusiness(SQLiteDatabase db, BusinessSummary business) {
+        ContentValues values = new ContentValues();
+        values.put(BusinessEntry.COLUMN_BUSINESS_ID, business.getId());
+        values.put(BusinessEntry.COLUMN_NAME, business.getName());
+        values.put(BusinessEntry.COLUMN_IMAGE_URL, business.getImageUrl());
+        values.put(BusinessEntry.COLUMN_RATING, business.getRating());
+        values.put(BusinessEntry.COLUMN_CATEGORY_TITLES, business.getCategoryTitles());
+        db.insertWithOnConflict(BusinessEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Insert or replace the friend, and their friendship with the user.
+     */
+    static void upsertFriend(SQLiteDatabase db, String userId, User friend) {
+        ContentValues userValues = new ContentValues();
+        userValues.put(UserEntry.COLUMN_USER_ID, friend.getId());
+        userValues.put(UserEntry.COLUMN_USERNAME, friend.getUsername());
+        userValues.put(UserEntry.COLUMN_USERNAME_LOWER, User.toLowerCaseKey(friend.getUsername()));
+        userValues.put(UserEntry.COLUMN_TOKEN, friend.getToken());
+        db.insertWithOnConflict(UserEntry.TABLE_NAME, null, userValues, SQLiteDatabase.CONFLICT_REPLACE);
+
+        ContentValues friendshipValues = new ContentValues();
+        friendshipValues.put(FriendshipEntry.COLUMN_USER_ID, userId);
+        friendshipValues.put(FriendshipEntry.COLUMN_FRIEND_ID, friend.getId());
+        db.insertWithOnConflict(FriendshipEntry.TABLE_NAME, null, friendshipValues, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    static void deleteFriendship(SQLiteDatabase db, String userId, String friendId) {
+        db.delete(FriendshipEntry.TABLE_NAME, FriendshipEntry.COLUMN_USER_ID + " = ? AND "
+                + FriendshipEntry.COLUMN_FRIEND_ID + " = ?", new String[]{userId, friendId});
+    }
+
+    static void deleteFriendships(SQLiteDatabase db, String userId) {
+        db.delete(FriendshipEntry.TABLE_NAME, FriendshipEntry.COLUMN_USER_ID + " = ?", new String[]{userId});
+    }
+
+    /**
+     * One change to apply to the store, run inside the batch's transaction.
+     */
+    public interface Change {
+        void apply(SQLiteDatabase db);
+    }
+}
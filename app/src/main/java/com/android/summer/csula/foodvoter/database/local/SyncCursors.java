@@ -0,0 +1,45 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * The last synced position of each node, i.e. the newest activatedOn seen in "polls". Stored in
+ * their own preferences file so signing out can clear them without touching the rest.
+ */
+public class SyncCursors {
+
+    private static final String PREFS_NAME = "sync_cursors";
+
+    public static final String POLLS = "polls";
+    public static final String USER_POLLS = "userPolls";
+    public static final String FRIENDSHIP = "friendship";
+
+    private SyncCursors() {}
+
+    /**
+     * Return the cursor of the node, or -1 if it was never synced.
+     */
+    public static long get(Context context, String node) {
+        return getPreferences(context).getLong(node, -1);
+    }
+
+    /**
+     * Move the cursor forward, a value older than the current cursor is ignored.
+     */
+    public static synchronized void advance(Context context, String node, long value) {
+        SharedPreferences preferences = getPreferences(context);
+        if (value > preferences.getLong(node, -1)) {
+            preferences.edit().putLong(node, value).apply();
+        }
+    }
+
+    public static void clear(Context context) {
+        getPreferences(context).edit().clear().apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
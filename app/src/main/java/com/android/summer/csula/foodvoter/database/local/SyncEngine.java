@@ -0,0 +1,353 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mirrors Firebase child events into the LocalStore while the app is in the foreground.
+ *
+ * The polls come from the poll lists' own listeners (PollListModel passes its snapshots to
+ * mirrorPoll()), so the store costs no second download of the polls tree. The engine itself
+ * listens to the user's poll index, for the children activated since its sync cursor, and to the
+ * user's friendships, which are small and have no timestamps to start from. Events are
+ * queued as they arrive and applied on a background thread, in batches of up to BATCH_SIZE
+ * changes per transaction: the initial download of thousands of polls is a handful of
+ * transactions instead of one commit (and one fsync) per poll. Snapshots are only deserialized on
+ * the background thread, and the cursors only move once the batch holding them is written.
+ *
+ * What changed while the app was away is caught up by SyncManager.
+ */
+public class SyncEngine {
+
+    private static final String TAG = SyncEngine.class.getSimpleName();
+    private static final String KEY_ACTIVATED_ON = "activatedOn";
+    private static final String KEY_FRIENDSHIP = "friendship";
+    private static final int BATCH_SIZE = 200;
+    private static final long FLUSH_DELAY_IN_MS = 250;
+
+    private static SyncEngine instance;
+
+    private final Context context;
+    private final LocalStore localStore;
+    private final Handler syncHandler;
+    private final List<LocalStore.Change> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    /* Cursor values reached by the changes applied so far, node => activatedOn (sync thread) */
+    private final Map<String, Long> reachedCursors = new HashMap<>();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private String userId;
+    private Query userPollsQuery;
+    private ChildEventListener userPollsListener;
+    private DatabaseReference friendshipRef;
+    private ChildEventListener friendsListener;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private SyncEngine(Context context) {
+        this.context = context;
+        localStore = LocalStore.get(context);
+
+        HandlerThread syncThread = new HandlerThread(TAG);
+        syncThread.start();
+        syncHandler = new Handler(syncThread.getLooper());
+    }
+
+    public static synchronized SyncEngine get(Context context) {
+        if (instance == null) {
+            instance = new SyncEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Start mirroring the user's poll index and friends. Calling it again for the same user is a
+     * no-op.
+     */
+    public void start(final String userId) {
+        if (userPollsListener != null && userId.equals(this.userId)) {
+            return;
+        }
+        stop();
+        this.userId = userId;
+
+        final String userPollsNode = SyncCursors.USER_POLLS + "/" + userId;
+        userPollsQuery = sinceCursor(FirebaseDatabase.getInstance().getReference(userPollsNode), userPollsNode);
+        userPollsListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot dataSnapshot, String s) {
+                enqueueUserPollUpsert(userPollsNode, userId, dataSnapshot);
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot dataSnapshot, String s) { }
+
+            @Override
+            public void onChildRemoved(DataSnapshot dataSnapshot) { }
+
+            @Override
+            public void onChildMoved(DataSnapshot dataSnapshot, String s) { }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) { }
+        };
+        TrackedListeners.addChildEventListener(userPollsQuery, userPollsListener);
+
+        friendshipRef = FirebaseDatabase.getInstance().getReference().child(KEY_FRIENDSHIP).child(userId);
+        friendsListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot dataSnapshot, String s) {
+                enqueueFriendUpsert(userId, dataSnapshot);
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot dataSnapshot, String s) {
+                enqueueFriendUpsert(userId, dataSnapshot);
+            }
+
+            @Override
+            public void onChildRemoved(final DataSnapshot dataSnapshot) {
+                enqueue(new LocalStore.Change() {
+                    @Override
+                    public void apply(SQLiteDatabase db) {
+                        LocalStore.deleteFriendship(db, userId, dataSnapshot.getKey());
+                    }
+                });
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot dataSnapshot, String s) { }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) { }
+        };
+        TrackedListeners.addChildEventListener(friendshipRef, friendsListener);
+    }
+
+    /**
+     * Stop mirroring, what is already queued is still written.
+     */
+    public void stop() {
+        if (userPollsListener != null) {
+            TrackedListeners.removeEventListener(userPollsQuery, userPollsListener);
+            userPollsListener = null;
+        }
+        if (friendsListener != null) {
+            TrackedListeners.removeEventListener(friendshipRef, friendsListener);
+            friendsListener = null;
+        }
+        userId = null;
+    }
+
+    /**
+     * Store a poll a poll list received. Its listener started at or before the polls cursor (see
+     * PollListModel.getSyncStart()), so the cursor can follow it.
+     */
+    public void mirrorPoll(DataSnapshot dataSnapshot) {
+        enqueuePollUpsert(SyncCursors.POLLS, dataSnapshot);
+    }
+
+    public void mirrorPollRemoved(final String pollId) {
+        enqueue(new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                LocalStore.deletePoll(db, pollId);
+            }
+        });
+    }
+
+    /**
+     * Read the keys of the stored polls (see LocalStore.queryPollKeys()) once everything queued
+     * is written, and hand them to the listener on the main thread.
+     */
+    public void loadPollKeys(@Nullable final String userId, final PollKeysListener listener) {
+        runAfterPending(new Runnable() {
+            @Override
+            public void run() {
+                final List<Poll> keys = new ArrayList<>();
+                Cursor cursor = localStore.queryPollKeys(userId);
+                try {
+                    while (cursor.moveToNext()) {
+                        keys.add(LocalStore.toPollKey(cursor));
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace();   // Start without them, the listener downloads everything
+                    keys.clear();
+                } finally {
+                    cursor.close();
+                }
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onPollKeysLoaded(keys);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Return the children of the reference ordered by activatedOn, starting at the node's cursor.
+     * startAt is inclusive, the child at the cursor comes again and is simply upserted again.
+     */
+    Query sinceCursor(DatabaseReference reference, String node) {
+        return sinceCursor(reference, node, -1);
+    }
+
+    /**
+     * Same as sinceCursor(), but starting at oldestOpen if it is older than the cursor: the polls
+     * still open from there on may have changed since they were stored. -1 if there is none.
+     */
+    Query sinceCursor(DatabaseReference reference, String node, long oldestOpen) {
+        Query query = reference.orderByChild(KEY_ACTIVATED_ON);
+        long cursor = SyncCursors.get(context, node);
+        if (cursor < 0) {
+            return query;
+        }
+        return query.startAt(oldestOpen < 0 ? cursor : Math.min(cursor, oldestOpen));
+    }
+
+    /**
+     * Queue the upsert of the poll, moving the node's cursor to its activatedOn (if node isn't null).
+     */
+    void enqueuePollUpsert(final String node, final DataSnapshot dataSnapshot) {
+        enqueue(new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                Poll poll = dataSnapshot.getValue(Poll.class);
+                if (poll != null) {
+                    poll.setPollId(dataSnapshot.getKey());
+                    LocalStore.upsertPoll(db, poll);
+                    if (node != null) {
+                        reachCursor(node, poll.getActivatedOn());
+                    }
+                }
+            }
+        });
+    }
+
+    void enqueueUserPollUpsert(final String node, final String userId, final DataSnapshot dataSnapshot) {
+        enqueue(new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                Long activatedOn = dataSnapshot.child(KEY_ACTIVATED_ON).getValue(Long.class);
+                long value = activatedOn == null ? 0 : activatedOn;
+                LocalStore.upsertUserPoll(db, userId, dataSnapshot.getKey(), value);
+                reachCursor(node, value);
+            }
+        });
+    }
+
+    void enqueueFriendUpsert(final String userId, final DataSnapshot dataSnapshot) {
+        enqueue(new LocalStore.Change() {
+            @Override
+            public void apply(SQLiteDatabase db) {
+                User friend = dataSnapshot.getValue(User.class);
+                if (friend != null && friend.getId() != null) {
+                    LocalStore.upsertFriend(db, userId, friend);
+                }
+            }
+        });
+    }
+
+    synchronized void enqueue(LocalStore.Change change) {
+        pending.add(change);
+
+        if (pending.size() >= BATCH_SIZE) {
+            syncHandler.removeCallbacks(flushRunnable);
+            syncHandler.post(flushRunnable);
+            flushScheduled = true;
+        } else if (!flushScheduled) {
+            syncHandler.postDelayed(flushRunnable, FLUSH_DELAY_IN_MS);
+            flushScheduled = true;
+        }
+    }
+
+    /**
+     * Run the runnable on the sync thread once everything queued so far is written.
+     */
+    void runAfterPending(Runnable runnable) {
+        synchronized (this) {
+            syncHandler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+        }
+        syncHandler.post(flushRunnable);
+        syncHandler.post(runnable);
+    }
+
+    /**
+     * Runs on the sync thread.
+     */
+    private void reachCursor(String node, long value) {
+        Long reached = reachedCursors.get(node);
+        if (reached == null || value > reached) {
+            reachedCursors.put(node, value);
+        }
+    }
+
+    /**
+     * Runs on the sync thread.
+     */
+    private void flush() {
+        List<LocalStore.Change> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        try {
+            localStore.applyBatch(batch);
+            Log.d(TAG, "applied " + batch.size() + " changes");
+
+            // Only now that the changes are written can the cursors move past them
+            for (Map.Entry<String, Long> cursor : reachedCursors.entrySet()) {
+                SyncCursors.advance(context, cursor.getKey(), cursor.getValue());
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            reachedCursors.clear();
+        }
+    }
+
+    public interface PollKeysListener {
+        /**
+         * The polls only have their id, activatedOn and completed flag set, newest first.
+         */
+        void onPollKeysLoaded(List<Poll> keys);
+    }
+}
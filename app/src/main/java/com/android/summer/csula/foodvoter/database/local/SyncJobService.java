@@ -0,0 +1,35 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+import com.firebase.jobdispatcher.JobParameters;
+import com.firebase.jobdispatcher.JobService;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+/**
+ * Runs SyncManager.syncOnce() when the periodic sync job fires.
+ */
+public class SyncJobService extends JobService {
+
+    @Override
+    public boolean onStartJob(final JobParameters job) {
+        FirebaseUser firebaseUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (firebaseUser == null) {
+            return false;   // Nothing to sync until someone signs in
+        }
+
+        SyncManager.syncOnce(this, firebaseUser.getUid(), new SyncManager.Listener() {
+            @Override
+            public void onSyncComplete() {
+                jobFinished(job, false);
+            }
+        });
+        return true;    // Still working, jobFinished() is called once the sync is written
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters job) {
+        // What was written stays written and the cursors only cover it, the next run resumes
+        return true;
+    }
+}
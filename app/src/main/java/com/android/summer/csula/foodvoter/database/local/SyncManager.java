@@ -0,0 +1,195 @@
+package com.android.summer.csula.foodvoter.database.local;
+
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.database.ServerClock;
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.PollUtilities;
+import com.firebase.jobdispatcher.Constraint;
+import com.firebase.jobdispatcher.FirebaseJobDispatcher;
+import com.firebase.jobdispatcher.GooglePlayDriver;
+import com.firebase.jobdispatcher.Job;
+import com.firebase.jobdispatcher.Lifetime;
+import com.firebase.jobdispatcher.RetryStrategy;
+import com.firebase.jobdispatcher.Trigger;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One-shot delta sync of every node the local store mirrors, run by SyncJobService in the
+ * background (on an unmetered network, while charging) and usable from the foreground as well.
+ *
+ * polls        children with activatedOn >= the cursor, or >= the oldest stored poll that was
+ *              still open if it is older: its votes, tally or winner may have changed, while a
+ *              closed poll never changes so it is never fetched twice
+ * userPolls    children with activatedOn >= the cursor
+ * friendship   small and without timestamps, fully refreshed at most every FRIENDSHIP_REFRESH
+ *              (SyncEngine keeps it live while the app is in the foreground)
+ */
+public class SyncManager {
+
+    private static final String TAG = SyncManager.class.getSimpleName();
+    private static final String KEY_FRIENDSHIP = "friendship";
+    private static final String JOB_TAG = "foodvoter-sync";
+
+    private static final long FRIENDSHIP_REFRESH_IN_MS = TimeUnit.HOURS.toMillis(6);
+
+    private static final int SYNC_PERIOD_IN_S = (int) TimeUnit.HOURS.toSeconds(6);
+    private static final int SYNC_FLEX_IN_S = (int) TimeUnit.HOURS.toSeconds(1);
+
+    private SyncManager() {}
+
+    /**
+     * Schedule the periodic background sync, keeping the existing schedule if there is one.
+     */
+    public static void schedulePeriodicSync(Context context) {
+        FirebaseJobDispatcher dispatcher = new FirebaseJobDispatcher(new GooglePlayDriver(context));
+        Job job = dispatcher.newJobBuilder()
+                .setService(SyncJobService.class)
+                .setTag(JOB_TAG)
+                .setRecurring(true)
+                .setLifetime(Lifetime.FOREVER)
+                .setTrigger(Trigger.executionWindow(SYNC_PERIOD_IN_S, SYNC_PERIOD_IN_S + SYNC_FLEX_IN_S))
+                .setReplaceCurrent(false)
+                .setRetryStrategy(RetryStrategy.DEFAULT_EXPONENTIAL)
+                .setConstraints(Constraint.ON_UNMETERED_NETWORK, Constraint.DEVICE_CHARGING)
+                .build();
+        dispatcher.mustSchedule(job);
+    }
+
+    public static void cancelPeriodicSync(Context context) {
+        new FirebaseJobDispatcher(new GooglePlayDriver(context)).cancel(JOB_TAG);
+    }
+
+    /**
+     * Sync every node once. The listener is called on the sync thread once everything fetched
+     * has been written to the local store.
+     */
+    public static void syncOnce(Context context, String userId, final Listener listener) {
+        final Context appContext = context.getApplicationContext();
+        final SyncEngine engine = SyncEngine.get(appContext);
+        final AtomicInteger remaining = new AtomicInteger(3);
+        final Runnable partDone = new Runnable() {
+            @Override
+            public void run() {
+                if (remaining.decrementAndGet() == 0) {
+                    engine.runAfterPending(new Runnable() {
+                        @Override
+                        public void run() {
+                            Log.d(TAG, "sync done");
+                            listener.onSyncComplete();
+                        }
+                    });
+                }
+            }
+        };
+
+        syncPolls(appContext, engine, partDone);
+        syncUserPolls(engine, userId, partDone);
+        syncFriendship(appContext, engine, userId, partDone);
+    }
+
+    private static void syncPolls(final Context context, final SyncEngine engine, final Runnable done) {
+        final String node = SyncCursors.POLLS;
+
+        // Reading the local store has to happen on the sync thread
+        engine.runAfterPending(new Runnable() {
+            @Override
+            public void run() {
+                long oldestOpen = LocalStore.get(context).queryOldestOpenActivatedOn();
+                TrackedListeners.addListenerForSingleValueEvent(
+                        engine.sinceCursor(PollUtilities.getPollsReference(), node, oldestOpen),
+                        new ValueEventListener() {
+                            @Override
+                            public void onDataChange(DataSnapshot dataSnapshot) {
+                                Log.d(TAG, "polls => " + dataSnapshot.getChildrenCount() + " new or open");
+                                for (DataSnapshot pollSnapshot : dataSnapshot.getChildren()) {
+                                    engine.enqueuePollUpsert(node, pollSnapshot);
+                                }
+                                done.run();
+                            }
+
+                            @Override
+                            public void onCancelled(DatabaseError databaseError) {
+                                done.run();
+                            }
+                        });
+            }
+        });
+    }
+
+    private static void syncUserPolls(final SyncEngine engine, final String userId, final Runnable done) {
+        final String node = SyncCursors.USER_POLLS + "/" + userId;
+        TrackedListeners.addListenerForSingleValueEvent(
+                engine.sinceCursor(FirebaseDatabase.getInstance().getReference(node), node),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        for (DataSnapshot userPollSnapshot : dataSnapshot.getChildren()) {
+                            engine.enqueueUserPollUpsert(node, userId, userPollSnapshot);
+                        }
+                        done.run();
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        done.run();
+                    }
+                });
+    }
+
+    private static void syncFriendship(final Context context, final SyncEngine engine, final String userId, final Runnable done) {
+        final String node = SyncCursors.FRIENDSHIP + "/" + userId;
+        final long now = ServerClock.now();
+        if (now - SyncCursors.get(context, node) < FRIENDSHIP_REFRESH_IN_MS) {
+            done.run();
+            return;
+        }
+
+        TrackedListeners.addListenerForSingleValueEvent(
+                FirebaseDatabase.getInstance().getReference().child(KEY_FRIENDSHIP).child(userId),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(final DataSnapshot dataSnapshot) {
+                        engine.enqueue(new LocalStore.Change() {
+                            @Override
+                            public void apply(SQLiteDatabase db) {
+                                // A full refresh, so unfriended users go away too
+                                LocalStore.deleteFriendships(db, userId);
+                                for (DataSnapshot friendSnapshot : dataSnapshot.getChildren()) {
+                                    User friend = friendSnapshot.getValue(User.class);
+                                    if (friend != null && friend.getId() != null) {
+                                        LocalStore.upsertFriend(db, userId, friend);
+                                    }
+                                }
+                            }
+                        });
+                        engine.runAfterPending(new Runnable() {
+                            @Override
+                            public void run() {
+                                SyncCursors.advance(context, node, now);
+                                done.run();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        done.run();
+                    }
+                });
+    }
+
+    public interface Listener {
+        void onSyncComplete();
+    }
+}
@@ -3,8 +3,8 @@ package com.android.summer.csula.foodvoter.demos;
 
 import android.util.Log;
 
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
 import com.android.summer.csula.foodvoter.polls.models.Poll;
-import com.android.summer.csula.foodvoter.yelpApi.models.Business;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
@@ -44,7 +44,7 @@ public class FirebasePollBusinesses {
     }
 
     public interface OnFirebaseResultListener {
-        void onResult(List<Business> businesses);
+        void onResult(List<BusinessSummary> businesses);
     }
 }
 
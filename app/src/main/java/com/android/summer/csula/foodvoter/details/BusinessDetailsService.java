@@ -0,0 +1,280 @@
+package com.android.summer.csula.foodvoter.details;
+
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.android.summer.csula.foodvoter.yelpApi.tasks.RequestYelpBusinessTask;
+import com.android.summer.csula.foodvoter.yelpApi.tasks.YelpException;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpJsonUtil;
+
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full Yelp details of a business (photos, opening hours...), loaded by id.
+ *
+ * Responses are kept for a day, in memory and as JSON files on disk, so a business opened again
+ * (or prefetched when its poll was opened) shows up at once. Requests for a business already
+ * being fetched wait for that fetch instead of starting another one.
+ */
+public class BusinessDetailsService {
+
+    private static final String TAG = BusinessDetailsService.class.getSimpleName();
+
+    private static final String DISK_CACHE_DIR = "business-details";
+    /* Yelp doesn't allow keeping its data for longer than a day */
+    private static final long TTL_IN_MS = TimeUnit.HOURS.toMillis(24);
+    private static final int MEMORY_CACHE_SIZE = 50;
+    private static final int MAX_DISK_ENTRIES = 200;
+    private static final int THREAD_COUNT = 2;
+
+    private static BusinessDetailsService instance;
+
+    private final File directory;
+    private final LruCache<String, Entry> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /* businessId => listeners waiting for its fetch, only touched on the main thread */
+    private final Map<String, List<Listener>> pending = new HashMap<>();
+
+    private BusinessDetailsService(Context context) {
+        directory = new File(context.getCacheDir(), DISK_CACHE_DIR);
+    }
+
+    public static synchronized BusinessDetailsService get(Context context) {
+        if (instance == null) {
+            instance = new BusinessDetailsService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Load the details, the listener is called right away if they are in memory. It is called
+     * with null if Yelp couldn't be reached and nothing was cached. Call from the main thread.
+     */
+    public void load(String businessId, Listener listener) {
+        Business cached = getFromMemory(businessId);
+        if (cached != null) {
+            listener.onDetailsLoaded(cached);
+            return;
+        }
+        enqueue(businessId, listener);
+    }
+
+    /**
+     * Stop waiting for the details, i.e. when the screen that asked goes away. The fetch still
+     * completes and is cached for the next load().
+     */
+    public void cancel(String businessId, Listener listener) {
+        List<Listener> waiting = pending.get(businessId);
+        if (waiting != null) {
+            waiting.remove(listener);
+        }
+    }
+
+    /**
+     * Fetch the details the user is likely to open next, i.e. the candidates of a poll.
+     */
+    public void prefetch(List<String> businessIds) {
+        for (String businessId : businessIds) {
+            if (getFromMemory(businessId) == null) {
+                enqueue(businessId, null);
+            }
+        }
+    }
+
+    private Business getFromMemory(String businessId) {
+        Entry entry = memoryCache.get(businessId);
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        return entry.business;
+    }
+
+    private void enqueue(final String businessId, Listener listener) {
+        List<Listener> waiting = pending.get(businessId);
+        if (waiting == null) {
+            waiting = new ArrayList<>();
+            pending.put(businessId, waiting);
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Entry fetched = null;
+                    try {
+                        fetched = fetch(businessId);
+                    } finally {
+                        // Always deliver, or the listeners of this business would wait forever
+                        final Entry entry = fetched;
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                deliver(businessId, entry);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        if (listener != null) {
+            waiting.add(listener);
+        }
+    }
+
+    private void deliver(String businessId, Entry entry) {
+        if (entry != null) {
+            memoryCache.put(businessId, entry);
+        }
+
+        List<Listener> waiting = pending.remove(businessId);
+        for (Listener listener : waiting) {
+            listener.onDetailsLoaded(entry == null ? null : entry.business);
+        }
+    }
+
+    /**
+     * Read the details from disk, or from Yelp when they aren't there or are too old. Runs on the
+     * executor.
+     */
+    private Entry fetch(String businessId) {
+        File file = getFile(businessId);
+
+        try {
+            if (file.exists() && System.currentTimeMillis() - file.lastModified() < TTL_IN_MS) {
+                return new Entry(YelpJsonUtil.parseBusinessDetails(readFile(file)), file.lastModified());
+            }
+        } catch (IOException | JSONException | RuntimeException e) {
+            Log.d(TAG, "unable to read the cached details of " + businessId, e);
+            file.delete();
+        }
+
+        try {
+            String json = RequestYelpBusinessTask.executeJson(businessId);
+            Entry entry = new Entry(YelpJsonUtil.parseBusinessDetails(json), System.currentTimeMillis());
+            writeFile(file, json);
+            return entry;
+        } catch (YelpException | JSONException | RuntimeException e) {
+            Log.d(TAG, "unable to fetch the details of " + businessId, e);
+            return null;
+        }
+    }
+
+    private File getFile(String businessId) {
+        try {
+            return new File(directory, URLEncoder.encode(businessId, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized void writeFile(File file, String json) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            out.write(json.getBytes("UTF-8"));
+        } catch (IOException e) {
+            Log.d(TAG, "unable to write " + file.getName(), e);
+            file.delete();
+        } finally {
+            close(out);
+        }
+
+        trimDiskCache();
+    }
+
+    /**
+     * Delete the expired entries, then the oldest ones past MAX_DISK_ENTRIES.
+     */
+    private void trimDiskCache() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.valueOf(b.lastModified()).compareTo(a.lastModified());
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < files.length; i++) {
+            if (i >= MAX_DISK_ENTRIES || now - files[i].lastModified() >= TTL_IN_MS) {
+                files[i].delete();
+            }
+        }
+    }
+
+    private static String readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            return new String(bytes, "UTF-8");
+        } finally {
+            close(in);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static class Entry {
+
+        final Business business;
+        final long fetchedAt;
+
+        Entry(Business business, long fetchedAt) {
+            this.business = business;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - fetchedAt >= TTL_IN_MS;
+        }
+    }
+
+    public interface Listener {
+        void onDetailsLoaded(Business business);
+    }
+}
@@ -0,0 +1,65 @@
+package com.android.summer.csula.foodvoter.images;
+
+
+import android.net.Uri;
+
+import com.android.summer.csula.foodvoter.network.HttpClient;
+import com.squareup.okhttp.CacheControl;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.ResponseBody;
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.NetworkPolicy;
+
+import java.io.IOException;
+
+/**
+ * Picasso downloader going through HttpClient.execute(), so photos are enqueued on the shared
+ * dispatcher and count against its per host limit. Picasso's own OkHttpDownloader executes the
+ * calls directly, which OkHttp doesn't limit.
+ */
+class DispatcherDownloader implements Downloader {
+
+    @Override
+    public Response load(Uri uri, int networkPolicy) throws IOException {
+        Request.Builder builder = new Request.Builder().url(uri.toString());
+        CacheControl cacheControl = toCacheControl(networkPolicy);
+        if (cacheControl != null) {
+            builder.cacheControl(cacheControl);
+        }
+
+        com.squareup.okhttp.Response response = HttpClient.execute(builder.build());
+        if (response.code() >= 300) {
+            response.body().close();
+            throw new ResponseException(response.code() + " " + response.message(), networkPolicy, response.code());
+        }
+
+        ResponseBody body = response.body();
+        return new Response(body.byteStream(), response.cacheResponse() != null, body.contentLength());
+    }
+
+    @Override
+    public void shutdown() {
+        // The client is shared with the rest of the app
+    }
+
+    /**
+     * Same mapping as Picasso's OkHttpDownloader.
+     */
+    private static CacheControl toCacheControl(int networkPolicy) {
+        if (networkPolicy == 0) {
+            return null;
+        }
+        if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+            return CacheControl.FORCE_CACHE;
+        }
+
+        CacheControl.Builder builder = new CacheControl.Builder();
+        if (!NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+            builder.noCache();
+        }
+        if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+            builder.noStore();
+        }
+        return builder.build();
+    }
+}
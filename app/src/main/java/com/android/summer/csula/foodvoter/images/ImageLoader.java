@@ -0,0 +1,157 @@
+package com.android.summer.csula.foodvoter.images;
+
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.support.annotation.DrawableRes;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.android.summer.csula.foodvoter.metrics.Gauge;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.StatsSnapshot;
+
+import java.util.List;
+
+/**
+ * Single entry point for loading business photos.
+ *
+ * It configures one shared Picasso instance with a bounded memory cache that downloads through the
+ * shared HttpClient (its per host limit, connection pool and disk cache), rewrites Yelp photo
+ * URLs to the variant matching the displayed size, and lets screens prefetch images before they
+ * scroll into view. Picasso keeps its own small priority executor, so the prefetches run after
+ * the photos on screen.
+ */
+public class ImageLoader {
+
+    private static final String TAG = ImageLoader.class.getSimpleName();
+    private static final int MEMORY_CACHE_HEAP_FRACTION = 8;
+
+    private static ImageLoader instance;
+
+    private final Context context;
+    private final Picasso picasso;
+
+    /* Time between asking for an image and having it on screen, cache hits included */
+    private static final Timer displayTimer = Metrics.timer("image.display");
+
+    private ImageLoader(Context context) {
+        this.context = context.getApplicationContext();
+
+        picasso = new Picasso.Builder(this.context)
+                .memoryCache(new LruCache(memoryCacheSize(this.context)))
+                .downloader(new DispatcherDownloader())
+                .build();
+
+        // Make Picasso.with() return the configured instance too
+        try {
+            Picasso.setSingletonInstance(picasso);
+        } catch (IllegalStateException e) {
+            Log.d(TAG, "Picasso.with() was called before the ImageLoader was created");
+        }
+
+        Metrics.gauge("image.memory_hit_percent", new Gauge() {
+            @Override
+            public long get() {
+                return Math.round(getHitRate() * 100);
+            }
+        });
+        Metrics.gauge("image.memory_cache_bytes", new Gauge() {
+            @Override
+            public long get() {
+                return picasso.getSnapshot().size;
+            }
+        });
+        Metrics.gauge("image.downloads", new Gauge() {
+            @Override
+            public long get() {
+                return picasso.getSnapshot().downloadCount;
+            }
+        });
+    }
+
+    public static synchronized ImageLoader get(Context context) {
+        if (instance == null) {
+            instance = new ImageLoader(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Load a photo into the image view, fetching the Yelp variant closest to sizePx.
+     */
+    public void load(String imageUrl, int sizePx, ImageView imageView, @DrawableRes int placeholderResId) {
+        final long start = Timer.start();
+
+        picasso.load(YelpImageUrls.forSize(imageUrl, sizePx))
+                .fit()
+                .centerCrop()
+                .placeholder(placeholderResId)
+                .into(imageView, new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        displayTimer.stop(start);
+                    }
+
+                    @Override
+                    public void onError() {
+                        Log.d(TAG, "failed to load image");
+                    }
+                });
+    }
+
+    /**
+     * Warm up the disk and memory caches with photos the user is about to see.
+     */
+    public void prefetch(List<String> imageUrls, int sizePx) {
+        for (String imageUrl : imageUrls) {
+            if (imageUrl != null && !imageUrl.isEmpty()) {
+                picasso.load(YelpImageUrls.forSize(imageUrl, sizePx))
+                        .priority(Picasso.Priority.LOW)
+                        .fetch();
+            }
+        }
+    }
+
+    /**
+     * Return the memory cache hit rate, between 0 and 1.
+     */
+    public double getHitRate() {
+        StatsSnapshot snapshot = picasso.getSnapshot();
+        long requests = snapshot.cacheHits + snapshot.cacheMisses;
+        return requests == 0 ? 0 : (double) snapshot.cacheHits / requests;
+    }
+
+    /**
+     * Return the average time, in milliseconds, it took to download, decode and display a photo.
+     */
+    public long getAverageDisplayTimeMs() {
+        return Math.round(displayTimer.getMicroseconds().getMean() / 1000);
+    }
+
+    /**
+     * Return the average size, in bytes, of the decoded bitmaps.
+     */
+    public long getAverageBitmapSize() {
+        return picasso.getSnapshot().averageTransformedBitmapSize;
+    }
+
+    public void logStats() {
+        StatsSnapshot snapshot = picasso.getSnapshot();
+        Log.d(TAG, "images => hitRate: " + getHitRate()
+                + ", averageDisplayTimeMs: " + getAverageDisplayTimeMs()
+                + ", memoryCache: " + snapshot.size + "/" + snapshot.maxSize
+                + ", downloads: " + snapshot.downloadCount
+                + ", averageBitmapSize: " + snapshot.averageTransformedBitmapSize);
+    }
+
+    private static int memoryCacheSize(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = activityManager.getMemoryClass();
+        return memoryClassMb * 1024 * 1024 / MEMORY_CACHE_HEAP_FRACTION;
+    }
+}
@@ -0,0 +1,44 @@
+package com.android.summer.csula.foodvoter.images;
+
+
+/**
+ * Yelp serves every business photo in a few sizes, the size is the file name:
+ * https://s3-media3.fl.yelpcdn.com/bphoto/{photoId}/o.jpg
+ *
+ * ms   => 100 x 100
+ * ls   => 250 x 250
+ * 348s => 348 x 348
+ * l    => 600 x 400
+ * o    => original, can be several megabytes
+ *
+ * The search API always returns the original ("o.jpg"), so rewrite the URL to the smallest
+ * variant that still covers the size we display it at.
+ */
+public class YelpImageUrls {
+
+    private static final String YELP_IMAGE_HOST = "yelpcdn.com";
+    private static final String ORIGINAL_SUFFIX = "/o.jpg";
+
+    private static final int[] VARIANT_SIZES = {100, 250, 348, 600};
+    private static final String[] VARIANT_NAMES = {"ms", "ls", "348s", "l"};
+
+    private YelpImageUrls() {}
+
+    /**
+     * Return the URL of the smallest variant at least as large as the target size in pixels.
+     * URLs that aren't Yelp photos are returned untouched.
+     */
+    public static String forSize(String imageUrl, int targetSizePx) {
+        if (imageUrl == null || !imageUrl.contains(YELP_IMAGE_HOST) || !imageUrl.endsWith(ORIGINAL_SUFFIX)) {
+            return imageUrl;
+        }
+
+        String base = imageUrl.substring(0, imageUrl.length() - ORIGINAL_SUFFIX.length());
+        for (int i = 0; i < VARIANT_SIZES.length; i++) {
+            if (targetSizePx <= VARIANT_SIZES[i]) {
+                return base + "/" + VARIANT_NAMES[i] + ".jpg";
+            }
+        }
+        return imageUrl;
+    }
+}
@@ -0,0 +1,122 @@
+package com.android.summer.csula.foodvoter.maps;
+
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A small least-recently-used file cache for map snapshot bytes. Every entry is one file named
+ * after its key, reading an entry touches its last modified time, and the oldest files are
+ * deleted once the directory grows past its maximum size.
+ */
+class DiskSnapshotCache {
+
+    private static final String TAG = DiskSnapshotCache.class.getSimpleName();
+
+    private final File directory;
+    private final long maxSizeInBytes;
+
+    DiskSnapshotCache(File directory, long maxSizeInBytes) {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    synchronized byte[] get(String key) {
+        File file = new File(directory, key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = readFile(file);
+            file.setLastModified(System.currentTimeMillis());
+            return bytes;
+        } catch (IOException e) {
+            Log.d(TAG, "unable to read " + key, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    synchronized void put(String key, byte[] bytes) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        File file = new File(directory, key);
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.d(TAG, "unable to write " + key, e);
+            file.delete();
+        } finally {
+            close(out);
+        }
+
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+
+        if (size <= maxSizeInBytes) {
+            return;
+        }
+
+        // Oldest (least recently used) first
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.valueOf(a.lastModified()).compareTo(b.lastModified());
+            }
+        });
+
+        for (int i = 0; i < files.length && size > maxSizeInBytes; i++) {
+            size -= files[i].length();
+            files[i].delete();
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            return bytes;
+        } finally {
+            close(in);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.android.summer.csula.foodvoter.maps;
+
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.support.v4.util.LruCache;
+import android.widget.ImageView;
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Coordinate;
+import com.android.summer.csula.foodvoter.yelpApi.utils.NetworkUtils;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * Static map snapshots of a business location.
+ *
+ * Snapshots are keyed by the coordinate rounded to ~10 meters and the pixel size of the view, so
+ * re-opening a restaurant is served from memory (or from disk after the process died) without
+ * touching the network. Only the exact pixel size needed is requested.
+ *
+ * Evicted bitmaps are not reused for decoding: an image view may still be drawing one, and there
+ * is one snapshot per detail screen, so the allocation saved isn't worth tracking who shows what.
+ */
+public class MapSnapshotService {
+
+    private static final String TAG = MapSnapshotService.class.getSimpleName();
+
+    private static final String STATIC_MAP_BASE_URL = "https://maps.googleapis.com/maps/api/staticmap";
+    private static final int ZOOM = 15;
+    /* The static map API caps the size at 640x640, anything bigger has to use scale=2 */
+    private static final int MAX_REQUEST_SIZE = 640;
+
+    private static final String DISK_CACHE_DIR = "map-snapshots";
+    private static final long DISK_CACHE_SIZE = 10 * 1024 * 1024;
+    private static final int MEMORY_CACHE_SIZE = 4 * 1024 * 1024;
+
+    private static MapSnapshotService instance;
+
+    private final DiskSnapshotCache diskCache;
+    private final LruCache<String, Bitmap> memoryCache;
+
+    private MapSnapshotService(Context context) {
+        diskCache = new DiskSnapshotCache(new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_SIZE);
+        memoryCache = new LruCache<String, Bitmap>(MEMORY_CACHE_SIZE) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    public static synchronized MapSnapshotService get(Context context) {
+        if (instance == null) {
+            instance = new MapSnapshotService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Show the snapshot of the coordinate in the image view. The returned task must be cancelled
+     * when the screen goes away, it only holds a weak reference to the image view.
+     */
+    public AsyncTask<Void, Void, Bitmap> load(Coordinate coordinate, int widthPx, int heightPx, ImageView imageView) {
+        String key = buildKey(coordinate, widthPx, heightPx);
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return null;
+        }
+
+        SnapshotTask task = new SnapshotTask(this, key, coordinate, widthPx, heightPx, imageView);
+        task.execute();
+        return task;
+    }
+
+    /**
+     * lat,lng rounded to 4 decimals (about 11 meters) and the view size, i.e. "34.0045_-118.2567_720x180"
+     */
+    static String buildKey(Coordinate coordinate, int widthPx, int heightPx) {
+        return String.format(Locale.US, "%.4f_%.4f_%dx%d",
+                coordinate.getLatitude(), coordinate.getLongitude(), widthPx, heightPx);
+    }
+
+    private Bitmap fetch(String key, Coordinate coordinate, int widthPx, int heightPx) throws Exception {
+        byte[] bytes = diskCache.get(key);
+
+        if (bytes == null) {
+            bytes = NetworkUtils.getBytesFromHttpUrl(buildUrl(coordinate, widthPx, heightPx));
+            diskCache.put(key, bytes);
+        }
+
+        Bitmap bitmap = decode(bytes, widthPx, heightPx);
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static URL buildUrl(Coordinate coordinate, int widthPx, int heightPx) throws Exception {
+        int scale = (widthPx > MAX_REQUEST_SIZE || heightPx > MAX_REQUEST_SIZE) ? 2 : 1;
+        int width = Math.min(MAX_REQUEST_SIZE, (widthPx + scale - 1) / scale);
+        int height = Math.min(MAX_REQUEST_SIZE, (heightPx + scale - 1) / scale);
+        String center = coordinate.getLatitude() + "," + coordinate.getLongitude();
+
+        Uri uri = Uri.parse(STATIC_MAP_BASE_URL).buildUpon()
+                .appendQueryParameter("center", center)
+                .appendQueryParameter("zoom", Integer.toString(ZOOM))
+                .appendQueryParameter("size", width + "x" + height)
+                .appendQueryParameter("scale", Integer.toString(scale))
+                .appendQueryParameter("markers", center)
+                .build();
+        return new URL(uri.toString());
+    }
+
+    private Bitmap decode(byte[] bytes, int widthPx, int heightPx) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+
+        options.inSampleSize = calculateInSampleSize(options, widthPx, heightPx);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+
+    private static int calculateInSampleSize(BitmapFactory.Options options, int widthPx, int heightPx) {
+        int inSampleSize = 1;
+        while (options.outWidth / (inSampleSize * 2) >= widthPx
+                && options.outHeight / (inSampleSize * 2) >= heightPx) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static class SnapshotTask extends AsyncTask<Void, Void, Bitmap> {
+
+        private final MapSnapshotService service;
+        private final String key;
+        private final Coordinate coordinate;
+        private final int widthPx;
+        private final int heightPx;
+        private final WeakReference<ImageView> imageViewReference;
+
+        SnapshotTask(MapSnapshotService service, String key, Coordinate coordinate,
+                     int widthPx, int heightPx, ImageView imageView) {
+            this.service = service;
+            this.key = key;
+            this.coordinate = coordinate;
+            this.widthPx = widthPx;
+            this.heightPx = heightPx;
+            this.imageViewReference = new WeakReference<>(imageView);
+        }
+
+        @Override
+        protected Bitmap doInBackground(Void... params) {
+            try {
+                return service.fetch(key, coordinate, widthPx, heightPx);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(Bitmap bitmap) {
+            ImageView imageView = imageViewReference.get();
+            if (bitmap != null && imageView != null && !isCancelled()) {
+                imageView.setImageBitmap(bitmap);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count that only goes up, i.e. requests sent or bytes downloaded. Lock-free.
+ */
+public class Counter {
+
+    private final AtomicLong count = new AtomicLong();
+
+    Counter() {}
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        count.addAndGet(delta);
+    }
+
+    public long get() {
+        return count.get();
+    }
+}
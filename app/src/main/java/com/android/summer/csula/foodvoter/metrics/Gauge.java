@@ -0,0 +1,10 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+
+/**
+ * A value read when the snapshot is taken, i.e. the depth of a queue.
+ */
+public interface Gauge {
+
+    long get();
+}
@@ -0,0 +1,126 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The metrics of the whole process, by name: "yelp.search", "http.bytes"...
+ *
+ * Look a metric up once and keep it in a static field, recording into it is then lock-free and
+ * allocation-free, so it can stay on in production builds:
+ *
+ *   private static final Timer searchTimer = Metrics.timer("yelp.search");
+ *
+ * snapshot() renders everything as text, shown by MetricsActivity and written by dump().
+ */
+public class Metrics {
+
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Section> sections = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new Counter());
+            counter = counters.get(name);
+        }
+        return counter;
+    }
+
+    public static Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histograms.putIfAbsent(name, new Histogram());
+            histogram = histograms.get(name);
+        }
+        return histogram;
+    }
+
+    public static Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timers.putIfAbsent(name, new Timer());
+            timer = timers.get(name);
+        }
+        return timer;
+    }
+
+    /**
+     * Register a value read at snapshot time, replacing the gauge of the same name.
+     */
+    public static void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Register a report kept elsewhere, appended to the snapshot under its title.
+     */
+    public static void section(String title, Section section) {
+        sections.put(title, section);
+    }
+
+    /**
+     * Every metric, sorted by name, then the sections. Timers are in milliseconds.
+     */
+    public static String snapshot() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("counters\n");
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            builder.append(String.format(Locale.US, "  %-36s %12d%n", entry.getKey(), entry.getValue().get()));
+        }
+
+        builder.append("gauges\n");
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            builder.append(String.format(Locale.US, "  %-36s %12d%n", entry.getKey(), entry.getValue().get()));
+        }
+
+        builder.append("histograms\n");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            appendHistogram(builder, entry.getKey(), entry.getValue(), 1);
+        }
+
+        builder.append("timers (ms)\n");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            appendHistogram(builder, entry.getKey(), entry.getValue().getMicroseconds(), 1000);
+        }
+
+        for (Map.Entry<String, Section> entry : new TreeMap<>(sections).entrySet()) {
+            builder.append(entry.getKey()).append('\n').append(entry.getValue().render());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write the snapshot to the file, replacing it.
+     */
+    public static void dump(File file) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(snapshot());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void appendHistogram(StringBuilder builder, String name, Histogram histogram, double scale) {
+        builder.append(String.format(Locale.US,
+                "  %-36s count %8d  mean %10.2f  p50 %10.2f  p90 %10.2f  p99 %10.2f  max %10.2f%n",
+                name, histogram.getCount(), histogram.getMean() / scale,
+                histogram.getPercentile(50) / scale, histogram.getPercentile(90) / scale,
+                histogram.getPercentile(99) / scale, histogram.getMax() / scale));
+    }
+}
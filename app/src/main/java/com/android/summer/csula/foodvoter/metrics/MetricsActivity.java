@@ -0,0 +1,78 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.android.summer.csula.foodvoter.R;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Hidden debug screen showing the Metrics snapshot, reached with a long press on the username of
+ * the home screen. "Dump to file" writes it where adb can pull it without root:
+ *
+ *   adb pull /sdcard/Android/data/com.android.summer.csula.foodvoter/files/metrics.txt
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = MetricsActivity.class.getSimpleName();
+    private static final String DUMP_FILE_NAME = "metrics.txt";
+
+    private TextView metricsTextView;
+
+    public static Intent newIntent(Context context) {
+        return new Intent(context, MetricsActivity.class);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        metricsTextView = (TextView) findViewById(R.id.text_view_metrics);
+
+        findViewById(R.id.button_refresh_metrics).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                refresh();
+            }
+        });
+
+        findViewById(R.id.button_dump_metrics).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                dump();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        metricsTextView.setText(Metrics.snapshot());
+    }
+
+    private void dump() {
+        File directory = getExternalFilesDir(null);
+        File file = new File(directory != null ? directory : getFilesDir(), DUMP_FILE_NAME);
+        try {
+            Metrics.dump(file);
+            Toast.makeText(this, "Metrics written to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.d(TAG, "unable to write " + file, e);
+            Toast.makeText(this, "Unable to write the metrics", Toast.LENGTH_SHORT).show();
+        }
+    }
+}
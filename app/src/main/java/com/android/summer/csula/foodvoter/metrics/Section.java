@@ -0,0 +1,13 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+
+/**
+ * A block of lines appended to the snapshot, for stats that don't fit a single number.
+ */
+public interface Section {
+
+    /**
+     * Return the lines, each indented by two spaces and ending with a new line.
+     */
+    String render();
+}
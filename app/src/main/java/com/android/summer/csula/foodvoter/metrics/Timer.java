@@ -0,0 +1,37 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+
+/**
+ * How long something takes, recorded in microseconds in a Histogram.
+ *
+ *   long start = Timer.start();
+ *   ...
+ *   timer.stop(start);
+ */
+public class Timer {
+
+    private final Histogram microseconds = new Histogram();
+
+    Timer() {}
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time since start(), and return it in milliseconds.
+     */
+    public long stop(long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        microseconds.record(elapsedNanos / 1000);
+        return elapsedNanos / 1000000;
+    }
+
+    public void recordMs(long milliseconds) {
+        microseconds.record(milliseconds * 1000);
+    }
+
+    public Histogram getMicroseconds() {
+        return microseconds;
+    }
+}
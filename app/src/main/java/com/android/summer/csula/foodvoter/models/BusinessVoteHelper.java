@@ -1,25 +1,25 @@
 package com.android.summer.csula.foodvoter.models;
 
 
-import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
 
 /**
- *  Wrapper class used to wrap a business.class and store if its been selected or not
+ *  Wrapper class used to wrap a BusinessSummary.class and store if its been selected or not
  * */
 public class BusinessVoteHelper {
 
-    private Business business;
+    private BusinessSummary business;
     private boolean selected;
 
-    public BusinessVoteHelper(Business business) {
+    public BusinessVoteHelper(BusinessSummary business) {
         this.business = business;
     }
 
-    public Business getBusiness() {
+    public BusinessSummary getBusiness() {
         return business;
     }
 
-    public void setBusiness(Business business) {
+    public void setBusiness(BusinessSummary business) {
         this.business = business;
     }
 
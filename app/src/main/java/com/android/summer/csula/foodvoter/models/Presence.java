@@ -0,0 +1,37 @@
+package com.android.summer.csula.foodvoter.models;
+
+
+/**
+ * Mirror of the presence/{userId} node. It is kept apart from the User record so watching a
+ * friend's presence only downloads these two fields.
+ */
+public class Presence {
+
+    public static final String ONLINE = "online";
+    public static final String LAST_SEEN = "lastSeen";
+
+    private boolean online;
+
+    /**
+     * Server timestamp of the last time the user went online or offline.
+     */
+    private long lastSeen;
+
+    public Presence() {}
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(long lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+}
@@ -1,9 +1,14 @@
 package com.android.summer.csula.foodvoter.models;
 
 import java.io.Serializable;
+import java.util.Locale;
 
 public class User implements Serializable{
     private String username;
+    /**
+     * Lower case copy of the username, indexed on the database for the friend search.
+     */
+    private String usernameLower;
     private String id;
     private String token;
     private boolean online;
@@ -12,7 +17,7 @@ public class User implements Serializable{
     }
 
     public User(String username, String id) {
-        this.username = username;
+        setUsername(username);
         this.id = id;
     }
 
@@ -27,6 +32,22 @@ public class User implements Serializable{
 
     public void setUsername(String username) {
         this.username = username;
+        this.usernameLower = toLowerCaseKey(username);
+    }
+
+    public String getUsernameLower() {
+        return usernameLower;
+    }
+
+    public void setUsernameLower(String usernameLower) {
+        this.usernameLower = usernameLower;
+    }
+
+    /**
+     * Normalize a username (or a search query) the same way usernameLower is stored.
+     */
+    public static String toLowerCaseKey(String username) {
+        return username == null ? null : username.trim().toLowerCase(Locale.US);
     }
 
     public String getId() {
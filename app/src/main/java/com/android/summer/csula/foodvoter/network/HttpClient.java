@@ -0,0 +1,139 @@
+package com.android.summer.csula.foodvoter.network;
+
+
+import android.content.Context;
+
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Callback;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one HTTP client of the app. Yelp calls, map snapshots and business photos all go through
+ * it so they share a single dispatcher (with a per host concurrency limit), a single connection
+ * pool and a single HTTP disk cache.
+ */
+public class HttpClient {
+
+    private static final String CACHE_DIR = "http-cache";
+    private static final long CACHE_SIZE = 50 * 1024 * 1024;
+
+    private static final int MAX_REQUESTS = 16;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_IN_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long CONNECT_TIMEOUT_IN_S = 10;
+    private static final long READ_TIMEOUT_IN_S = 20;
+
+    private static OkHttpClient client;
+
+    private HttpClient() {}
+
+    /**
+     * Create the shared client, with its disk cache in the app cache directory. Called once from
+     * FoodVoterApplication.
+     */
+    public static synchronized void init(Context context) {
+        if (client == null) {
+            File cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+            client = buildClient(new Cache(cacheDir, CACHE_SIZE));
+        }
+    }
+
+    /**
+     * Return the shared client. Without init() (i.e. in a plain JVM) it has no disk cache.
+     */
+    public static synchronized OkHttpClient get() {
+        if (client == null) {
+            client = buildClient(null);
+        }
+        return client;
+    }
+
+    /**
+     * Execute the request and block until its body is fully read.
+     *
+     * The call is enqueued on the shared dispatcher rather than executed on the calling thread,
+     * because OkHttp only enforces its concurrency limits for enqueued calls. Interrupting the
+     * calling thread (i.e. Picasso cancelling a photo) cancels the call and frees its slot.
+     */
+    public static Response execute(Request request) throws IOException {
+        BlockingCallback callback = new BlockingCallback();
+        Call call = get().newCall(request);
+        call.enqueue(callback);
+        return callback.await(call);
+    }
+
+    private static OkHttpClient buildClient(Cache cache) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient okHttpClient = new OkHttpClient();
+        okHttpClient.setDispatcher(dispatcher);
+        okHttpClient.setConnectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_IN_MS));
+        okHttpClient.setConnectTimeout(CONNECT_TIMEOUT_IN_S, TimeUnit.SECONDS);
+        okHttpClient.setReadTimeout(READ_TIMEOUT_IN_S, TimeUnit.SECONDS);
+        if (cache != null) {
+            okHttpClient.setCache(cache);
+        }
+        return okHttpClient;
+    }
+
+    private static class BlockingCallback implements Callback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private Response response;
+        private IOException exception;
+
+        @Override
+        public void onFailure(Request request, IOException e) {
+            exception = e;
+            latch.countDown();
+        }
+
+        @Override
+        public void onResponse(Response response) throws IOException {
+            try {
+                // Read the body while the call still holds its dispatcher slot
+                ResponseBody body = response.body();
+                byte[] bytes = body.bytes();
+                this.response = response.newBuilder()
+                        .body(ResponseBody.create(body.contentType(), bytes))
+                        .build();
+            } catch (IOException e) {
+                exception = e;
+            } finally {
+                latch.countDown();
+            }
+        }
+
+        Response await(Call call) throws IOException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                call.cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for the response");
+            }
+
+            if (exception != null) {
+                throw exception;
+            }
+            return response;
+        }
+    }
+}
@@ -107,10 +107,9 @@ public class InvitedVotersFragment extends Fragment implements FoodVoterFirebase
     }
 
     @Override
-    public void onUserAdded(User user) { }
-
-    @Override
-    public void onUserChanged(User user) { }
+    public void onUserChanged(User user) {
+        friendsVoterAdapter.updateOnlineStatus(user);
+    }
 
 
     // Firebase database will call this method whenever a friend ha been added to the
@@ -1,7 +1,9 @@
 package com.android.summer.csula.foodvoter.polls;
 
 import android.Manifest;
+import android.app.TimePickerDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Location;
@@ -11,21 +13,32 @@ import android.support.design.widget.TabLayout;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.text.format.DateFormat;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.TimePicker;
 import android.widget.Toast;
 
 import com.android.summer.csula.foodvoter.R;
 import com.android.summer.csula.foodvoter.models.User;
 import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.android.summer.csula.foodvoter.polls.models.Recurrence;
 import com.android.summer.csula.foodvoter.yelpApi.models.Coordinate;
 import com.android.summer.csula.foodvoter.yelpApi.models.YelpPriceLevel;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
 public class PollActivity extends AppCompatActivity implements
         SettingFragment.OnPollSettingsListener, InvitedVotersFragment.OnPollInvitesListener {
 
@@ -62,7 +75,7 @@ public class PollActivity extends AppCompatActivity implements
         Log.d(TAG, "onCreate => user.toString => " + user.toString());
 
         // This poll doesn't have an id yet, the id is inserted in later when the user click
-        // on the submit button. The poll insertion is done in the PollIntentService
+        // on the submit button. The poll insertion is done in the PollCreationService
         poll = new Poll(user);
 
         // used to obtain app user location
@@ -141,6 +154,7 @@ public class PollActivity extends AppCompatActivity implements
     private void initializeUI() {
         initTabLayout();
         initSubmitButton();
+        initRepeatButton();
     }
 
     private void initTabLayout() {
@@ -172,7 +186,7 @@ public class PollActivity extends AppCompatActivity implements
             @Override
             public void onClick(View view) {
                 try {
-                    startPollIntentService();
+                    startPollCreationService();
                 } catch (Exception e) {
                     e.printStackTrace();
                     displayPollErrorToast();
@@ -183,8 +197,90 @@ public class PollActivity extends AppCompatActivity implements
         });
     }
 
-    private void startPollIntentService() {
-        Intent intent = PollIntentService.newIntent(PollActivity.this, poll);
+    private void initRepeatButton() {
+        Button repeat = (Button) findViewById(R.id.button_repeat_poll);
+        repeat.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                showRepeatDaysDialog();
+            }
+        });
+    }
+
+    /**
+     * Ask for the days of the week, then the time, and save the poll as a template.
+     */
+    private void showRepeatDaysDialog() {
+        // getWeekdays() is indexed by the Calendar constants, Calendar.SUNDAY = 1
+        String[] weekdays = Arrays.copyOfRange(new DateFormatSymbols().getWeekdays(),
+                                               Calendar.SUNDAY, Calendar.SATURDAY + 1);
+        final boolean[] checked = new boolean[weekdays.length];
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_title_repeat_days)
+                .setMultiChoiceItems(weekdays, checked, new DialogInterface.OnMultiChoiceClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which, boolean isChecked) {
+                        checked[which] = isChecked;
+                    }
+                })
+                .setPositiveButton(R.string.dialog_button_next, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        List<Integer> daysOfWeek = new ArrayList<>();
+                        for (int i = 0; i < checked.length; i++) {
+                            if (checked[i]) {
+                                daysOfWeek.add(Calendar.SUNDAY + i);
+                            }
+                        }
+
+                        if (daysOfWeek.isEmpty()) {
+                            Toast.makeText(PollActivity.this, R.string.toast_poll_template_no_day,
+                                           Toast.LENGTH_SHORT).show();
+                        } else {
+                            showRepeatTimeDialog(daysOfWeek);
+                        }
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void showRepeatTimeDialog(final List<Integer> daysOfWeek) {
+        Calendar now = Calendar.getInstance();
+        new TimePickerDialog(this, new TimePickerDialog.OnTimeSetListener() {
+            @Override
+            public void onTimeSet(TimePicker view, int hourOfDay, int minute) {
+                saveTemplate(new Recurrence(daysOfWeek, hourOfDay * 60 + minute));
+            }
+        }, now.get(Calendar.HOUR_OF_DAY), now.get(Calendar.MINUTE), DateFormat.is24HourFormat(this)).show();
+    }
+
+    /**
+     * Only leave once the server accepted the template, the rules may reject it.
+     */
+    private void saveTemplate(Recurrence recurrence) {
+        PollTemplates.save(poll, recurrence)
+                .addOnSuccessListener(this, new OnSuccessListener<Void>() {
+                    @Override
+                    public void onSuccess(Void aVoid) {
+                        Toast.makeText(PollActivity.this, R.string.toast_poll_template_saved,
+                                       Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+                })
+                .addOnFailureListener(this, new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(TAG, "template not saved", e);
+                        Toast.makeText(PollActivity.this, R.string.toast_poll_template_not_saved,
+                                       Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    private void startPollCreationService() {
+        Intent intent = PollCreationService.newIntent(PollActivity.this, poll);
         startService(intent);
     }
 
@@ -264,6 +360,11 @@ public class PollActivity extends AppCompatActivity implements
         }
     }
 
+    @Override
+    public void onTimeLimitChange(long timeLimitInMs) {
+        poll.setTimeLimitInMs(timeLimitInMs);
+    }
+
     @Override
     public void onUserInvited(User voter, boolean invited) {
         if (invited) {
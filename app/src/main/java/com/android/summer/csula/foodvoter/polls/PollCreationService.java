@@ -0,0 +1,256 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.HomeActivity;
+import com.android.summer.csula.foodvoter.metrics.Gauge;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates new polls: writes each one as a draft and waits for the server to build and publish
+ * it (see PollDraft). The Yelp search happens on the server, through a cache shared by every user.
+ *
+ * Unlike an IntentService the polls are built in parallel, on a small bounded pool, so a user
+ * creating several polls doesn't wait for each one in turn. Each stage has its own timeout, and
+ * the outcome is broadcast with the HomeActivity.PollBroadcastReceiver actions. A timed out draft
+ * is cancelled, so a poll reported as failed is never published behind the user's back.
+ */
+public class PollCreationService extends Service {
+
+    private static final String TAG = PollCreationService.class.getSimpleName();
+    private static final String EXTRA_POLL = "poll";
+
+    public static final String EXTRA_POLL_TITLE = "poll_title";
+    /* Set on ACTION_UNSUCCESSFUL_WRITE, one of the STAGE_ constants */
+    public static final String EXTRA_FAILED_STAGE = "failed_stage";
+
+    public static final String STAGE_QUEUE = "queue";
+    public static final String STAGE_SEARCH = "search";
+    public static final String STAGE_WRITE = "write";
+
+    private static final int THREAD_COUNT = 3;
+    private static final int QUEUE_CAPACITY = 20;
+
+    /* The server search, cold start included */
+    private static final long SEARCH_TIMEOUT_IN_S = 60;
+    private static final long WRITE_TIMEOUT_IN_S = 20;
+
+    /* Polls waiting for a thread, and polls being built, across service instances */
+    private static final AtomicInteger queued = new AtomicInteger();
+    private static final AtomicInteger running = new AtomicInteger();
+
+    private static final Timer searchTimer = Metrics.timer("polls.create.search");
+    private static final Timer writeTimer = Metrics.timer("polls.create.write");
+
+    static {
+        Metrics.gauge("polls.create.queue_depth", new Gauge() {
+            @Override
+            public long get() {
+                return getQueueDepth();
+            }
+        });
+        Metrics.gauge("polls.create.running", new Gauge() {
+            @Override
+            public long get() {
+                return getRunningCount();
+            }
+        });
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ThreadPoolExecutor executor;
+
+    /* Polls accepted by this instance and not finished yet, main thread only */
+    private int outstanding;
+    private int lastStartId;
+
+
+    public static Intent newIntent(Context context, Poll poll) {
+        Intent intent = new Intent(context, PollCreationService.class);
+        intent.putExtra(EXTRA_POLL, poll);
+        return intent;
+    }
+
+    /**
+     * Return how many polls are waiting for a free thread.
+     */
+    public static int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Return how many polls are being built right now.
+     */
+    public static int getRunningCount() {
+        return running.get();
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        lastStartId = startId;
+        final Poll poll = intent == null ? null : (Poll) intent.getSerializableExtra(EXTRA_POLL);
+        if (poll == null) {
+            stopIfIdle();
+            return START_NOT_STICKY;
+        }
+
+        try {
+            queued.incrementAndGet();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    queued.decrementAndGet();
+                    running.incrementAndGet();
+                    try {
+                        createPoll(poll);
+                    } finally {
+                        running.decrementAndGet();
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                outstanding--;
+                                stopIfIdle();
+                            }
+                        });
+                    }
+                }
+            });
+            outstanding++;
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            Log.d(TAG, "too many polls being created, dropping " + poll.getTitle());
+            broadcastFailure(poll, STAGE_QUEUE);
+            stopIfIdle();
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        executor.shutdownNow();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    /**
+     * Write the poll as a draft, then wait for the server to search Yelp, pick the businesses
+     * and publish it (see PollDraft). Runs on a pool thread.
+     */
+    private void createPoll(final Poll poll) {
+        long startTime = SystemClock.elapsedRealtime();
+        PollDraft draft = new PollDraft(poll);
+
+        long writeStart = Timer.start();
+        try {
+            Tasks.await(draft.submit(), WRITE_TIMEOUT_IN_S, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // The write is still queued, the server builds the draft once it gets there
+            logFailure(poll, STAGE_WRITE, e);
+            cancelDraft(draft, poll, STAGE_WRITE);
+            return;
+        } catch (Exception e) {
+            logFailure(poll, STAGE_WRITE, e);
+            broadcastFailure(poll, STAGE_WRITE);
+            return;
+        }
+        writeTimer.stop(writeStart);
+
+        long searchStart = Timer.start();
+        try {
+            // Wait for the server so the broadcast reports what really happened
+            Tasks.await(draft.awaitPublished(), SEARCH_TIMEOUT_IN_S, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logFailure(poll, STAGE_SEARCH, e);
+            cancelDraft(draft, poll, STAGE_SEARCH);
+            return;
+        } catch (Exception e) {
+            logFailure(poll, STAGE_SEARCH, e);
+            broadcastFailure(poll, STAGE_SEARCH);
+            return;
+        }
+        long searchTime = searchTimer.stop(searchStart);
+
+        Log.d(TAG, "created " + poll.getTitle() + " => searchMs: " + searchTime
+                + ", totalMs: " + (SystemClock.elapsedRealtime() - startTime)
+                + ", queueDepth: " + getQueueDepth());
+        broadcast(poll, new Intent(HomeActivity.PollBroadcastReceiver.ACTION_SUCCESSFUL_WRITE));
+    }
+
+    /**
+     * We gave up waiting but the server may still publish the poll: cancel the draft and report
+     * what really happened, so retrying doesn't create the poll twice.
+     */
+    private void cancelDraft(PollDraft draft, Poll poll, String stage) {
+        String status;
+        try {
+            status = Tasks.await(draft.cancel(), WRITE_TIMEOUT_IN_S, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // Still offline, the draft stays queued and shows up once it is published
+            logFailure(poll, stage, e);
+            broadcast(poll, new Intent(HomeActivity.PollBroadcastReceiver.ACTION_PENDING_WRITE));
+            return;
+        }
+
+        if (PollDraft.STATUS_READY.equals(status)) {
+            broadcast(poll, new Intent(HomeActivity.PollBroadcastReceiver.ACTION_SUCCESSFUL_WRITE));
+        } else if (PollDraft.STATUS_BUILDING.equals(status)) {
+            broadcast(poll, new Intent(HomeActivity.PollBroadcastReceiver.ACTION_PENDING_WRITE));
+        } else {
+            broadcastFailure(poll, stage);
+        }
+    }
+
+    private static void logFailure(Poll poll, String stage, Exception e) {
+        Log.d(TAG, stage + " failed for " + poll.getTitle(), e);
+    }
+
+    private void stopIfIdle() {
+        if (outstanding == 0) {
+            stopSelf(lastStartId);
+        }
+    }
+
+    private void broadcastFailure(Poll poll, String stage) {
+        Intent intent = new Intent(HomeActivity.PollBroadcastReceiver.ACTION_UNSUCCESSFUL_WRITE);
+        intent.putExtra(EXTRA_FAILED_STAGE, stage);
+        broadcast(poll, intent);
+    }
+
+    private void broadcast(Poll poll, Intent intent) {
+        intent.putExtra(EXTRA_POLL_TITLE, poll.getTitle());
+        LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
+    }
+}
@@ -0,0 +1,162 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A poll handed to the server to be built:
+ * pollDrafts/{pollId} = { poll, status: "draft", createdAt }.
+ *
+ * The buildPollFromDraft Cloud Function searches Yelp through a cache shared by every user
+ * nearby, picks the businesses and publishes the poll (see PollUpdates.newPoll()). It first
+ * claims the draft ("building"), then sets the status to "ready", or "failed" with an error. A
+ * draft the client cancelled before it was claimed is never published. Drafts are removed a day
+ * after they were created, whatever their status, by the purgePollDrafts function.
+ */
+public class PollDraft {
+
+    private static final String TAG = PollDraft.class.getSimpleName();
+
+    static final String POLL_DRAFTS_TREE = "pollDrafts";
+
+    static final String KEY_POLL = "poll";
+    static final String KEY_STATUS = "status";
+    static final String KEY_ERROR = "error";
+    static final String KEY_CREATED_AT = "createdAt";
+
+    static final String STATUS_DRAFT = "draft";
+    static final String STATUS_BUILDING = "building";
+    static final String STATUS_READY = "ready";
+    static final String STATUS_FAILED = "failed";
+    static final String STATUS_CANCELLED = "cancelled";
+
+    private final Poll poll;
+    private ValueEventListener statusListener;
+
+    public PollDraft(Poll poll) {
+        this.poll = poll;
+    }
+
+    /**
+     * Write the draft. The poll gets its id here, the server sets its times when it publishes it.
+     */
+    public Task<Void> submit() {
+        if (poll.getPollId() == null) {
+            poll.setPollId(FirebaseDatabase.getInstance().getReference().child(PollUpdates.POLLS_TREE).push().getKey());
+        }
+
+        Map<String, Object> draft = new HashMap<>();
+        draft.put(KEY_POLL, poll);
+        draft.put(KEY_STATUS, STATUS_DRAFT);
+        draft.put(KEY_CREATED_AT, ServerValue.TIMESTAMP);
+
+        final TaskCompletionSource<Void> completion = new TaskCompletionSource<>();
+        getDraftReference().setValue(draft, new DatabaseReference.CompletionListener() {
+            @Override
+            public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
+                if (databaseError == null) {
+                    completion.setResult(null);
+                } else {
+                    completion.setException(databaseError.toException());
+                }
+            }
+        });
+        return completion.getTask();
+    }
+
+    /**
+     * Completes once the server published the poll, or fails if it couldn't build it.
+     */
+    public synchronized Task<Void> awaitPublished() {
+        final TaskCompletionSource<Void> completion = new TaskCompletionSource<>();
+
+        statusListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                String status = dataSnapshot.child(KEY_STATUS).getValue(String.class);
+                if (STATUS_READY.equals(status)) {
+                    stopWaiting();
+                    completion.trySetResult(null);
+                } else if (STATUS_FAILED.equals(status)) {
+                    stopWaiting();
+                    String error = dataSnapshot.child(KEY_ERROR).getValue(String.class);
+                    Log.d(TAG, "server failed to build " + poll.getPollId() + ": " + error);
+                    completion.trySetException(new Exception("poll draft failed: " + error));
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                completion.trySetException(databaseError.toException());
+            }
+        };
+        TrackedListeners.addValueEventListener(getDraftReference(), statusListener);
+        return completion.getTask();
+    }
+
+    /**
+     * Cancel the draft, i.e. after awaitPublished() timed out, so the server doesn't publish it
+     * later. Completes with the final status: "cancelled", or whatever the server got to first
+     * ("building", "ready" or "failed").
+     */
+    public Task<String> cancel() {
+        stopWaiting();
+
+        final TaskCompletionSource<String> completion = new TaskCompletionSource<>();
+        getDraftReference().child(KEY_STATUS).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData mutableData) {
+                String status = mutableData.getValue(String.class);
+                if (status == null) {
+                    // Nothing cached: writing null over null sends the real status back to us
+                    return Transaction.success(mutableData);
+                }
+                if (!STATUS_DRAFT.equals(status)) {
+                    return Transaction.abort();
+                }
+                mutableData.setValue(STATUS_CANCELLED);
+                return Transaction.success(mutableData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError databaseError, boolean committed,
+                                   DataSnapshot dataSnapshot) {
+                if (databaseError != null) {
+                    completion.setException(databaseError.toException());
+                } else {
+                    completion.setResult(dataSnapshot.getValue(String.class));
+                }
+            }
+        });
+        return completion.getTask();
+    }
+
+    private synchronized void stopWaiting() {
+        if (statusListener != null) {
+            TrackedListeners.removeEventListener(getDraftReference(), statusListener);
+            statusListener = null;
+        }
+    }
+
+    private DatabaseReference getDraftReference() {
+        return FirebaseDatabase.getInstance().getReference()
+                .child(POLL_DRAFTS_TREE)
+                .child(poll.getPollId());
+    }
+}
@@ -3,6 +3,8 @@ package com.android.summer.csula.foodvoter.polls;
 
 import android.content.Intent;
 import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 
 import com.android.summer.csula.foodvoter.ListActivity;
 import com.android.summer.csula.foodvoter.polls.models.Poll;
@@ -17,4 +19,21 @@ public abstract class PollFragment extends Fragment implements PollsAdapter.OnPo
         Intent intent = ListActivity.newIntent(getContext(), poll);
         startActivity(intent);
     }
+
+    /**
+     * Keep the poll window centered on what the recycler view shows.
+     */
+    protected void trackViewport(RecyclerView recyclerView, final LinearLayoutManager layoutManager,
+                                 final PollWindow polls) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int first = layoutManager.findFirstVisibleItemPosition();
+                int last = layoutManager.findLastVisibleItemPosition();
+                if (first != RecyclerView.NO_POSITION) {
+                    polls.setViewport(first, last);
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,330 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.database.local.SyncEngine;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A retained fragment without a view that holds a poll list and its Firebase listener, so the
+ * list survives pause/resume, rotation and switching tabs.
+ *
+ * The first sync downloads every poll. While the screen is paused the listener is detached, and
+ * the next sync only asks for the polls activated since the oldest poll that was still open (or
+ * since the newest poll if none was). A closed poll doesn't change any more, so this catches the
+ * votes and the closing of every cached poll that could have changed meanwhile.
+ *
+ * The same holds across launches: the model first seeds its keys from the LocalStore, and every
+ * snapshot it receives is mirrored there through the SyncEngine.
+ *
+ * Only the polls around the viewport are kept in memory (see PollWindow), the others are read
+ * again from Firebase (usually its local cache) when the user scrolls back to them.
+ */
+public class PollListModel extends Fragment implements PollWindow.Loader {
+
+    private static final String TAG = PollListModel.class.getSimpleName();
+    private static final String TAG_PREFIX = "poll_list_model_";
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_ACTIVATED_ON = "activatedOn";
+
+    private static final Timer deserializeTimer = Metrics.timer("firebase.poll.deserialize");
+
+    /* Newest first, shared with the PollsAdapter */
+    private final PollWindow polls = new PollWindow();
+    private long newestActivatedOn = -1;
+    /* pollId => activatedOn of the cached polls that aren't completed yet */
+    private final Map<String, Long> openPolls = new HashMap<>();
+
+    private SyncEngine syncEngine;
+    /* Seeded from the local store, or seeding (main thread) */
+    private boolean seeded;
+    private boolean seeding;
+    /* Between sync() and pause() */
+    private boolean syncing;
+
+    private Query query;
+    private ChildEventListener childEventListener;
+    private Listener listener;
+
+    /**
+     * Return the model for every poll (userId == null) or for the polls the user is invited to,
+     * creating it the first time.
+     */
+    public static PollListModel get(FragmentManager fragmentManager, @Nullable String userId) {
+        String tag = TAG_PREFIX + (userId == null ? "all" : userId);
+        PollListModel model = (PollListModel) fragmentManager.findFragmentByTag(tag);
+
+        if (model == null) {
+            model = new PollListModel();
+            Bundle args = new Bundle();
+            args.putString(KEY_USER_ID, userId);
+            model.setArguments(args);
+            model.setRetainInstance(true);
+            fragmentManager.beginTransaction().add(model, tag).commit();
+        }
+        return model;
+    }
+
+    public PollListModel() {
+        polls.setLoader(this);
+    }
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        syncEngine = SyncEngine.get(context);
+    }
+
+    public PollWindow getPolls() {
+        return polls;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Start listening, for the polls activated since the last sync only.
+     */
+    public void sync() {
+        syncing = true;
+        if (!seeded) {
+            seedFromLocalStore();
+        } else {
+            attachListener();
+        }
+    }
+
+    /**
+     * Read the stored poll keys on a cold start, then start listening from them.
+     */
+    private void seedFromLocalStore() {
+        if (seeding) {
+            return;
+        }
+        seeding = true;
+
+        syncEngine.loadPollKeys(getArguments().getString(KEY_USER_ID), new SyncEngine.PollKeysListener() {
+            @Override
+            public void onPollKeysLoaded(List<Poll> keys) {
+                seeding = false;
+                if (!syncing) {
+                    return;     // Paused meanwhile, the next sync() reads them again
+                }
+                seeded = true;
+
+                if (polls.size() == 0 && !keys.isEmpty()) {
+                    for (Poll key : keys) {
+                        polls.addLast(key.getPollId());
+                        newestActivatedOn = Math.max(newestActivatedOn, key.getActivatedOn());
+                        trackOpen(key.getPollId(), key);
+                    }
+                    Log.d(TAG, "seeded " + keys.size() + " polls from the local store");
+                    if (listener != null) {
+                        listener.onPollsInserted(0, keys.size());
+                    }
+                    polls.loadWindow();
+                }
+                attachListener();
+            }
+        });
+    }
+
+    private void attachListener() {
+        if (childEventListener != null) {
+            return;
+        }
+
+        long since = getSyncStart();
+        query = PollUtilities.getPollsReference().orderByChild(KEY_ACTIVATED_ON);
+        if (since >= 0) {
+            // startAt is inclusive, the polls we have come again and are replaced in place
+            query = query.startAt(since);
+        }
+        Log.d(TAG, "sync => since: " + since + ", cached polls: " + polls.size()
+                + ", open: " + openPolls.size());
+
+        childEventListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot dataSnapshot, String s) {
+                syncEngine.mirrorPoll(dataSnapshot);
+                Poll poll = readPoll(dataSnapshot);
+                if (poll == null || !isVisible(poll)) {
+                    return;
+                }
+
+                newestActivatedOn = Math.max(newestActivatedOn, poll.getActivatedOn());
+                trackOpen(dataSnapshot.getKey(), poll);
+
+                int position = indexOf(dataSnapshot.getKey());
+                if (position >= 0) {
+                    polls.set(position, poll);
+                    if (listener != null) {
+                        listener.onPollChanged(position);
+                    }
+                } else {
+                    polls.addFirst(poll);  // add the item to head of the list
+                    if (listener != null) {
+                        listener.onPollInserted(0);
+                    }
+                }
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot dataSnapshot, String s) {
+                syncEngine.mirrorPoll(dataSnapshot);
+                Poll poll = readPoll(dataSnapshot);
+                int position = indexOf(dataSnapshot.getKey());
+                if (poll != null && position >= 0) {
+                    trackOpen(dataSnapshot.getKey(), poll);
+                    polls.set(position, poll);
+                    if (listener != null) {
+                        listener.onPollChanged(position);
+                    }
+                }
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot dataSnapshot) {
+                syncEngine.mirrorPollRemoved(dataSnapshot.getKey());
+                int position = indexOf(dataSnapshot.getKey());
+                openPolls.remove(dataSnapshot.getKey());
+                if (position >= 0) {
+                    polls.remove(position);
+                    if (listener != null) {
+                        listener.onPollRemoved(position);
+                    }
+                }
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot dataSnapshot, String s) { }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) { }
+        };
+        TrackedListeners.addChildEventListener(query, childEventListener);
+    }
+
+    /**
+     * Stop listening, the polls are kept for the next sync.
+     */
+    public void pause() {
+        syncing = false;
+        if (childEventListener != null) {
+            TrackedListeners.removeEventListener(query, childEventListener);
+            childEventListener = null;
+        }
+    }
+
+    /**
+     * Read a poll that scrolled back into the window.
+     */
+    @Override
+    public void load(final String pollId) {
+        DatabaseReference pollRef = PollUtilities.getPollsReference().child(pollId);
+        TrackedListeners.addListenerForSingleValueEvent(pollRef, new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                int position = polls.indexOf(pollId);
+                if (position < 0) {
+                    return;     // Removed from the list meanwhile
+                }
+
+                Poll poll = readPoll(dataSnapshot);
+                if (poll == null) {
+                    // Deleted since it was listed, i.e. while the listener was paused
+                    syncEngine.mirrorPollRemoved(pollId);
+                    openPolls.remove(pollId);
+                    polls.remove(position);
+                    if (listener != null) {
+                        listener.onPollRemoved(position);
+                    }
+                    return;
+                }
+
+                trackOpen(pollId, poll);
+                polls.set(position, poll);
+                if (listener != null) {
+                    listener.onPollChanged(position);
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                // Asked again once the user scrolls
+                polls.cancelLoad(pollId);
+            }
+        });
+    }
+
+    private static Poll readPoll(DataSnapshot dataSnapshot) {
+        long start = Timer.start();
+        Poll poll = dataSnapshot.getValue(Poll.class);
+        deserializeTimer.stop(start);
+        return poll;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        pause();
+    }
+
+    /**
+     * Where the next sync starts: the oldest poll that could still change, -1 for everything.
+     */
+    private long getSyncStart() {
+        long since = newestActivatedOn;
+        for (long activatedOn : openPolls.values()) {
+            since = Math.min(since, activatedOn);
+        }
+        return since;
+    }
+
+    private void trackOpen(String pollId, Poll poll) {
+        if (poll.isCompleted()) {
+            openPolls.remove(pollId);
+        } else {
+            openPolls.put(pollId, poll.getActivatedOn());
+        }
+    }
+
+    private int indexOf(String pollId) {
+        return polls.indexOf(pollId);
+    }
+
+    private boolean isVisible(Poll poll) {
+        String userId = getArguments().getString(KEY_USER_ID);
+        return userId == null || PollUpdates.getParticipantIds(poll).contains(userId);
+    }
+
+    public interface Listener {
+        void onPollInserted(int position);
+
+        void onPollsInserted(int positionStart, int count);
+
+        void onPollChanged(int position);
+
+        void onPollRemoved(int position);
+    }
+}
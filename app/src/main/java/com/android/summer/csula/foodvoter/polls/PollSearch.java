@@ -0,0 +1,346 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.util.LruCache;
+
+import com.android.summer.csula.foodvoter.database.ServerClock;
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poll search and filters, served by indexes instead of downloading every poll.
+ *
+ * Text search reads two indexes kept by the indexPollSearch Cloud Function: searchTokens/{token}
+ * lists the indexed words, and pollSearch/{token}/{pollId} = activatedOn the polls of each word.
+ * Every word of the query is a prefix ("piz" matches "pizza"), expanded to at most
+ * MAX_TOKENS_PER_PREFIX indexed words through searchTokens, and a poll has to match all of them.
+ * Only the newest MAX_IDS_PER_TOKEN polls of each word are read, so a common word doesn't download
+ * its whole index. The poll ids of recent queries are kept in an LRU cache for CACHE_TTL, then
+ * asked again so new polls show up; the polls themselves are always read again.
+ *
+ * Filters read their own index:
+ * COMPLETED        completedPolls/{pollId} = closedAt, written by the server when it closes a poll
+ * AUTHORED_BY_ME   pollsByAuthor/{userId}/{pollId} = activatedOn, written with the poll
+ * CLOSING_SOON     openPolls/{pollId} = closesAt
+ */
+public class PollSearch {
+
+    private static final String POLL_SEARCH_TREE = "pollSearch";
+    private static final String SEARCH_TOKENS_TREE = "searchTokens";
+    private static final String COMPLETED_POLLS_TREE = "completedPolls";
+    private static final String HIGH_UNICODE = "\uf8ff";
+
+    /* Keep in sync with tokenize() in functions/index.js */
+    private static final String TOKEN_SEPARATOR = "[^a-z0-9\u00c0-\uffff]+";
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 30;
+    private static final int MAX_QUERY_TOKENS = 5;
+
+    /* How many indexed words a prefix can expand to, i.e. "p" => "pho", "pizza", "pasta"... */
+    private static final int MAX_TOKENS_PER_PREFIX = 20;
+    private static final int MAX_IDS_PER_TOKEN = 200;
+    private static final int MAX_RESULTS = 50;
+    private static final int CACHE_SIZE = 32;
+    private static final long CACHE_TTL_IN_MS = TimeUnit.MINUTES.toMillis(2);
+
+    public enum Filter {
+        COMPLETED,
+        AUTHORED_BY_ME,
+        CLOSING_SOON
+    }
+
+    private final DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, CachedIds> cache = new LruCache<>(CACHE_SIZE);
+    private final String userId;
+
+    /* Bumped by every search, so the results of an outdated search are dropped */
+    private int generation;
+
+    public PollSearch(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Search the polls whose title or description has words starting with every word of the
+     * text. The listener gets the polls, newest first.
+     */
+    public void search(final String text, final Listener listener) {
+        final int searchGeneration = ++generation;
+        final List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            listener.onSearchResults(new ArrayList<Poll>());
+            return;
+        }
+
+        final String cacheKey = join(tokens);
+        CachedIds cached = cache.get(cacheKey);
+        if (cached != null && SystemClock.elapsedRealtime() - cached.cachedAt < CACHE_TTL_IN_MS) {
+            loadPolls(cached.pollIds, searchGeneration, listener);
+            return;
+        }
+
+        final List<Set<String>> matchesPerToken = new ArrayList<>();
+        final int[] remaining = {tokens.size()};
+        for (String token : tokens) {
+            queryPrefix(token, new IdsListener() {
+                @Override
+                public void onIds(Set<String> pollIds) {
+                    matchesPerToken.add(pollIds);
+                    if (--remaining[0] > 0) {
+                        return;
+                    }
+
+                    List<String> matchingIds = intersect(matchesPerToken);
+                    cache.put(cacheKey, new CachedIds(matchingIds));
+                    loadPolls(matchingIds, searchGeneration, listener);
+                }
+            });
+        }
+    }
+
+    /**
+     * Return the polls in the filter's index, newest (or closing soonest) first.
+     */
+    public void filter(Filter filter, Listener listener) {
+        int searchGeneration = ++generation;
+
+        Query query;
+        switch (filter) {
+            case COMPLETED:
+                query = rootRef.child(COMPLETED_POLLS_TREE).orderByValue().limitToLast(MAX_RESULTS);
+                break;
+            case AUTHORED_BY_ME:
+                query = rootRef.child(PollUpdates.POLLS_BY_AUTHOR_TREE).child(userId)
+                        .orderByValue().limitToLast(MAX_RESULTS);
+                break;
+            default:
+                query = rootRef.child(PollUpdates.OPEN_POLLS_TREE).orderByValue()
+                        .startAt(ServerClock.now()).limitToFirst(MAX_RESULTS);
+                break;
+        }
+        readIds(query, filter, searchGeneration, listener);
+    }
+
+    private void readIds(Query query, final Filter filter, final int searchGeneration, final Listener listener) {
+        TrackedListeners.addListenerForSingleValueEvent(query, new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                List<String> pollIds = new ArrayList<>();
+                for (DataSnapshot child : dataSnapshot.getChildren()) {
+                    pollIds.add(child.getKey());
+                }
+                // Ordered by value ascending: the closing soonest first is what we want, the
+                // other filters want the newest first
+                if (filter != Filter.CLOSING_SOON) {
+                    Collections.reverse(pollIds);
+                }
+                loadPolls(pollIds, searchGeneration, listener);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                listener.onSearchResults(new ArrayList<Poll>());
+            }
+        });
+    }
+
+    /**
+     * Return the newest poll ids indexed under the words starting with the prefix.
+     */
+    private void queryPrefix(String prefix, final IdsListener idsListener) {
+        TrackedListeners.addListenerForSingleValueEvent(
+                rootRef.child(SEARCH_TOKENS_TREE)
+                        .orderByKey()
+                        .startAt(prefix)
+                        .endAt(prefix + HIGH_UNICODE)
+                        .limitToFirst(MAX_TOKENS_PER_PREFIX),
+                new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        List<String> words = new ArrayList<>();
+                        for (DataSnapshot tokenSnapshot : dataSnapshot.getChildren()) {
+                            words.add(tokenSnapshot.getKey());
+                        }
+                        queryWords(words, idsListener);
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        idsListener.onIds(new HashSet<String>());
+                    }
+                });
+    }
+
+    /**
+     * Return the union of the newest poll ids of every word.
+     */
+    private void queryWords(List<String> words, final IdsListener idsListener) {
+        final Set<String> pollIds = new HashSet<>();
+        final int[] remaining = {words.size()};
+        if (words.isEmpty()) {
+            idsListener.onIds(pollIds);
+            return;
+        }
+
+        for (String word : words) {
+            TrackedListeners.addListenerForSingleValueEvent(
+                    rootRef.child(POLL_SEARCH_TREE).child(word)
+                            .orderByValue()
+                            .limitToLast(MAX_IDS_PER_TOKEN),
+                    new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+                            for (DataSnapshot pollSnapshot : dataSnapshot.getChildren()) {
+                                pollIds.add(pollSnapshot.getKey());
+                            }
+                            onWordDone();
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            onWordDone();
+                        }
+
+                        private void onWordDone() {
+                            if (--remaining[0] == 0) {
+                                idsListener.onIds(pollIds);
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Read the polls, keeping the order of the ids unless sorted by the caller.
+     */
+    private void loadPolls(final List<String> pollIds, final int searchGeneration, final Listener listener) {
+        final List<String> ids = pollIds.size() > MAX_RESULTS ? pollIds.subList(0, MAX_RESULTS) : pollIds;
+        final Poll[] polls = new Poll[ids.size()];
+        final int[] remaining = {ids.size()};
+
+        if (ids.isEmpty()) {
+            deliver(searchGeneration, new ArrayList<Poll>(), listener);
+            return;
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            final int position = i;
+            TrackedListeners.addListenerForSingleValueEvent(
+                    PollUtilities.getPollsReference().child(ids.get(i)),
+                    new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+                            polls[position] = dataSnapshot.getValue(Poll.class);
+                            onPollLoaded();
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            onPollLoaded();
+                        }
+
+                        private void onPollLoaded() {
+                            if (--remaining[0] > 0) {
+                                return;
+                            }
+                            List<Poll> results = new ArrayList<>();
+                            for (Poll poll : polls) {
+                                if (poll != null) {
+                                    results.add(poll);
+                                }
+                            }
+                            deliver(searchGeneration, results, listener);
+                        }
+                    });
+        }
+    }
+
+    private void deliver(final int searchGeneration, final List<Poll> polls, final Listener listener) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (searchGeneration == generation) {
+                    listener.onSearchResults(polls);
+                }
+            }
+        });
+    }
+
+    /**
+     * Poll ids present in every set, newest first (push ids sort by creation time).
+     */
+    static List<String> intersect(List<Set<String>> sets) {
+        Set<String> result = new LinkedHashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size(); i++) {
+            result.retainAll(sets.get(i));
+        }
+
+        List<String> pollIds = new ArrayList<>(result);
+        Collections.sort(pollIds, Collections.reverseOrder());
+        return pollIds;
+    }
+
+    /**
+     * Lower case words of the text, without duplicates or words too short to be indexed.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        for (String word : text.toLowerCase(Locale.US).split(TOKEN_SEPARATOR)) {
+            String token = word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word;
+            if (token.length() >= MIN_TOKEN_LENGTH && !tokens.contains(token) && tokens.size() < MAX_QUERY_TOKENS) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String join(List<String> tokens) {
+        List<String> sorted = new ArrayList<>(tokens);
+        Collections.sort(sorted);
+        StringBuilder key = new StringBuilder();
+        for (String token : sorted) {
+            key.append(token).append(' ');
+        }
+        return key.toString();
+    }
+
+    private static class CachedIds {
+        final List<String> pollIds;
+        final long cachedAt = SystemClock.elapsedRealtime();
+
+        CachedIds(List<String> pollIds) {
+            this.pollIds = pollIds;
+        }
+    }
+
+    private interface IdsListener {
+        void onIds(Set<String> pollIds);
+    }
+
+    public interface Listener {
+        void onSearchResults(List<Poll> polls);
+    }
+}
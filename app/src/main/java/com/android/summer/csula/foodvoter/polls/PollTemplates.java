@@ -0,0 +1,102 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.database.ServerClock;
+import com.android.summer.csula.foodvoter.database.TrackedListeners;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.android.summer.csula.foodvoter.polls.models.PollTemplate;
+import com.android.summer.csula.foodvoter.polls.models.Recurrence;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves, lists and deletes recurring polls. Nothing else happens on the phone: the
+ * runPollTemplates Cloud Function searches each run's candidates ahead of time and publishes the
+ * poll when it is due, until the template is deleted.
+ */
+public class PollTemplates {
+
+    private static final String TAG = PollTemplates.class.getSimpleName();
+
+    static final String POLL_TEMPLATES_TREE = "pollTemplates";
+    /* Indexed, see database.rules.json */
+    static final String KEY_AUTHOR_ID = "authorId";
+
+    private PollTemplates() {}
+
+    /**
+     * Save the poll's settings and voters to be published on every run of the recurrence.
+     */
+    public static Task<Void> save(Poll poll, Recurrence recurrence) {
+        PollTemplate template = new PollTemplate(poll, recurrence, ServerClock.now());
+        return write(getTemplatesReference().push(), template);
+    }
+
+    /**
+     * Load the templates of the author once, the listener gets an empty list if they can't be read.
+     */
+    public static void load(String authorId, final Listener listener) {
+        Query query = getTemplatesReference().orderByChild(KEY_AUTHOR_ID).equalTo(authorId);
+        TrackedListeners.addListenerForSingleValueEvent(query, new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                List<PollTemplate> templates = new ArrayList<>();
+                for (DataSnapshot child : dataSnapshot.getChildren()) {
+                    PollTemplate template = child.getValue(PollTemplate.class);
+                    if (template != null) {
+                        template.templateId = child.getKey();
+                        templates.add(template);
+                    }
+                }
+                listener.onTemplatesLoaded(templates);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                Log.d(TAG, "unable to load the templates: " + databaseError.getMessage());
+                listener.onTemplatesLoaded(new ArrayList<PollTemplate>());
+            }
+        });
+    }
+
+    /**
+     * Delete the template, no poll is published from it afterwards.
+     */
+    public static Task<Void> delete(String templateId) {
+        return write(getTemplatesReference().child(templateId), null);
+    }
+
+    private static Task<Void> write(DatabaseReference reference, Object value) {
+        final TaskCompletionSource<Void> completion = new TaskCompletionSource<>();
+        reference.setValue(value, new DatabaseReference.CompletionListener() {
+            @Override
+            public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
+                if (databaseError == null) {
+                    completion.setResult(null);
+                } else {
+                    completion.setException(databaseError.toException());
+                }
+            }
+        });
+        return completion.getTask();
+    }
+
+    private static DatabaseReference getTemplatesReference() {
+        return FirebaseDatabase.getInstance().getReference().child(POLL_TEMPLATES_TREE);
+    }
+
+    public interface Listener {
+        void onTemplatesLoaded(List<PollTemplate> templates);
+    }
+}
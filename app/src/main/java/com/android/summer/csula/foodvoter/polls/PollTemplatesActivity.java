@@ -0,0 +1,101 @@
+package com.android.summer.csula.foodvoter.polls;
+
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.v7.app.AlertDialog;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.android.summer.csula.foodvoter.R;
+import com.android.summer.csula.foodvoter.polls.models.PollTemplate;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+
+import java.util.List;
+
+/**
+ * The recurring polls of the user, deleting one stops the server from publishing it.
+ */
+public class PollTemplatesActivity extends AppCompatActivity implements
+        PollTemplates.Listener, PollTemplatesAdapter.OnDeleteClickListener {
+
+    private static final String TAG = PollTemplatesActivity.class.getSimpleName();
+    private static final String EXTRA_USER_ID = "user_id";
+
+    private PollTemplatesAdapter adapter;
+    private TextView emptyView;
+
+    public static Intent newIntent(Context context, String userId) {
+        Intent intent = new Intent(context, PollTemplatesActivity.class);
+        intent.putExtra(EXTRA_USER_ID, userId);
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_poll_templates);
+
+        adapter = new PollTemplatesAdapter(this);
+        RecyclerView recyclerView = (RecyclerView) findViewById(R.id.rv_poll_templates);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(adapter);
+
+        emptyView = (TextView) findViewById(R.id.tv_poll_templates_empty);
+
+        PollTemplates.load(getIntent().getStringExtra(EXTRA_USER_ID), this);
+    }
+
+    @Override
+    public void onTemplatesLoaded(List<PollTemplate> templates) {
+        if (isFinishing()) {
+            return;
+        }
+        adapter.swap(templates);
+        emptyView.setVisibility(templates.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public void onDeleteClick(final PollTemplate template) {
+        new AlertDialog.Builder(this)
+                .setTitle(template.getPoll() == null ? null : template.getPoll().getTitle())
+                .setMessage(R.string.dialog_message_delete_template)
+                .setPositiveButton(R.string.dialog_button_delete, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        deleteTemplate(template);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void deleteTemplate(final PollTemplate template) {
+        PollTemplates.delete(template.templateId)
+                .addOnSuccessListener(this, new OnSuccessListener<Void>() {
+                    @Override
+                    public void onSuccess(Void aVoid) {
+                        adapter.remove(template);
+                        if (adapter.getItemCount() == 0) {
+                            emptyView.setVisibility(View.VISIBLE);
+                        }
+                    }
+                })
+                .addOnFailureListener(this, new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Log.d(TAG, "template not deleted", e);
+                        Toast.makeText(PollTemplatesActivity.this, R.string.toast_poll_template_not_deleted,
+                                       Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+}
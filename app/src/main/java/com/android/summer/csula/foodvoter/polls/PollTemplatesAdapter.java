@@ -0,0 +1,109 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageButton;
+import android.widget.TextView;
+
+import com.android.summer.csula.foodvoter.R;
+import com.android.summer.csula.foodvoter.polls.models.PollTemplate;
+import com.android.summer.csula.foodvoter.polls.models.Recurrence;
+
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class PollTemplatesAdapter extends RecyclerView.Adapter<PollTemplatesAdapter.TemplateViewHolder> {
+
+    private List<PollTemplate> templates = new ArrayList<>();
+    private OnDeleteClickListener onDeleteClickListener;
+
+    public PollTemplatesAdapter(OnDeleteClickListener onDeleteClickListener) {
+        this.onDeleteClickListener = onDeleteClickListener;
+    }
+
+    @Override
+    public TemplateViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        Context context = parent.getContext();
+        View view = LayoutInflater.from(context).inflate(R.layout.item_poll_template, parent, false);
+        return new TemplateViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(TemplateViewHolder holder, int position) {
+        holder.bind(templates.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return templates.size();
+    }
+
+    public void swap(List<PollTemplate> templates) {
+        this.templates = new ArrayList<>(templates);
+        notifyDataSetChanged();
+    }
+
+    public void remove(PollTemplate template) {
+        int position = templates.indexOf(template);
+        if (position != -1) {
+            templates.remove(position);
+            notifyItemRemoved(position);
+        }
+    }
+
+    /**
+     * "Mon, Wed, Fri at 12:30", in the author's local time when the template was saved.
+     */
+    private static String formatSchedule(Recurrence recurrence) {
+        // getShortWeekdays() is indexed by the Calendar constants, Calendar.SUNDAY = 1
+        String[] weekdays = new DateFormatSymbols().getShortWeekdays();
+
+        StringBuilder schedule = new StringBuilder();
+        for (int dayOfWeek : recurrence.getDaysOfWeek()) {
+            if (schedule.length() > 0) {
+                schedule.append(", ");
+            }
+            schedule.append(weekdays[dayOfWeek]);
+        }
+        return schedule.append(String.format(Locale.US, " at %02d:%02d",
+                recurrence.getMinuteOfDay() / 60, recurrence.getMinuteOfDay() % 60)).toString();
+    }
+
+    public class TemplateViewHolder extends RecyclerView.ViewHolder {
+
+        private TextView title;
+        private TextView schedule;
+
+        public TemplateViewHolder(View itemView) {
+            super(itemView);
+            title = (TextView) itemView.findViewById(R.id.tv_template_title);
+            schedule = (TextView) itemView.findViewById(R.id.tv_template_schedule);
+
+            ImageButton deleteButton = (ImageButton) itemView.findViewById(R.id.btn_template_delete);
+            deleteButton.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    int position = getAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        onDeleteClickListener.onDeleteClick(templates.get(position));
+                    }
+                }
+            });
+        }
+
+        public void bind(PollTemplate template) {
+            title.setText(template.getPoll() == null ? null : template.getPoll().getTitle());
+            schedule.setText(template.getRecurrence() == null ? null : formatSchedule(template.getRecurrence()));
+        }
+    }
+
+    public interface OnDeleteClickListener {
+        void onDeleteClick(PollTemplate template);
+    }
+}
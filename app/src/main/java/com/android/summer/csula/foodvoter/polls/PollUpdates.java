@@ -0,0 +1,102 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The multi-path updates of the polls trees, as plain maps of path => value. VoteSubmitter writes
+ * the vote updates, new polls are published by the server with newPollUpdate() in
+ * functions/index.js. Nothing here depends on Firebase or Android, so the simulator module writes
+ * the very same updates to its in-memory database: keep newPoll() in sync with the server.
+ */
+public class PollUpdates {
+
+    public static final String POLLS_TREE = "polls";
+    public static final String OPEN_POLLS_TREE = "openPolls";
+    public static final String USER_POLLS_TREE = "userPolls";
+    public static final String POLLS_BY_AUTHOR_TREE = "pollsByAuthor";
+    public static final String POLL_TALLIES_TREE = "pollTallies";
+    public static final String VOTES_TREE = "votes";
+    /* Same as BusinessCatalog.BUSINESSES_TREE */
+    public static final String BUSINESSES_TREE = "businesses";
+
+    public static final String KEY_TITLE = "title";
+    public static final String KEY_ACTIVATED_ON = "activatedOn";
+    public static final String KEY_CLOSES_AT = "closesAt";
+
+    private PollUpdates() {}
+
+    /**
+     * The update creating the poll, which must already have its id and times. Sets a zero tally
+     * for each business on the poll.
+     */
+    public static Map<String, Object> newPoll(Poll poll, List<Business> businesses) {
+        String pollId = poll.getPollId();
+
+        Map<String, Long> tally = new HashMap<>();
+        for (BusinessSummary business : poll.getBusinesses()) {
+            tally.put(business.getId(), 0L);
+        }
+        poll.setTally(tally);
+
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put(POLLS_TREE + "/" + pollId, poll);
+        update.put(OPEN_POLLS_TREE + "/" + pollId, poll.getClosesAt());
+
+        for (Business business : businesses) {
+            update.put(BUSINESSES_TREE + "/" + business.getId(), business);
+        }
+
+        if (poll.getAuthor() != null) {
+            update.put(POLLS_BY_AUTHOR_TREE + "/" + poll.getAuthor().getId() + "/" + pollId, poll.getActivatedOn());
+        }
+
+        Map<String, Object> userPoll = new HashMap<>();
+        userPoll.put(KEY_TITLE, poll.getTitle());
+        userPoll.put(KEY_ACTIVATED_ON, poll.getActivatedOn());
+        userPoll.put(KEY_CLOSES_AT, poll.getClosesAt());
+        for (String userId : getParticipantIds(poll)) {
+            update.put(USER_POLLS_TREE + "/" + userId + "/" + pollId, userPoll);
+        }
+        return update;
+    }
+
+    /**
+     * The update recording a vote and its tally entry, removing the tally entry of the previous
+     * vote if there was one (previousBusinessId may be null).
+     */
+    public static Map<String, Object> vote(String pollId, String userId, String businessId, String previousBusinessId) {
+        Map<String, Object> update = new HashMap<>();
+        update.put(POLLS_TREE + "/" + pollId + "/" + VOTES_TREE + "/" + userId, businessId);
+        update.put(POLL_TALLIES_TREE + "/" + pollId + "/" + businessId + "/" + userId, true);
+
+        if (previousBusinessId != null) {
+            update.put(POLL_TALLIES_TREE + "/" + pollId + "/" + previousBusinessId + "/" + userId, null);
+        }
+        return update;
+    }
+
+    /**
+     * The author and the voters, without duplicates.
+     */
+    public static Set<String> getParticipantIds(Poll poll) {
+        Set<String> userIds = new LinkedHashSet<>();
+        if (poll.getAuthor() != null) {
+            userIds.add(poll.getAuthor().getId());
+        }
+        for (User voter : poll.getVoters()) {
+            userIds.add(voter.getId());
+        }
+        return userIds;
+    }
+}
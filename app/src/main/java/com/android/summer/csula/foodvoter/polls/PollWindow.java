@@ -0,0 +1,237 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A newest-first poll list that only keeps the polls around the viewport in memory.
+ *
+ * Every poll has a key (its id) in a ring buffer, so adding the newest poll at the head is O(1)
+ * and finding a poll by id is a map lookup. Only the polls within a margin of the visible items
+ * are materialized, the others are dropped and loaded again through the Loader once the user
+ * scrolls back to them.
+ */
+public class PollWindow {
+
+    static final int DEFAULT_MARGIN = 30;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int margin;
+
+    /* Ring buffer of poll ids, position 0 (the newest poll) is at keys[head] */
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    /*
+     * pollId => sequence, the position of a poll is its sequence minus headSequence. Adding at
+     * the head decrements headSequence so no other entry has to change.
+     */
+    private final Map<String, Integer> sequences = new HashMap<>();
+    private int headSequence;
+
+    private final Map<String, Poll> materialized = new HashMap<>();
+    private final Set<String> loading = new HashSet<>();
+
+    /* Positions [windowStart, windowEnd) are materialized */
+    private int windowStart;
+    private int windowEnd;
+
+    private Loader loader;
+
+    public PollWindow() {
+        this(DEFAULT_MARGIN);
+    }
+
+    PollWindow(int margin) {
+        this.margin = margin;
+        // Until the list reports its viewport, keep what fits the first screens
+        this.windowEnd = 2 * margin;
+    }
+
+    public void setLoader(Loader loader) {
+        this.loader = loader;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the poll at the position, or null while it is being loaded.
+     */
+    public Poll get(int position) {
+        return materialized.get(getKey(position));
+    }
+
+    public String getKey(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position: " + position + ", size: " + size);
+        }
+        return keys[(head + position) % keys.length];
+    }
+
+    public int indexOf(String pollId) {
+        Integer sequence = sequences.get(pollId);
+        return sequence == null ? -1 : sequence - headSequence;
+    }
+
+    public int getMaterializedCount() {
+        return materialized.size();
+    }
+
+    /**
+     * Add the newest poll at position 0. A poll that is already in the list is replaced in place.
+     */
+    public void addFirst(Poll poll) {
+        String pollId = poll.getPollId();
+        int position = indexOf(pollId);
+        if (position >= 0) {
+            set(position, poll);
+            return;
+        }
+
+        if (size == keys.length) {
+            grow();
+        }
+
+        head = (head - 1 + keys.length) % keys.length;
+        keys[head] = pollId;
+        size++;
+        sequences.put(pollId, --headSequence);
+
+        if (windowStart == 0) {
+            // The user is at the top: show the new poll and let the last one fall out
+            materialized.put(pollId, poll);
+            if (windowEnd < size) {
+                evict(getKey(windowEnd));
+            }
+        } else {
+            // The user scrolled down: the window follows the polls already on screen
+            windowStart++;
+            windowEnd++;
+        }
+    }
+
+    /**
+     * Add an older poll at the end of the list without materializing it, loadWindow() loads it if
+     * it falls in the window. A poll that is already in the list is left where it is.
+     */
+    public void addLast(String pollId) {
+        if (indexOf(pollId) >= 0) {
+            return;
+        }
+        if (size == keys.length) {
+            grow();
+        }
+
+        keys[(head + size) % keys.length] = pollId;
+        sequences.put(pollId, headSequence + size);
+        size++;
+    }
+
+    /**
+     * Replace the poll at the position. It is only kept if the position is inside the window.
+     */
+    public void set(int position, Poll poll) {
+        String pollId = getKey(position);
+        loading.remove(pollId);
+        if (isInWindow(position)) {
+            materialized.put(pollId, poll);
+        }
+    }
+
+    /**
+     * Remove the poll at the position. This shifts every following key, polls are rarely removed,
+     * and loads the poll that shifted into the window.
+     */
+    public void remove(int position) {
+        String pollId = getKey(position);
+        for (int i = position; i < size - 1; i++) {
+            String next = keys[(head + i + 1) % keys.length];
+            keys[(head + i) % keys.length] = next;
+            sequences.put(next, sequences.get(next) - 1);
+        }
+        keys[(head + size - 1) % keys.length] = null;
+        size--;
+
+        sequences.remove(pollId);
+        evict(pollId);
+        if (position < windowStart) {
+            windowStart--;
+            windowEnd--;
+        } else {
+            loadWindow();
+        }
+    }
+
+    /**
+     * Forget that the poll is being loaded, i.e. after the load failed, so the next
+     * setViewport() or loadWindow() asks for it again.
+     */
+    public void cancelLoad(String pollId) {
+        loading.remove(pollId);
+    }
+
+    /**
+     * Move the window around the visible positions, dropping the polls that left it and loading
+     * the ones that entered it.
+     */
+    public void setViewport(int firstVisible, int lastVisible) {
+        windowStart = Math.max(0, firstVisible - margin);
+        windowEnd = lastVisible + 1 + margin;
+
+        Iterator<String> iterator = materialized.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!isInWindow(indexOf(iterator.next()))) {
+                iterator.remove();
+            }
+        }
+
+        loadWindow();
+    }
+
+    /**
+     * Load the polls of the window that aren't materialized or being loaded yet.
+     */
+    public void loadWindow() {
+        int end = Math.min(windowEnd, size);
+        for (int position = windowStart; position < end; position++) {
+            String pollId = getKey(position);
+            if (!materialized.containsKey(pollId) && loader != null && loading.add(pollId)) {
+                loader.load(pollId);
+            }
+        }
+    }
+
+    private boolean isInWindow(int position) {
+        return position >= windowStart && position < windowEnd;
+    }
+
+    private void evict(String pollId) {
+        materialized.remove(pollId);
+        loading.remove(pollId);
+    }
+
+    private void grow() {
+        String[] grown = new String[keys.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = keys[(head + i) % keys.length];
+        }
+        keys = grown;
+        head = 0;
+    }
+
+    public interface Loader {
+        /**
+         * Load the poll, and set() it once it is here.
+         */
+        void load(String pollId);
+    }
+}
@@ -11,15 +11,16 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.android.summer.csula.foodvoter.R;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
 import com.android.summer.csula.foodvoter.polls.models.Poll;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class PollsAdapter extends RecyclerView.Adapter<PollsAdapter.PollViewHolder> {
 
     private static final String TAG = PollActivity.class.getSimpleName();
-    private List<Poll> polls = new ArrayList<>();
+    private static final Timer bindTimer = Metrics.timer("adapter.polls.bind");
+
+    private PollWindow polls = new PollWindow();
     private OnPollClickListener onPollClickListener;
 
     /**
@@ -46,7 +47,9 @@ public class PollsAdapter extends RecyclerView.Adapter<PollsAdapter.PollViewHold
 
     @Override
     public void onBindViewHolder(PollViewHolder holder, int position) {
+        long start = Timer.start();
         holder.bind(position);
+        bindTimer.stop(start);
     }
 
     @Override
@@ -54,8 +57,12 @@ public class PollsAdapter extends RecyclerView.Adapter<PollsAdapter.PollViewHold
         return polls.size();
     }
 
-    public void addPoll(Poll poll) {
-        polls.add(0, poll);  // add the item to head of the list
+    /**
+     * Show the given list, it is not copied: the owner (PollListModel) changes it and tells the
+     * adapter which items changed.
+     */
+    public void setPolls(PollWindow polls) {
+        this.polls = polls;
         notifyDataSetChanged();
     }
 
@@ -88,19 +95,31 @@ public class PollsAdapter extends RecyclerView.Adapter<PollsAdapter.PollViewHold
                 @Override
                 public void onClick(View view) {
                     int position = getAdapterPosition();
+                    if (position == NO_POSITION) {
+                        return;
+                    }
                     final Poll poll = polls.get(position);
-                    onPollClickListener.onPollClick(poll);
+                    if (poll != null) {
+                        onPollClickListener.onPollClick(poll);
+                    }
                 }
             });
         }
 
         public void bind(int position) {
             Poll current = polls.get(position);
+            if (current == null) {
+                // Scrolled back into the window, the poll is being loaded again
+                title.setText(null);
+                description.setText(null);
+                completed.setText(null);
+                return;
+            }
             Log.d(TAG, "current bind: " + current.toString());
 
             title.setText(current.getTitle());
             description.setText(current.getDescription());
-            completed.setText(current.isCompleted() ? "Completed" : "Not Completed");
+            completed.setText(PollUtilities.isClosed(current) ? "Completed" : "Not Completed");
 
             if (invited) {
                 image.setImageResource(R.drawable.ic_restaurant);
@@ -34,9 +34,12 @@ public class SettingFragment extends Fragment {
     private static final String KEY_ZIP_CODE = "zipCode";
     private static final String KEY_PRICE = "price";
     private static final String KEY_OPEN = "openNow";
+    private static final String KEY_TIME_LIMIT = "timeLimitInMs";
+    private static final long MS_PER_MINUTE = 60 * 1000;
 
     private boolean hasLocation;
     private Spinner priceSpinner;
+    private Spinner timeLimitSpinner;
     private EditText zipCode;
     private RadioButton currentLocationRadioButton;
     private RadioButton zipCodeRadioButton;
@@ -62,6 +65,7 @@ public class SettingFragment extends Fragment {
         args.putString(KEY_ZIP_CODE, poll.getZipCode());
         args.putString(KEY_PRICE, poll.getPrice());
         args.putBoolean(KEY_OPEN, poll.isOpenNow());
+        args.putLong(KEY_TIME_LIMIT, poll.getTimeLimitInMs());
         return args;
     }
 
@@ -107,6 +111,7 @@ public class SettingFragment extends Fragment {
         setupZipCode();
         setupCheckbox();
         setupSpinner();
+        setupTimeLimitSpinner();
         setupRadioGroups();
         setupRadioButtons();
 
@@ -244,6 +249,35 @@ public class SettingFragment extends Fragment {
         });
     }
 
+    private void setupTimeLimitSpinner() {
+        timeLimitSpinner = (Spinner) view.findViewById(R.id.spinner_time_limit);
+
+        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
+                view.getContext(), R.array.time_limit_array, android.R.layout.simple_spinner_item);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        timeLimitSpinner.setAdapter(adapter);
+
+        // The labels and the minutes are kept in two arrays that share the same positions
+        final int[] minutes = getResources().getIntArray(R.array.time_limit_minutes_array);
+        long pollTimeLimit = getArguments().getLong(KEY_TIME_LIMIT);
+        for (int i = 0; i < minutes.length; i++) {
+            if (minutes[i] * MS_PER_MINUTE == pollTimeLimit) {
+                timeLimitSpinner.setSelection(i);
+                break;
+            }
+        }
+
+        timeLimitSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
+                onPollSettingsListener.onTimeLimitChange(minutes[i] * MS_PER_MINUTE);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> adapterView) { }
+        });
+    }
+
     private void setSpinnerPosition() {
         String pollPrice = getArguments().getString(KEY_PRICE);
         String yelpPollPrice = YelpPriceLevel.toYelpString(pollPrice);
@@ -282,5 +316,7 @@ public class SettingFragment extends Fragment {
         void onZipCodeChange(String zipCode);
 
         void onUseCoordinate(boolean useCoordinate);
+
+        void onTimeLimitChange(long timeLimitInMs);
     }
 }
@@ -0,0 +1,147 @@
+package com.android.summer.csula.foodvoter.polls;
+
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.models.Vote;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+/**
+ * Submit a user's vote for a single poll.
+ *
+ * Rapid changes are debounced and coalesced so only the latest choice is written, a choice that
+ * is already committed (or being committed) is never written twice, and the vote is written
+ * together with its tally delta in one multi-path update:
+ *
+ * polls/{pollId}/votes/{userId}                  => businessId
+ * pollTallies/{pollId}/{businessId}/{userId}     => true
+ * pollTallies/{pollId}/{previousBusinessId}/{userId} => null
+ *
+ * The tally of a business is the number of children under pollTallies/{pollId}/{businessId}, so
+ * concurrent voters never contend on a shared counter. The database rules reject a vote without
+ * its matching tally entry (and vice versa) and votes on a closed poll.
+ */
+public class VoteSubmitter {
+
+    private static final String TAG = VoteSubmitter.class.getSimpleName();
+    private static final long DEBOUNCE_IN_MS = 500;
+
+    private final DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+    private final Handler handler = new Handler();
+    private final String pollId;
+    private final String userId;
+    /* Null once detached, the writes still go through but nobody hears about them */
+    private Listener listener;
+
+    /* The business id that is stored on the database for this user, null if they haven't voted */
+    private String committedBusinessId;
+
+    /* The business id that is being written right now, null if no write is in flight */
+    private String inFlightBusinessId;
+
+    /* The latest choice of the user, waiting for the debounce or for the in flight write */
+    private String pendingBusinessId;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param committedBusinessId the vote the user already has on the database, if any.
+     */
+    public VoteSubmitter(String pollId, String userId, @Nullable String committedBusinessId,
+                         Listener listener) {
+        this.pollId = pollId;
+        this.userId = userId;
+        this.committedBusinessId = committedBusinessId;
+        this.listener = listener;
+    }
+
+    /**
+     * Queue the vote, it is written once the user stops changing their mind for a moment.
+     */
+    public void submit(Vote vote) {
+        pendingBusinessId = vote.getBusinessId();
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, DEBOUNCE_IN_MS);
+    }
+
+    /**
+     * Write the latest choice right away and stop calling the listener, i.e. when the screen goes
+     * away. Firebase queues the write even while offline, so a vote tapped just before leaving
+     * isn't lost.
+     */
+    public void detach() {
+        listener = null;
+        handler.removeCallbacks(flushRunnable);
+        flush();
+    }
+
+    private void flush() {
+        // Wait for the write in flight, its completion will flush the latest choice.
+        if (inFlightBusinessId != null || pendingBusinessId == null) {
+            return;
+        }
+
+        final String businessId = pendingBusinessId;
+        pendingBusinessId = null;
+
+        if (businessId.equals(committedBusinessId)) {
+            Log.d(TAG, "vote for " + businessId + " is already committed, skipping write");
+            if (listener != null) {
+                listener.onVoteCommitted(businessId, 0);
+            }
+            return;
+        }
+
+        inFlightBusinessId = businessId;
+        final String previousBusinessId = committedBusinessId;
+        final long startTime = SystemClock.elapsedRealtime();
+
+        rootRef.updateChildren(PollUpdates.vote(pollId, userId, businessId, previousBusinessId),
+                new DatabaseReference.CompletionListener() {
+                    @Override
+                    public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
+                        long latency = SystemClock.elapsedRealtime() - startTime;
+                        inFlightBusinessId = null;
+
+                        if (databaseError == null) {
+                            committedBusinessId = businessId;
+                            Log.d(TAG, "vote committed in " + latency + "ms");
+                            if (listener != null) {
+                                listener.onVoteCommitted(businessId, latency);
+                            }
+                        } else {
+                            Log.d(TAG, "vote rejected after " + latency + "ms: " + databaseError.getMessage());
+                            if (listener != null) {
+                                listener.onVoteRejected(businessId, databaseError);
+                            }
+                        }
+
+                        flush();
+                    }
+                });
+    }
+
+    public interface Listener {
+
+        /**
+         * The vote reached the server, latencyInMs is the time between the write and its
+         * acknowledgement.
+         */
+        void onVoteCommitted(String businessId, long latencyInMs);
+
+        /**
+         * The server refused the vote, most likely because the poll is closed.
+         */
+        void onVoteRejected(String businessId, DatabaseError databaseError);
+    }
+}
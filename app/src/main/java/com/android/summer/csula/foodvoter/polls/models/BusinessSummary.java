@@ -0,0 +1,105 @@
+package com.android.summer.csula.foodvoter.polls.models;
+
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.android.summer.csula.foodvoter.yelpApi.models.Category;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The part of a Business stored inside polls/{pollId}/businesses, just what a vote card shows.
+ * The full Business lives once in businesses/{businessId}, see BusinessCatalog.
+ */
+public class BusinessSummary implements Serializable {
+
+    private String id;
+    private String name;
+    private String imageUrl;
+    private double rating;
+
+    /**
+     * Category titles joined by ", ", i.e. "Pizza, Italian".
+     */
+    private String categoryTitles;
+
+
+    /**
+     * No argument constructor is for Firebase
+     */
+    public BusinessSummary() {}
+
+    public static BusinessSummary from(Business business) {
+        BusinessSummary summary = new BusinessSummary();
+        summary.id = business.getId();
+        summary.name = business.getName();
+        summary.imageUrl = business.getImageUrl();
+        summary.rating = business.getRating();
+        summary.categoryTitles = joinTitles(business.getCategories());
+        return summary;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public double getRating() {
+        return rating;
+    }
+
+    public void setRating(double rating) {
+        this.rating = rating;
+    }
+
+    public String getCategoryTitles() {
+        return categoryTitles;
+    }
+
+    public void setCategoryTitles(String categoryTitles) {
+        this.categoryTitles = categoryTitles;
+    }
+
+    private static String joinTitles(List<Category> categories) {
+        if (categories == null) {
+            return "";
+        }
+
+        StringBuilder titles = new StringBuilder();
+        for (Category category : categories) {
+            if (titles.length() > 0) {
+                titles.append(", ");
+            }
+            titles.append(category.getTitle());
+        }
+        return titles.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "BusinessSummary{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", rating=" + rating +
+                '}';
+    }
+}
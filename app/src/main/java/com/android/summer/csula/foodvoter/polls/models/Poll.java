@@ -2,16 +2,18 @@ package com.android.summer.csula.foodvoter.polls.models;
 
 
 import com.android.summer.csula.foodvoter.models.User;
-import com.android.summer.csula.foodvoter.yelpApi.models.Business;
 import com.android.summer.csula.foodvoter.yelpApi.models.Coordinate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Poll implements Serializable {
 
     private static final String DEFAULT_PRICE = "1";
+    private static final long DEFAULT_TIME_LIMIT_IN_MS = 60 * 60 * 1000;
 
     // TODO: add a date_created field so it could by sorted by date.
     private User author;
@@ -38,12 +40,39 @@ public class Poll implements Serializable {
      */
     private long activatedOn;
 
+    /**
+     * How long the poll accepts votes once it is activated.
+     */
+    private long timeLimitInMs = DEFAULT_TIME_LIMIT_IN_MS;
+
+    /**
+     * Number of millisecond since UNIX epoch (server time) when this Poll stops accepting votes.
+     * The server closes the poll once this time has passed.
+     */
+    private long closesAt;
+
+    /**
+     * The votes casted so far, user id => business id.
+     */
+    private Map<String, String> votes = new HashMap<>();
+
+    /**
+     * Final vote count per business id. Written by the server when the poll closes.
+     */
+    private Map<String, Long> tally = new HashMap<>();
+
+    /**
+     * Id of the business with the most votes. Written by the server when the poll closes.
+     */
+    private String winner;
+
     private List<User> voters = new ArrayList<>();
 
     /**
-     * Random selected bossiness for voting.
+     * Random selected bossiness for voting. Only their summary, the full business is in the
+     * businesses/{businessId} catalog.
      */
-    private List<Business> businesses = new ArrayList<>();
+    private List<BusinessSummary> businesses = new ArrayList<>();
 
     /**
      * No argument constructor is for Firebase
@@ -147,6 +176,46 @@ public class Poll implements Serializable {
         this.activatedOn = activatedOn;
     }
 
+    public long getTimeLimitInMs() {
+        return timeLimitInMs;
+    }
+
+    public void setTimeLimitInMs(long timeLimitInMs) {
+        this.timeLimitInMs = timeLimitInMs;
+    }
+
+    public long getClosesAt() {
+        return closesAt;
+    }
+
+    public void setClosesAt(long closesAt) {
+        this.closesAt = closesAt;
+    }
+
+    public Map<String, String> getVotes() {
+        return votes;
+    }
+
+    public void setVotes(Map<String, String> votes) {
+        this.votes = votes;
+    }
+
+    public Map<String, Long> getTally() {
+        return tally;
+    }
+
+    public void setTally(Map<String, Long> tally) {
+        this.tally = tally;
+    }
+
+    public String getWinner() {
+        return winner;
+    }
+
+    public void setWinner(String winner) {
+        this.winner = winner;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -163,11 +232,11 @@ public class Poll implements Serializable {
         return pollId.hashCode();
     }
 
-    public List<Business> getBusinesses() {
+    public List<BusinessSummary> getBusinesses() {
         return businesses;
     }
 
-    public void setBusinesses(List<Business> businesses) {
+    public void setBusinesses(List<BusinessSummary> businesses) {
         this.businesses = businesses;
     }
 
@@ -182,6 +251,7 @@ public class Poll implements Serializable {
                 ", price='" + price + '\'' +
                 ", openNow=" + openNow +
                 ", completed=" + completed +
+                ", closesAt=" + closesAt +
                 ", voters=" + voters +
                 '}';
 
@@ -0,0 +1,78 @@
+package com.android.summer.csula.foodvoter.polls.models;
+
+
+import java.io.Serializable;
+
+/**
+ * A poll published again and again: its settings and voters, and when to publish it. Stored in
+ * pollTemplates/{templateId}, the runPollTemplates Cloud Function searches the candidates ahead
+ * of each run and publishes a copy of the poll on time.
+ */
+public class PollTemplate implements Serializable {
+
+    /**
+     * The key in pollTemplates, set by PollTemplates.load(). Transient so neither Firebase nor
+     * the intent extras carry it, and no getter so Firebase doesn't write it in the template.
+     */
+    public transient String templateId;
+
+    private String authorId;
+
+    /**
+     * The poll to publish, without id, times or businesses.
+     */
+    private Poll poll;
+
+    private Recurrence recurrence;
+
+    /**
+     * Number of millisecond since UNIX epoch (server time) of the next run. Moved forward by the
+     * server every time it publishes the poll.
+     */
+    private long nextRunAt;
+
+
+    /**
+     * No argument constructor is for Firebase
+     */
+    public PollTemplate() {}
+
+    public PollTemplate(Poll poll, Recurrence recurrence, long now) {
+        this.authorId = poll.getAuthor().getId();
+        this.poll = poll;
+        this.recurrence = recurrence;
+        this.nextRunAt = recurrence.nextRunAfter(now);
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(String authorId) {
+        this.authorId = authorId;
+    }
+
+    public Poll getPoll() {
+        return poll;
+    }
+
+    public void setPoll(Poll poll) {
+        this.poll = poll;
+    }
+
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    public void setRecurrence(Recurrence recurrence) {
+        this.recurrence = recurrence;
+    }
+
+    public long getNextRunAt() {
+        return nextRunAt;
+    }
+
+    public void setNextRunAt(long nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+}
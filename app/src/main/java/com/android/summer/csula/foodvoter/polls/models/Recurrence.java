@@ -0,0 +1,86 @@
+package com.android.summer.csula.foodvoter.polls.models;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When a PollTemplate runs: every week on the chosen days, at the same time of day. The
+ * runPollTemplates Cloud Function computes the runs the same way, see nextRunAfter().
+ */
+public class Recurrence implements Serializable {
+
+    private static final long DAY_IN_MS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Days of the week, as java.util.Calendar numbers them (Calendar.SUNDAY = 1).
+     */
+    private List<Integer> daysOfWeek = new ArrayList<>();
+
+    /**
+     * Minutes since local midnight, i.e. 720 for noon.
+     */
+    private int minuteOfDay;
+
+    /**
+     * The author's offset from UTC when the template was saved. The server has no idea of the
+     * author's time zone, so a daylight saving change moves the run by an hour.
+     */
+    private long utcOffsetInMs;
+
+
+    /**
+     * No argument constructor is for Firebase
+     */
+    public Recurrence() {}
+
+    public Recurrence(List<Integer> daysOfWeek, int minuteOfDay) {
+        this.daysOfWeek = daysOfWeek;
+        this.minuteOfDay = minuteOfDay;
+        this.utcOffsetInMs = TimeZone.getDefault().getOffset(System.currentTimeMillis());
+    }
+
+    /**
+     * Return the first run strictly after timeInMs, or -1 if no day is chosen.
+     */
+    public long nextRunAfter(long timeInMs) {
+        long today = (timeInMs + utcOffsetInMs) / DAY_IN_MS;
+
+        for (long day = today; day <= today + 7; day++) {
+            // Day 0, January 1st 1970, was a Thursday
+            int dayOfWeek = (int) ((day + 4) % 7) + 1;
+            long run = day * DAY_IN_MS + TimeUnit.MINUTES.toMillis(minuteOfDay) - utcOffsetInMs;
+            if (daysOfWeek.contains(dayOfWeek) && run > timeInMs) {
+                return run;
+            }
+        }
+        return -1;
+    }
+
+    public List<Integer> getDaysOfWeek() {
+        return daysOfWeek;
+    }
+
+    public void setDaysOfWeek(List<Integer> daysOfWeek) {
+        this.daysOfWeek = daysOfWeek;
+    }
+
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    public void setMinuteOfDay(int minuteOfDay) {
+        this.minuteOfDay = minuteOfDay;
+    }
+
+    public long getUtcOffsetInMs() {
+        return utcOffsetInMs;
+    }
+
+    public void setUtcOffsetInMs(long utcOffsetInMs) {
+        this.utcOffsetInMs = utcOffsetInMs;
+    }
+}
@@ -9,6 +9,8 @@ import android.support.v4.app.NotificationCompat;
 import android.util.Log;
 
 import com.android.summer.csula.foodvoter.R;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 
@@ -24,10 +26,16 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
 
     private static final String TAG = MyFirebaseMessagingService.class.getSimpleName();
 
+    /* From the FCM server accepting the message to it reaching us, clock skew included */
+    private static final Timer deliveryTimer = Metrics.timer("push.delivery");
+
     @Override
     public void onMessageReceived(RemoteMessage remoteMessage) {
         super.onMessageReceived(remoteMessage);
         Log.d(TAG, "onMessageReceived => data: " + remoteMessage.getData());
+        if (remoteMessage.getSentTime() > 0) {
+            deliveryTimer.recordMs(Math.max(0, System.currentTimeMillis() - remoteMessage.getSentTime()));
+        }
         RemoteMessage.Notification notification = remoteMessage.getNotification();
 
         NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(this)
@@ -0,0 +1,124 @@
+package com.android.summer.csula.foodvoter.startup;
+
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the work that isn't needed for the first frame off the startup critical path.
+ *
+ * Tasks given to runAfterFirstDraw() are queued until the activity's first frame has been drawn,
+ * then run one by one on the main thread. Once the first frame is out, new tasks are just posted.
+ * While the activity is paused the tasks that didn't run yet wait, and run on resume.
+ */
+public class StagedInitializer {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /* Name => task that didn't run yet, a task given again under the same name replaces it */
+    private final Map<String, Task> pending = new LinkedHashMap<>();
+    private boolean firstFrameDrawn;
+    private boolean paused;
+
+    public StagedInitializer(Activity activity) {
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Posted from onPreDraw, so it runs right after this frame is drawn
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFirstFrameDrawn();
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Run the task once the first frame is on screen, the name is used for its trace section.
+     */
+    public void runAfterFirstDraw(String name, Runnable runnable) {
+        Task task = new Task(name, runnable);
+        Task replaced = pending.put(name, task);
+        if (replaced != null) {
+            handler.removeCallbacks(replaced);
+        }
+
+        if (firstFrameDrawn && !paused) {
+            handler.post(task);
+        }
+    }
+
+    /**
+     * Hold the tasks that didn't run yet, i.e. when the activity is paused before its first frame.
+     */
+    public void pause() {
+        paused = true;
+        for (Task task : pending.values()) {
+            handler.removeCallbacks(task);
+        }
+    }
+
+    /**
+     * Run the tasks held by pause().
+     */
+    public void resume() {
+        paused = false;
+        if (firstFrameDrawn) {
+            postPending();
+        }
+    }
+
+    private void onFirstFrameDrawn() {
+        StartupTracer.markFirstDraw();
+        firstFrameDrawn = true;
+        if (!paused) {
+            postPending();
+        }
+    }
+
+    /**
+     * Post each task separately so input events can be handled in between.
+     */
+    private void postPending() {
+        for (Task task : pending.values()) {
+            handler.removeCallbacks(task);
+            handler.post(task);
+        }
+    }
+
+    private class Task implements Runnable {
+
+        private final String name;
+        private final Runnable runnable;
+
+        Task(String name, Runnable runnable) {
+            this.name = name;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            if (pending.get(name) != this) {
+                return;
+            }
+            pending.remove(name);
+
+            StartupTracer.beginSection(name);
+            try {
+                runnable.run();
+            } finally {
+                StartupTracer.endSection();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.android.summer.csula.foodvoter.startup;
+
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Startup markers. Sections show up in systrace (API 18+), marks are logged as the time in
+ * milliseconds since the application was created, i.e. "startup => first_draw: 412ms".
+ */
+public class StartupTracer {
+
+    private static final String TAG = StartupTracer.class.getSimpleName();
+
+    public static final String APPLICATION_CREATED = "application_created";
+    public static final String FIRST_DRAW = "first_draw";
+    public static final String FIRST_POLLS = "first_polls";
+
+    private static long originMs = SystemClock.uptimeMillis();
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+    /* Uptime of the latest first frame of any activity using a StagedInitializer */
+    private static volatile long lastFirstDrawUptimeMs = -1;
+
+    private StartupTracer() {}
+
+    /**
+     * Restart the clock and forget the previous marks. Called first thing in
+     * FoodVoterApplication.onCreate().
+     */
+    public static synchronized void reset() {
+        originMs = SystemClock.uptimeMillis();
+        marks.clear();
+    }
+
+    public static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    public static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Record the first time the named point was reached, later calls are ignored.
+     */
+    public static synchronized void mark(String name) {
+        if (marks.containsKey(name)) {
+            return;
+        }
+        long elapsedMs = SystemClock.uptimeMillis() - originMs;
+        marks.put(name, elapsedMs);
+        Log.d(TAG, "startup => " + name + ": " + elapsedMs + "ms");
+    }
+
+    /**
+     * Mark FIRST_DRAW (only the first time) and remember when this frame was drawn, so each launch
+     * can be timed without resetting the app's own marks.
+     */
+    public static void markFirstDraw() {
+        lastFirstDrawUptimeMs = SystemClock.uptimeMillis();
+        mark(FIRST_DRAW);
+    }
+
+    /**
+     * Return the uptime of the latest first frame, or -1 if no activity drew one yet.
+     */
+    public static long getLastFirstDrawUptimeMs() {
+        return lastFirstDrawUptimeMs;
+    }
+
+    /**
+     * Return the milliseconds between the start and the mark, or -1 if it wasn't reached yet.
+     */
+    public static synchronized long getMark(String name) {
+        Long elapsedMs = marks.get(name);
+        return elapsedMs == null ? -1 : elapsedMs;
+    }
+}
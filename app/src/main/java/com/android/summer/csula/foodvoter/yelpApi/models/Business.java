@@ -76,6 +76,16 @@ public class Business implements Serializable {
      */
     private List<String> transactions;
 
+    /**
+     * Up to 3 photo URLs. Only returned by the business details endpoint.
+     */
+    private List<String> photos;
+
+    /**
+     * Regular opening hours. Only returned by the business details endpoint.
+     */
+    private List<Hours> hours;
+
 
     public Business() {}
 
@@ -185,6 +195,23 @@ public class Business implements Serializable {
     }
 
 
+    public List<String> getPhotos() {
+        return photos;
+    }
+
+    public void setPhotos(List<String> photos) {
+        this.photos = photos;
+    }
+
+    public List<Hours> getHours() {
+        return hours;
+    }
+
+    public void setHours(List<Hours> hours) {
+        this.hours = hours;
+    }
+
+
     public static final class Transactions {
 
         public static final String PICK_UP = "pickup";
@@ -0,0 +1,67 @@
+package com.android.summer.csula.foodvoter.yelpApi.models;
+
+
+import java.io.Serializable;
+
+/**
+ * One opening interval of a business, from the business details endpoint.
+ */
+public class Hours implements Serializable {
+
+    /**
+     * From 0 to 6, representing day of the week from Monday to Sunday.
+     */
+    private int day;
+
+    /**
+     * Start and end of the interval in 24 hour clock notation, i.e. "1000" means 10 AM.
+     */
+    private String start;
+    private String end;
+
+    /**
+     * Whether the business opens overnight, the end is then on the next day.
+     */
+    private boolean overnight;
+
+
+    public Hours() {}
+
+
+    public int getDay() {
+        return day;
+    }
+
+    public void setDay(int day) {
+        this.day = day;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    public void setStart(String start) {
+        this.start = start;
+    }
+
+    public String getEnd() {
+        return end;
+    }
+
+    public void setEnd(String end) {
+        this.end = end;
+    }
+
+    public boolean isOvernight() {
+        return overnight;
+    }
+
+    public void setOvernight(boolean overnight) {
+        this.overnight = overnight;
+    }
+
+    @Override
+    public String toString() {
+        return "{day: " + day + ", start: " + start + ", end: " + end + ", overnight: " + overnight + "}";
+    }
+}
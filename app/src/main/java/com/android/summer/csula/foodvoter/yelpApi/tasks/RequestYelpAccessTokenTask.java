@@ -2,6 +2,7 @@ package com.android.summer.csula.foodvoter.yelpApi.tasks;
 
 
 import android.net.Uri;
+import android.os.SystemClock;
 
 import com.android.summer.csula.foodvoter.yelpApi.models.YelpAccessToken;
 import com.android.summer.csula.foodvoter.yelpApi.utils.NetworkUtils;
@@ -9,9 +10,10 @@ import com.android.summer.csula.foodvoter.yelpApi.utils.NetworkUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is used to obtain a Yelp Access Token which is required to authenticate Yelp Api call
@@ -42,20 +44,105 @@ class RequestYelpAccessTokenTask {
     private static final String EXPIRES_IN = "expires_in";
 
 
+    /* Refresh the token a day before Yelp says it expires */
+    private static final long EXPIRY_MARGIN_IN_MS = TimeUnit.DAYS.toMillis(1);
+
+    /* Guarded by the class lock, which is never held during the network call */
+    private static YelpAccessToken cachedToken;
+    private static long cachedTokenExpiresAt;
+    private static TokenFetch inFlight;
+
+    /**
+     * Return a YelpAccessToken object that could be use to authenticate Yelp API calls. The token
+     * is cached in memory until it expires. Callers asking at the same time wait for one fetch,
+     * which goes through YelpRequest like any other call: rate limited and retried.
+     */
+    static YelpAccessToken execute() throws YelpException {
+        TokenFetch tokenFetch;
+        boolean leader = false;
+
+        synchronized (RequestYelpAccessTokenTask.class) {
+            if (cachedToken != null && SystemClock.elapsedRealtime() < cachedTokenExpiresAt) {
+                return cachedToken;
+            }
+            if (inFlight == null) {
+                inFlight = new TokenFetch();
+                leader = true;
+            }
+            tokenFetch = inFlight;
+        }
+
+        if (leader) {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                tokenFetch.token = fetch();
+            } catch (YelpException e) {
+                tokenFetch.failure = e;
+            } catch (RuntimeException e) {
+                tokenFetch.failure = new YelpException(YelpException.Reason.BAD_RESPONSE, e);
+            } finally {
+                synchronized (RequestYelpAccessTokenTask.class) {
+                    if (tokenFetch.token != null) {
+                        cachedToken = tokenFetch.token;
+                        long expiresInMs = TimeUnit.SECONDS.toMillis(cachedToken.getExpiresIn());
+                        cachedTokenExpiresAt = start + expiresInMs - Math.min(EXPIRY_MARGIN_IN_MS, expiresInMs / 2);
+                    }
+                    inFlight = null;
+                }
+                tokenFetch.latch.countDown();
+            }
+        }
+        return tokenFetch.await();
+    }
+
     /**
-     * Create a YelpAccessToken object that could be use to authenticate Yelp API calls
-     * TODO: Store this information inside SharePreference, you can cache the results.
+     * Forget the token Yelp rejected, unless another caller already replaced it.
      */
-    static YelpAccessToken execute() throws IOException, JSONException {
-        URL tokenUrl = buildTokenUrl();
-        String jsonResponse = NetworkUtils.getJsonResponseFromHttpUrl(tokenUrl, NetworkUtils.POST_REQUEST, null);
-        JSONObject json = new JSONObject(jsonResponse);
+    static synchronized void invalidate(YelpAccessToken token) {
+        if (cachedToken == token) {
+            cachedToken = null;
+        }
+    }
 
-        String accessToken = json.getString(ACCESS_TOKEN);
-        String tokenType = json.getString(TOKEN_TYPE);
-        int expiresIn = json.getInt(EXPIRES_IN);
+    private static YelpAccessToken fetch() throws YelpException {
+        String jsonResponse;
+        try {
+            jsonResponse = YelpRequest.send(buildTokenUrl(), NetworkUtils.POST_REQUEST, null);
+        } catch (MalformedURLException e) {
+            throw new YelpException(YelpException.Reason.NETWORK, e);
+        }
+
+        try {
+            JSONObject json = new JSONObject(jsonResponse);
+            String accessToken = json.getString(ACCESS_TOKEN);
+            String tokenType = json.getString(TOKEN_TYPE);
+            int expiresIn = json.getInt(EXPIRES_IN);
+
+            return new YelpAccessToken(accessToken, tokenType, expiresIn);
+        } catch (JSONException e) {
+            throw new YelpException(YelpException.Reason.BAD_RESPONSE, e);
+        }
+    }
 
-        return new YelpAccessToken(accessToken, tokenType, expiresIn);
+    private static class TokenFetch {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        YelpAccessToken token;
+        YelpException failure;
+
+        YelpAccessToken await() throws YelpException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new YelpException(YelpException.Reason.NETWORK, e);
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return token;
+        }
     }
 
     /**
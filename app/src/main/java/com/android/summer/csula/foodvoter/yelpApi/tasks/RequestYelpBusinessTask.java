@@ -0,0 +1,48 @@
+package com.android.summer.csula.foodvoter.yelpApi.tasks;
+
+
+import android.net.Uri;
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpJsonUtil;
+
+import org.json.JSONException;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Helper class use to retrieve the details of one business (photos, opening hours) by its id.
+ * Refer to: https://www.yelp.com/developers/documentation/v3/business
+ */
+public class RequestYelpBusinessTask {
+
+    private static final String YELP_BUSINESS_BASE_URL = "https://api.yelp.com/v3/businesses";
+
+    /**
+     * Return the JSON response of the business details endpoint, see YelpJsonUtil.parseBusinessDetails.
+     */
+    public static String executeJson(String businessId) throws YelpException {
+        return YelpRequest.get(buildBusinessUrl(businessId));
+    }
+
+    public static Business execute(String businessId) throws YelpException {
+        try {
+            return YelpJsonUtil.parseBusinessDetails(executeJson(businessId));
+        } catch (JSONException e) {
+            throw new YelpException(YelpException.Reason.BAD_RESPONSE, e);
+        }
+    }
+
+    private static URL buildBusinessUrl(String businessId) throws YelpException {
+        Uri uri = Uri.parse(YELP_BUSINESS_BASE_URL).buildUpon()
+                .appendPath(businessId)
+                .build();
+
+        try {
+            return new URL(uri.toString());
+        } catch (MalformedURLException e) {
+            throw new YelpException(YelpException.Reason.HTTP_ERROR, e);
+        }
+    }
+}
@@ -2,43 +2,145 @@ package com.android.summer.csula.foodvoter.yelpApi.tasks;
 
 
 import android.net.Uri;
-import android.support.annotation.Nullable;
 
+import com.android.summer.csula.foodvoter.metrics.Counter;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
 import com.android.summer.csula.foodvoter.yelpApi.models.Yelp;
-import com.android.summer.csula.foodvoter.yelpApi.models.YelpAccessToken;
-import com.android.summer.csula.foodvoter.yelpApi.utils.NetworkUtils;
 import com.android.summer.csula.foodvoter.yelpApi.utils.YelpJsonUtil;
 
-import org.json.JSONException;
-
-import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Helper class use to retrieve a Yelp object (contains business info)
  */
 public class RequestYelpSearchTask {
 
+    /* Normalized search URL => the search currently running for it */
+    private static final Map<String, InFlightSearch> inFlight = new HashMap<>();
+    private static final Counter networkSearches = Metrics.counter("yelp.search.network");
+    private static final Counter coalescedSearches = Metrics.counter("yelp.search.coalesced");
+    /* The whole search, rate limiter wait and retries included, and the JSON parsing alone */
+    private static final Timer searchTimer = Metrics.timer("yelp.search");
+    private static final Timer parseTimer = Metrics.timer("yelp.search.parse");
+
     /**
      * Make a call to Yelp Fashion API. Please use the SearchBuilder class to create the URL because
      * the HTTP requires a special Yelp Authorization that the SearchBuilder class handles.
+     * See YelpRequest for the rate limiting and retries.
+     *
+     * Identical searches running at the same time share one network call: the first caller does
+     * the search, the others wait for it and get the same Yelp object (or the same failure).
      */
-    @Nullable
-    public static Yelp execute(URL searchUrl) {
-        Yelp yelp = null;
+    public static Yelp execute(URL searchUrl) throws YelpException {
+        String key = normalize(searchUrl);
+        InFlightSearch search;
+        boolean leader = false;
+
+        synchronized (inFlight) {
+            search = inFlight.get(key);
+            if (search == null) {
+                search = new InFlightSearch();
+                inFlight.put(key, search);
+                leader = true;
+            }
+        }
 
+        if (!leader) {
+            coalescedSearches.increment();
+            return search.await();
+        }
+
+        networkSearches.increment();
+        long start = Timer.start();
         try {
-            YelpAccessToken token = RequestYelpAccessTokenTask.execute();
-            String jsonResponse = NetworkUtils.getJsonResponseFromHttpUrl(
-                    searchUrl, NetworkUtils.GET_REQUEST, token.authorizationHttpHeader());
-            yelp = YelpJsonUtil.parse(jsonResponse);
-        } catch (IOException | JSONException e) {
-            e.printStackTrace();
+            search.result = fetch(searchUrl);
+        } catch (YelpException e) {
+            search.failure = e;
+        } catch (RuntimeException e) {
+            // Whoever waits for this search has to get the failure too, not a null result
+            search.failure = new YelpException(YelpException.Reason.BAD_RESPONSE, e);
+        } finally {
+            searchTimer.stop(start);
+            synchronized (inFlight) {
+                inFlight.remove(key);
+            }
+            search.latch.countDown();
+        }
+        return search.await();
+    }
+
+    /**
+     * Return how many searches went to the network.
+     */
+    public static long getNetworkSearchCount() {
+        return networkSearches.get();
+    }
+
+    /**
+     * Return how many searches were answered by a search already in flight.
+     */
+    public static long getCoalescedSearchCount() {
+        return coalescedSearches.get();
+    }
+
+    /**
+     * The URL with a lower case host and its query parameters sorted, so the same search built
+     * in a different order gets the same key.
+     */
+    static String normalize(URL url) {
+        List<String> parameters = new ArrayList<>();
+        if (url.getQuery() != null) {
+            Collections.addAll(parameters, url.getQuery().split("&"));
         }
+        Collections.sort(parameters);
 
+        StringBuilder key = new StringBuilder(url.getHost().toLowerCase(Locale.US)).append(url.getPath());
+        for (int i = 0; i < parameters.size(); i++) {
+            key.append(i == 0 ? '?' : '&').append(parameters.get(i));
+        }
+        return key.toString();
+    }
+
+    private static Yelp fetch(URL searchUrl) throws YelpException {
+        String json = YelpRequest.get(searchUrl);
+        long start = Timer.start();
+        Yelp yelp = YelpJsonUtil.parse(json);
+        parseTimer.stop(start);
+        if (yelp == null) {
+            throw new YelpException(YelpException.Reason.BAD_RESPONSE, "unable to parse the search of " + searchUrl);
+        }
         return yelp;
     }
 
+    private static class InFlightSearch {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Yelp result;
+        YelpException failure;
+
+        Yelp await() throws YelpException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new YelpException(YelpException.Reason.NETWORK, e);
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+
     /**
      * This builder class is use to assist you in building a Yelp search URL object.
      */
@@ -0,0 +1,47 @@
+package com.android.summer.csula.foodvoter.yelpApi.tasks;
+
+
+/**
+ * Why a Yelp call failed. Thrown instead of returning null so callers can tell a spent quota
+ * (try again tomorrow) from a network hiccup (try again now).
+ */
+public class YelpException extends Exception {
+
+    public enum Reason {
+        /* Our own daily budget is spent, no request was sent */
+        QUOTA_EXCEEDED,
+        /* Yelp kept answering 429 after every retry */
+        RATE_LIMITED,
+        /* Yelp rejected the access token (401) */
+        UNAUTHORIZED,
+        /* Yelp answered with another error status */
+        HTTP_ERROR,
+        /* No connection, timeout... */
+        NETWORK,
+        /* The response could not be parsed */
+        BAD_RESPONSE
+    }
+
+    private final Reason reason;
+
+    public YelpException(Reason reason, String message) {
+        super(reason + ": " + message);
+        this.reason = reason;
+    }
+
+    public YelpException(Reason reason, Throwable cause) {
+        super(reason + ": " + cause.getMessage(), cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Return true if the same call could succeed if tried again later today.
+     */
+    public boolean isRetryable() {
+        return reason == Reason.RATE_LIMITED || reason == Reason.NETWORK;
+    }
+}
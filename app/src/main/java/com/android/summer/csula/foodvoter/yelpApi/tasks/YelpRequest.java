@@ -0,0 +1,139 @@
+package com.android.summer.csula.foodvoter.yelpApi.tasks;
+
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.yelpApi.models.YelpAccessToken;
+import com.android.summer.csula.foodvoter.yelpApi.utils.NetworkUtils;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpRateLimiter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An authenticated GET to the Yelp API, shared by the search and business details tasks.
+ *
+ * Every call to Yelp, the access token request included, waits for its turn in the
+ * YelpRateLimiter. Throttling (429, 503) and network errors are retried with an exponential
+ * backoff, honoring Retry-After when Yelp sends one.
+ */
+class YelpRequest {
+
+    private static final String TAG = YelpRequest.class.getSimpleName();
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30 * 1000;
+    private static final int HTTP_UNAUTHORIZED = 401;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    private static final Random random = new Random();
+
+    private YelpRequest() {}
+
+    /**
+     * Return the JSON response of the URL.
+     */
+    static String get(URL url) throws YelpException {
+        YelpAccessToken token = RequestYelpAccessTokenTask.execute();
+        try {
+            return send(url, NetworkUtils.GET_REQUEST, token.authorizationHttpHeader());
+        } catch (YelpException e) {
+            if (e.getReason() != YelpException.Reason.UNAUTHORIZED) {
+                throw e;
+            }
+            // Revoked or expired early: try once more with a new token
+            RequestYelpAccessTokenTask.invalidate(token);
+            token = RequestYelpAccessTokenTask.execute();
+            return send(url, NetworkUtils.GET_REQUEST, token.authorizationHttpHeader());
+        }
+    }
+
+    /**
+     * Send the request once the rate limiter lets it through, retrying as described above.
+     */
+    static String send(URL url, String method, @Nullable String authorization) throws YelpException {
+        YelpRateLimiter rateLimiter = YelpRateLimiter.get();
+        YelpException failure = null;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try {
+                if (!rateLimiter.acquire()) {
+                    throw new YelpException(YelpException.Reason.QUOTA_EXCEEDED,
+                            "daily budget spent, " + rateLimiter.getUsedToday() + " calls");
+                }
+
+                return NetworkUtils.getJsonResponseFromHttpUrl(url, method, authorization);
+
+            } catch (NetworkUtils.HttpException e) {
+                if (e.getCode() == HTTP_UNAUTHORIZED) {
+                    throw new YelpException(YelpException.Reason.UNAUTHORIZED, e);
+                }
+                if (e.getCode() != HTTP_TOO_MANY_REQUESTS && e.getCode() != HTTP_SERVICE_UNAVAILABLE) {
+                    throw new YelpException(YelpException.Reason.HTTP_ERROR, e);
+                }
+                failure = new YelpException(YelpException.Reason.RATE_LIMITED, e);
+                long delayMs = e.getRetryAfterSeconds() >= 0
+                        ? TimeUnit.SECONDS.toMillis(e.getRetryAfterSeconds()) + jitter(BASE_BACKOFF_MS)
+                        : backoff(attempt);
+                // Every caller has to wait, not just this one
+                rateLimiter.blockFor(delayMs);
+
+            } catch (InterruptedIOException e) {
+                if (!(e instanceof SocketTimeoutException)) {
+                    // Cancelled, not a network error: don't retry
+                    Thread.currentThread().interrupt();
+                    throw new YelpException(YelpException.Reason.NETWORK, e);
+                }
+                failure = networkFailure(e, attempt);
+
+            } catch (IOException e) {
+                failure = networkFailure(e, attempt);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new YelpException(YelpException.Reason.NETWORK, e);
+            }
+            Log.d(TAG, "attempt " + (attempt + 1) + " failed: " + failure.getMessage());
+        }
+
+        throw failure;
+    }
+
+    /**
+     * Wait before the next attempt, if there is one.
+     */
+    private static YelpException networkFailure(IOException e, int attempt) throws YelpException {
+        YelpException failure = new YelpException(YelpException.Reason.NETWORK, e);
+        if (attempt + 1 < MAX_ATTEMPTS) {
+            sleep(backoff(attempt), failure);
+        }
+        return failure;
+    }
+
+    /**
+     * Full jitter: a random delay up to BASE_BACKOFF_MS * 2^attempt, so retrying devices spread out.
+     */
+    private static long backoff(int attempt) {
+        return jitter(Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt));
+    }
+
+    private static long jitter(long maxMs) {
+        return (long) (random.nextDouble() * maxMs);
+    }
+
+    private static void sleep(long delayMs, YelpException failure) throws YelpException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+}
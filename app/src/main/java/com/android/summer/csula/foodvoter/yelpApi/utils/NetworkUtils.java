@@ -3,45 +3,117 @@ package com.android.summer.csula.foodvoter.yelpApi.utils;
 
 import android.support.annotation.Nullable;
 
+import com.android.summer.csula.foodvoter.metrics.Counter;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
+import com.android.summer.csula.foodvoter.network.HttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Scanner;
 
 public class NetworkUtils {
 
     public static final String POST_REQUEST = "POST";
     public static final String GET_REQUEST = "GET";
 
+    /* The timer stops once the headers are in, the body is counted after it was read */
+    private static final Timer requestTimer = Metrics.timer("http.request");
+    private static final Counter bytesDown = Metrics.counter("http.bytes_down");
+    private static final Counter errors = Metrics.counter("http.errors");
+
     public static String getJsonResponseFromHttpUrl(URL url,
                                                     String requestMethod,
                                                     @Nullable String authorization) throws IOException {
 
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .header("Content-Type", "application/json");
 
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-        urlConnection.setRequestMethod(requestMethod);
-        urlConnection.setRequestProperty("Content-Type", "application/json");
+        if (POST_REQUEST.equals(requestMethod)) {
+            // The parameters are in the query string, OkHttp still wants a body for a POST
+            builder.post(RequestBody.create(null, new byte[0]));
+        }
 
         if (authorization != null) {
-            urlConnection.setRequestProperty("authorization", authorization);
+            builder.header("authorization", authorization);
         }
 
-        try {
-            InputStream in = urlConnection.getInputStream();
+        Response response = execute(builder.build());
+        String body = response.body().string();
+        bytesDown.add(body.length());
+        return body.isEmpty() ? null : body;
+    }
 
-            Scanner scanner = new Scanner(in);
-            scanner.useDelimiter("\\A");
+    /**
+     * Download the body of a GET request as raw bytes, i.e. an image.
+     */
+    public static byte[] getBytesFromHttpUrl(URL url) throws IOException {
+        Request request = new Request.Builder().url(url).build();
+        byte[] body = execute(request).body().bytes();
+        bytesDown.add(body.length);
+        return body;
+    }
 
-            boolean hasInput = scanner.hasNext();
-            if (hasInput) {
-                return scanner.next();
-            } else {
-                return null;
-            }
+    private static Response execute(Request request) throws IOException {
+        long start = Timer.start();
+        Response response;
+        try {
+            response = HttpClient.execute(request);
+        } catch (IOException e) {
+            errors.increment();
+            throw e;
         } finally {
-            urlConnection.disconnect();
+            requestTimer.stop(start);
+        }
+
+        if (!response.isSuccessful()) {
+            errors.increment();
+            throw new HttpException(response.code(), parseRetryAfter(response.header("Retry-After")),
+                    "HTTP " + response.code() + " for " + request.httpUrl());
+        }
+        return response;
+    }
+
+    /**
+     * Retry-After in seconds, the HTTP date form isn't used by the APIs we call. -1 if absent.
+     */
+    static long parseRetryAfter(@Nullable String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 
+    /**
+     * A response that wasn't 2xx, with its status code and Retry-After header.
+     */
+    public static class HttpException extends IOException {
+
+        private final int code;
+        private final long retryAfterSeconds;
+
+        HttpException(int code, long retryAfterSeconds, String message) {
+            super(message);
+            this.code = code;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * Return how long the server asked us to wait, -1 if it didn't say.
+         */
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
 }
@@ -1,11 +1,10 @@
 package com.android.summer.csula.foodvoter.yelpApi.utils;
 
 
-import android.util.Log;
-
 import com.android.summer.csula.foodvoter.yelpApi.models.Business;
 import com.android.summer.csula.foodvoter.yelpApi.models.Category;
 import com.android.summer.csula.foodvoter.yelpApi.models.Coordinate;
+import com.android.summer.csula.foodvoter.yelpApi.models.Hours;
 import com.android.summer.csula.foodvoter.yelpApi.models.Location;
 import com.android.summer.csula.foodvoter.yelpApi.models.Yelp;
 
@@ -39,6 +38,15 @@ public class YelpJsonUtil {
     private static final String CATEGORIES_ARRAY = "categories";
     private static final String LOCATION = "location";
     private static final String COORDINATES = "coordinates";
+    private static final String PHOTOS_ARRAY = "photos";
+    private static final String HOURS_ARRAY = "hours";
+
+    /* Hours JSON fields */
+    private static final String OPEN_ARRAY = "open";
+    private static final String DAY = "day";
+    private static final String START = "start";
+    private static final String END = "end";
+    private static final String IS_OVERNIGHT = "is_overnight";
 
     /* Categories JSON fields */
     private static final String ALIAS = "alias";
@@ -75,6 +83,27 @@ public class YelpJsonUtil {
         }
     }
 
+    /**
+     * Convert the JSON of the business details endpoint, a single business with its photos and
+     * opening hours.
+     */
+    public static Business parseBusinessDetails(String businessJsonResponse) throws JSONException {
+        JSONObject businessJson = new JSONObject(businessJsonResponse);
+        Business business = toBusiness(businessJson);
+
+        JSONArray photosJsonArray = businessJson.optJSONArray(PHOTOS_ARRAY);
+        if (photosJsonArray != null) {
+            business.setPhotos(toStringList(photosJsonArray));
+        }
+
+        JSONArray hoursJsonArray = businessJson.optJSONArray(HOURS_ARRAY);
+        if (hoursJsonArray != null && hoursJsonArray.length() > 0) {
+            business.setHours(toHoursList(hoursJsonArray.getJSONObject(0).getJSONArray(OPEN_ARRAY)));
+        }
+
+        return business;
+    }
+
     private static List<Business> toBusinesses(JSONArray yelpBusinessJsonArray) {
         List<Business> businesses = new ArrayList<>();
 
@@ -84,12 +113,8 @@ public class YelpJsonUtil {
                 Business business = toBusiness(yelpBusinessJsonArray.getJSONObject(i));
                 businesses.add(business);
             } catch (JSONException e) {
+                // Skip the business, the others are still usable
                 e.printStackTrace();
-                try {
-                    Log.d("xxx", yelpBusinessJsonArray.getJSONObject(i).getString(ID));
-                } catch (JSONException e1) {
-                    e1.printStackTrace();
-                }
             }
         }
 
@@ -99,11 +124,12 @@ public class YelpJsonUtil {
     private static Business toBusiness(JSONObject yelpBusinessJson) throws JSONException {
 
         String displayPhone = yelpBusinessJson.getString(DISPLAY_PHONE);
-        double distance = yelpBusinessJson.getDouble(DISTANCE);
+        // Only search results have a distance, and not every business has a price
+        double distance = yelpBusinessJson.optDouble(DISTANCE, 0);
         String id = yelpBusinessJson.getString(ID);
         String imageUrl = yelpBusinessJson.getString(IMAGE_URL);
         String name = yelpBusinessJson.getString(NAME);
-        String price = yelpBusinessJson.getString(PRICE);
+        String price = yelpBusinessJson.has(PRICE) ? yelpBusinessJson.getString(PRICE) : null;
         double rating = yelpBusinessJson.getDouble(RATING);
         int reviewCount = yelpBusinessJson.getInt(REVIEW_COUNT);
         String url = yelpBusinessJson.getString(URL);
@@ -150,6 +176,23 @@ public class YelpJsonUtil {
         return coordinate;
     }
 
+    private static List<Hours> toHoursList(JSONArray openJsonArray) throws JSONException {
+        List<Hours> hoursList = new ArrayList<>();
+
+        for (int i = 0; i < openJsonArray.length(); i++) {
+            JSONObject openJson = openJsonArray.getJSONObject(i);
+
+            Hours hours = new Hours();
+            hours.setDay(openJson.getInt(DAY));
+            hours.setStart(openJson.getString(START));
+            hours.setEnd(openJson.getString(END));
+            hours.setOvernight(openJson.optBoolean(IS_OVERNIGHT));
+            hoursList.add(hours);
+        }
+
+        return hoursList;
+    }
+
     private static List<Category> toCategoryList(JSONArray categoriesJsonArray) {
         List<Category> categories = new ArrayList<>();
 
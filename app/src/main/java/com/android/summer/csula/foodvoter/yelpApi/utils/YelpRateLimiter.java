@@ -0,0 +1,172 @@
+package com.android.summer.csula.foodvoter.yelpApi.utils;
+
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.summer.csula.foodvoter.metrics.Counter;
+import com.android.summer.csula.foodvoter.metrics.Gauge;
+import com.android.summer.csula.foodvoter.metrics.Metrics;
+import com.android.summer.csula.foodvoter.metrics.Timer;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Paces the Yelp calls of the whole app.
+ *
+ * A token bucket smooths bursts (i.e. everyone creating a poll at noon) to a steady rate, and a
+ * daily budget, persisted so it survives the process, caps what this device sends. When Yelp
+ * answers 429 every caller waits until its Retry-After has passed.
+ */
+public class YelpRateLimiter {
+
+    private static final String TAG = YelpRateLimiter.class.getSimpleName();
+
+    private static final String PREFERENCES = "yelp_quota";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_USED = "used";
+
+    /*
+     * A per-device safety cap, so one device stuck retrying can't spend the key's quota alone.
+     * Yelp allows 5000 calls a day for the key shared by every install, this counter only sees
+     * the calls of this device, so it can't keep the installs together under Yelp's limit.
+     */
+    private static final int DAILY_BUDGET = 4500;
+    private static final int BUCKET_CAPACITY = 5;
+    private static final double TOKENS_PER_SECOND = 2;
+
+    /* Time callers spent waiting for a token or for Retry-After, and how often Yelp said 429 */
+    private static final Timer waitTimer = Metrics.timer("yelp.limiter.wait");
+    private static final Counter throttled = Metrics.counter("yelp.limiter.throttled");
+
+    private static YelpRateLimiter instance;
+
+    private final SharedPreferences preferences;
+
+    private double tokens = BUCKET_CAPACITY;
+    private long lastRefillMs = SystemClock.elapsedRealtime();
+    private long blockedUntilMs;
+
+    private String day;
+    private int used;
+
+    private YelpRateLimiter(SharedPreferences preferences) {
+        this.preferences = preferences;
+        if (preferences != null) {
+            day = preferences.getString(KEY_DAY, null);
+            used = preferences.getInt(KEY_USED, 0);
+        }
+
+        Metrics.gauge("yelp.limiter.used_today", new Gauge() {
+            @Override
+            public long get() {
+                return getUsedToday();
+            }
+        });
+    }
+
+    /**
+     * Load the persisted budget. Called once from FoodVoterApplication.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new YelpRateLimiter(context.getApplicationContext()
+                    .getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE));
+        }
+    }
+
+    /**
+     * Return the limiter. Without init() the budget only lives in memory.
+     */
+    public static synchronized YelpRateLimiter get() {
+        if (instance == null) {
+            instance = new YelpRateLimiter(null);
+        }
+        return instance;
+    }
+
+    /**
+     * Block until a call may be sent, and count it against today's budget.
+     *
+     * @return false if today's budget is spent, the call must not be sent.
+     */
+    public boolean acquire() throws InterruptedException {
+        long start = Timer.start();
+        try {
+            return waitForToken();
+        } finally {
+            waitTimer.stop(start);
+        }
+    }
+
+    private boolean waitForToken() throws InterruptedException {
+        while (true) {
+            long waitMs;
+            synchronized (this) {
+                if (getUsedToday() >= DAILY_BUDGET) {
+                    return false;
+                }
+
+                long now = SystemClock.elapsedRealtime();
+                refill(now);
+                if (now >= blockedUntilMs && tokens >= 1) {
+                    tokens--;
+                    recordCall();
+                    return true;
+                }
+
+                long tokenWaitMs = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * 1000 / TOKENS_PER_SECOND);
+                waitMs = Math.max(tokenWaitMs, blockedUntilMs - now);
+            }
+            Thread.sleep(waitMs);
+        }
+    }
+
+    /**
+     * Yelp throttled us: nobody sends anything for the next delayMs.
+     */
+    public synchronized void blockFor(long delayMs) {
+        blockedUntilMs = Math.max(blockedUntilMs, SystemClock.elapsedRealtime() + delayMs);
+        tokens = 0;
+        throttled.increment();
+        Log.d(TAG, "throttled by Yelp, waiting " + delayMs + "ms");
+    }
+
+    public synchronized int getUsedToday() {
+        if (!today().equals(day)) {
+            day = today();
+            used = 0;
+        }
+        return used;
+    }
+
+    public int getRemainingToday() {
+        return DAILY_BUDGET - getUsedToday();
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(BUCKET_CAPACITY, tokens + (now - lastRefillMs) * TOKENS_PER_SECOND / 1000);
+        lastRefillMs = now;
+    }
+
+    private void recordCall() {
+        used++;
+        if (preferences != null) {
+            preferences.edit().putString(KEY_DAY, day).putInt(KEY_USED, used).apply();
+        }
+    }
+
+    /**
+     * Yelp resets the daily limit at midnight UTC.
+     */
+    private static String today() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date());
+    }
+}
@@ -0,0 +1,47 @@
+package com.android.summer.csula.foodvoter.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bucket boundaries and percentile precision of the log-linear Histogram.
+ */
+public class HistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueOnce() throws Exception {
+        for (long value = 0; value < 100000; value++) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(Histogram.lowestValueOf(index) <= value);
+            assertTrue(Histogram.highestValueOf(index) >= value);
+        }
+        assertEquals(Histogram.bucketIndex(Histogram.MAX_VALUE), Histogram.bucketIndex(Histogram.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void percentiles_areWithinOneSixteenth() throws Exception {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000, histogram.getPercentile(50), 5000 / 16);
+        assertEquals(9900, histogram.getPercentile(99), 9900 / 16);
+        assertEquals(10000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void record_clampsOutOfRangeValues() throws Exception {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Histogram.MAX_VALUE, histogram.getMax());
+    }
+}
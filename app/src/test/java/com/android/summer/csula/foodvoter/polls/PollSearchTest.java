@@ -0,0 +1,57 @@
+package com.android.summer.csula.foodvoter.polls;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * The tokenizer has to match tokenize() in functions/index.js, or queries miss indexed words.
+ */
+public class PollSearchTest {
+
+    @Test
+    public void tokenize_lowerCasesAndSplitsOnPunctuation() throws Exception {
+        assertEquals(Arrays.asList("pizza", "friday", "lunch"), PollSearch.tokenize("Pizza-Friday, LUNCH!"));
+        assertEquals(Arrays.asList("café", "crème"), PollSearch.tokenize("Café crème"));
+    }
+
+    @Test
+    public void tokenize_dropsShortWordsAndDuplicates() throws Exception {
+        assertEquals(Arrays.asList("we", "eat", "tacos"), PollSearch.tokenize("a we eat a tacos, tacos"));
+        assertTrue(PollSearch.tokenize(null).isEmpty());
+        assertTrue(PollSearch.tokenize("  ,. a ").isEmpty());
+    }
+
+    @Test
+    public void tokenize_truncatesLongWordsAndLimitsTheQuery() throws Exception {
+        String longWord = "abcdefghijklmnopqrstuvwxyz0123456789";
+        assertEquals(Arrays.asList(longWord.substring(0, 30)), PollSearch.tokenize(longWord));
+        assertEquals(5, PollSearch.tokenize("one two three four five six seven").size());
+    }
+
+    @Test
+    public void intersect_keepsIdsInEverySetNewestFirst() throws Exception {
+        List<Set<String>> sets = new ArrayList<>();
+        sets.add(new HashSet<>(Arrays.asList("-Kb", "-Ka", "-Kc", "-Kd")));
+        sets.add(new HashSet<>(Arrays.asList("-Kc", "-Ka", "-Kd")));
+        sets.add(new HashSet<>(Arrays.asList("-Kd", "-Ka", "-Kz")));
+
+        assertEquals(Arrays.asList("-Kd", "-Ka"), PollSearch.intersect(sets));
+    }
+
+    @Test
+    public void intersect_ofASingleSetSortsIt() throws Exception {
+        List<Set<String>> sets = new ArrayList<>();
+        sets.add(new HashSet<>(Arrays.asList("-Ka", "-Kc", "-Kb")));
+
+        assertEquals(Arrays.asList("-Kc", "-Kb", "-Ka"), PollSearch.intersect(sets));
+        sets.add(new HashSet<String>());
+        assertTrue(PollSearch.intersect(sets).isEmpty());
+    }
+}
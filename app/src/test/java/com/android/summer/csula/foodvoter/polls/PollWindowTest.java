@@ -0,0 +1,189 @@
+package com.android.summer.csula.foodvoter.polls;
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * PollWindow positions and what it keeps in memory, see PollWindowBenchmark for its speed.
+ */
+public class PollWindowTest {
+
+    @Test
+    public void addFirst_keepsNewestFirst() throws Exception {
+        PollWindow window = new PollWindow(2);
+        for (int i = 0; i < 100; i++) {
+            window.addFirst(newPoll(i));
+        }
+
+        assertEquals(100, window.size());
+        assertEquals("poll99", window.getKey(0));
+        assertEquals("poll0", window.getKey(99));
+        assertEquals(0, window.indexOf("poll99"));
+        assertEquals(99, window.indexOf("poll0"));
+        assertEquals(-1, window.indexOf("missing"));
+
+        window.remove(1);
+        assertEquals(99, window.size());
+        assertEquals("poll97", window.getKey(1));
+        assertEquals(1, window.indexOf("poll97"));
+        assertEquals(-1, window.indexOf("poll98"));
+    }
+
+    @Test
+    public void addFirst_replacesAPollAlreadyInTheList() throws Exception {
+        PollWindow window = new PollWindow(5);
+        for (int i = 0; i < 3; i++) {
+            window.addFirst(newPoll(i));
+        }
+
+        Poll again = newPoll(1);
+        window.addFirst(again);
+        assertEquals(3, window.size());
+        assertEquals(1, window.indexOf("poll1"));
+        assertSame(again, window.get(1));
+    }
+
+    @Test
+    public void addLast_appendsKeysAndLoadsTheWindow() throws Exception {
+        final List<String> loaded = new ArrayList<>();
+        PollWindow window = new PollWindow(2);
+        window.setLoader(new PollWindow.Loader() {
+            @Override
+            public void load(String pollId) {
+                loaded.add(pollId);
+            }
+        });
+
+        window.addFirst(newPoll(10));
+        for (int i = 9; i >= 0; i--) {
+            window.addLast("poll" + i);
+        }
+        window.addLast("poll5");
+        assertEquals(11, window.size());
+        assertEquals("poll10", window.getKey(0));
+        assertEquals("poll0", window.getKey(10));
+        assertEquals(5, window.indexOf("poll5"));
+        assertNull(window.get(1));
+
+        window.loadWindow();
+        assertEquals(3, loaded.size());
+        assertEquals("poll9", loaded.get(0));
+
+        window.addFirst(newPoll(11));
+        assertEquals(11, window.indexOf("poll0"));
+    }
+
+    @Test
+    public void setViewport_onlyMaterializesTheWindow() throws Exception {
+        final List<String> loaded = new ArrayList<>();
+        PollWindow window = new PollWindow(5);
+        window.setLoader(new PollWindow.Loader() {
+            @Override
+            public void load(String pollId) {
+                loaded.add(pollId);
+            }
+        });
+
+        for (int i = 0; i < 1000; i++) {
+            window.addFirst(newPoll(i));
+        }
+        assertEquals(10, window.getMaterializedCount());
+        assertNotNull(window.get(0));
+        assertNull(window.get(500));
+
+        window.setViewport(500, 509);
+        assertEquals(0, window.getMaterializedCount());
+        assertEquals(20, loaded.size());
+
+        window.set(500, newPoll(499));
+        assertNotNull(window.get(500));
+
+        // Out of the window, not kept
+        window.set(0, newPoll(999));
+        assertNull(window.get(0));
+    }
+
+    @Test
+    public void addFirst_onlyKeepsTheFirstScreens() throws Exception {
+        PollWindow window = new PollWindow();
+        for (int i = 0; i < 1000; i++) {
+            window.addFirst(newPoll(i));
+        }
+
+        assertEquals(1000, window.size());
+        assertEquals(2 * PollWindow.DEFAULT_MARGIN, window.getMaterializedCount());
+    }
+
+    @Test
+    public void remove_loadsThePollShiftedIntoTheWindow() throws Exception {
+        final List<String> loaded = new ArrayList<>();
+        PollWindow window = new PollWindow(2);
+        window.setLoader(new PollWindow.Loader() {
+            @Override
+            public void load(String pollId) {
+                loaded.add(pollId);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            window.addFirst(newPoll(i));
+        }
+        assertNull(window.get(4));
+
+        // poll5 (position 4) shifts into the window [0, 4)
+        window.remove(1);
+        assertEquals(Arrays.asList("poll5"), loaded);
+    }
+
+    @Test
+    public void cancelLoad_letsTheNextViewportLoadAgain() throws Exception {
+        final List<String> loaded = new ArrayList<>();
+        PollWindow window = new PollWindow(0);
+        window.setLoader(new PollWindow.Loader() {
+            @Override
+            public void load(String pollId) {
+                loaded.add(pollId);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            window.addLast("poll" + i);
+        }
+
+        window.setViewport(3, 3);
+        window.setViewport(3, 3);
+        assertEquals(Arrays.asList("poll3"), loaded);
+
+        window.cancelLoad("poll3");
+        window.setViewport(3, 3);
+        assertEquals(Arrays.asList("poll3", "poll3"), loaded);
+    }
+
+    private static Poll newPoll(int i) {
+        Poll poll = new Poll(new User("author" + i, "authorId" + i));
+        poll.setPollId("poll" + i);
+        poll.setTitle("Lunch poll number " + i);
+        poll.setDescription("Where should we eat today? Poll " + i);
+        poll.setActiveOn(i);
+        for (int v = 0; v < 5; v++) {
+            poll.addVoters(new User("voter" + v, "voterId" + i + "_" + v));
+        }
+
+        List<BusinessSummary> businesses = new ArrayList<>();
+        for (int b = 0; b < 3; b++) {
+            BusinessSummary business = new BusinessSummary();
+            business.setId("business" + i + "_" + b);
+            business.setName("Restaurant " + b);
+            businesses.add(business);
+        }
+        poll.setBusinesses(businesses);
+        return poll;
+    }
+}
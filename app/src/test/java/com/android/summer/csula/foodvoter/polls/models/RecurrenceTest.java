@@ -0,0 +1,61 @@
+package com.android.summer.csula.foodvoter.polls.models;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Recurrence runs against java.util.Calendar, in a time zone west of UTC so the local day and
+ * the UTC day differ around the run.
+ */
+public class RecurrenceTest {
+
+    private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("GMT-07:00");
+
+    @Test
+    public void nextRunAfter_isTheNextChosenDayAtTheTime() throws Exception {
+        Recurrence fridayNoon = newRecurrence(Collections.singletonList(Calendar.FRIDAY), 12 * 60);
+
+        // Monday October 19th 2026, 9:00
+        long run = fridayNoon.nextRunAfter(localTime(2026, Calendar.OCTOBER, 19, 9, 0));
+        assertEquals(localTime(2026, Calendar.OCTOBER, 23, 12, 0), run);
+
+        // Strictly after: a run is never returned twice
+        assertEquals(localTime(2026, Calendar.OCTOBER, 30, 12, 0), fridayNoon.nextRunAfter(run));
+
+        // Friday 18:00, after noon (but already Saturday in UTC)
+        assertEquals(localTime(2026, Calendar.OCTOBER, 30, 12, 0),
+                     fridayNoon.nextRunAfter(localTime(2026, Calendar.OCTOBER, 23, 18, 0)));
+    }
+
+    @Test
+    public void nextRunAfter_picksTheClosestOfSeveralDays() throws Exception {
+        Recurrence recurrence = newRecurrence(Arrays.asList(Calendar.MONDAY, Calendar.THURSDAY), 23 * 60 + 30);
+
+        assertEquals(localTime(2026, Calendar.OCTOBER, 22, 23, 30),
+                     recurrence.nextRunAfter(localTime(2026, Calendar.OCTOBER, 20, 8, 0)));
+        assertEquals(localTime(2026, Calendar.OCTOBER, 26, 23, 30),
+                     recurrence.nextRunAfter(localTime(2026, Calendar.OCTOBER, 23, 0, 0)));
+
+        assertEquals(-1, newRecurrence(Collections.<Integer>emptyList(), 0).nextRunAfter(0));
+    }
+
+    private static Recurrence newRecurrence(List<Integer> days, int minuteOfDay) {
+        Recurrence recurrence = new Recurrence(days, minuteOfDay);
+        recurrence.setUtcOffsetInMs(LOS_ANGELES.getRawOffset());
+        return recurrence;
+    }
+
+    private static long localTime(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(LOS_ANGELES);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,59 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.android.summer.csula.foodvoter.yelpApi.models.YelpPriceLevel;
+import com.android.summer.csula.foodvoter.yelpApi.utils.BusinessUtilities;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpJsonUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking the candidates of a poll out of the search results, and the price level conversions
+ * done for every business.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BusinessSelectionBenchmark {
+
+    private static final String[] YELP_PRICES = {"$", "$$", "$$$", "$$$$"};
+    private static final String[] PRICE_LEVELS = {"1", "2", "3", "4"};
+
+    private List<Business> businesses;
+
+    @Setup
+    public void setUp() throws IOException {
+        businesses = YelpJsonUtil.parse(Fixtures.readResource(Fixtures.YELP_SEARCH_50)).getBusinesses();
+    }
+
+    @Benchmark
+    public List<Business> getRandoms() {
+        return BusinessUtilities.getRandoms(businesses);
+    }
+
+    @Benchmark
+    public void priceFromYelpString(Blackhole blackhole) {
+        for (String price : YELP_PRICES) {
+            blackhole.consume(YelpPriceLevel.fromYelpString(price));
+        }
+    }
+
+    @Benchmark
+    public void priceToYelpString(Blackhole blackhole) {
+        for (String price : PRICE_LEVELS) {
+            blackhole.consume(YelpPriceLevel.toYelpString(price));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Inputs shared by the benchmarks.
+ */
+class Fixtures {
+
+    /* A Yelp search response with 50 businesses, in the format of /v3/businesses/search */
+    static final String YELP_SEARCH_50 = "/yelp_search_50.json";
+
+    private Fixtures() {}
+
+    static String readResource(String name) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A poll as published by buildPollFromDraft: 7 candidates, 10 voters who all voted.
+     */
+    static Poll newPoll(List<Business> businesses) {
+        Poll poll = new Poll(new User("author", "authorId"));
+        poll.setPollId("-KqXnJ3m5c2QbV1xYz7A");
+        poll.setTitle("Friday lunch");
+        poll.setDescription("Somewhere close to campus please");
+        poll.setZipCode("90032");
+        poll.setActiveOn(1500000000000L);
+        poll.setClosesAt(1500003600000L);
+
+        for (int i = 0; i < 7; i++) {
+            poll.getBusinesses().add(BusinessSummary.from(businesses.get(i)));
+        }
+        for (int i = 1; i < 10; i++) {
+            poll.addVoters(new User("voter" + i, "voterId" + i));
+        }
+        for (User voter : poll.getVoters()) {
+            poll.getVotes().put(voter.getId(), businesses.get(voter.getId().length() % 7).getId());
+        }
+        return poll;
+    }
+}
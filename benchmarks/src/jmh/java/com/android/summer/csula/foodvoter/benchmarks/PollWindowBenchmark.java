@@ -0,0 +1,132 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.PollWindow;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling a newest-first poll list, the way PollListModel does when the first sync comes in:
+ * a plain list inserting at 0 against PollWindow.addFirst(). Every poll is built inside the
+ * benchmark, like a snapshot being deserialized, so whatever a list doesn't keep can be collected.
+ *
+ * The *AddFirst benchmarks time the insertion. The *Retained ones fill a list once per iteration
+ * and report the heap it keeps after a full GC, as the retainedBytes secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PollWindowBenchmark {
+
+    @Param({"1000", "50000"})
+    public int pollCount;
+
+    @Benchmark
+    public List<Poll> arrayListAddFirst() {
+        List<Poll> list = new ArrayList<>();
+        for (int i = 0; i < pollCount; i++) {
+            list.add(0, newPoll(i));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public PollWindow pollWindowAddFirst() {
+        PollWindow window = new PollWindow();
+        for (int i = 0; i < pollCount; i++) {
+            window.addFirst(newPoll(i));
+        }
+        return window;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public List<Poll> arrayListRetained(RetainedHeap heap) {
+        heap.start();
+        List<Poll> list = arrayListAddFirst();
+        heap.stop();
+        return list;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public PollWindow pollWindowRetained(RetainedHeap heap) {
+        heap.start();
+        PollWindow window = pollWindowAddFirst();
+        heap.stop();
+        return window;
+    }
+
+    /**
+     * A poll as PollListModel gets it: 5 voters and 3 candidates.
+     */
+    private static Poll newPoll(int i) {
+        Poll poll = new Poll(new User("author" + i, "authorId" + i));
+        poll.setPollId("poll" + i);
+        poll.setTitle("Lunch poll number " + i);
+        poll.setDescription("Where should we eat today? Poll " + i);
+        poll.setActiveOn(i);
+        for (int v = 0; v < 5; v++) {
+            poll.addVoters(new User("voter" + v, "voterId" + i + "_" + v));
+        }
+
+        List<BusinessSummary> businesses = new ArrayList<>();
+        for (int b = 0; b < 3; b++) {
+            BusinessSummary business = new BusinessSummary();
+            business.setId("business" + i + "_" + b);
+            business.setName("Restaurant " + b);
+            businesses.add(business);
+        }
+        poll.setBusinesses(businesses);
+        return poll;
+    }
+
+    /**
+     * The heap used after a full GC, before and after filling the list. The list is still
+     * reachable at stop(), since the benchmark returns it afterwards.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+
+        public long retainedBytes;
+        private long baseline;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytes = 0;
+        }
+
+        void start() {
+            baseline = usedAfterGc();
+        }
+
+        void stop() {
+            retainedBytes = usedAfterGc() - baseline;
+        }
+
+        private static long usedAfterGc() {
+            Runtime runtime = Runtime.getRuntime();
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpJsonUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java serialization of the objects passed as Intent extras: a Poll to PollCreationService and
+ * ListActivity, a BusinessSummary/Business to DetailActivity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    private Poll poll;
+    private Business business;
+    private byte[] serializedPoll;
+    private byte[] serializedBusiness;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Business> businesses = YelpJsonUtil.parse(Fixtures.readResource(Fixtures.YELP_SEARCH_50)).getBusinesses();
+        poll = Fixtures.newPoll(businesses);
+        business = businesses.get(0);
+        serializedPoll = serialize(poll);
+        serializedBusiness = serialize(business);
+    }
+
+    @Benchmark
+    public byte[] serializePoll() throws IOException {
+        return serialize(poll);
+    }
+
+    @Benchmark
+    public Object deserializePoll() throws IOException, ClassNotFoundException {
+        return deserialize(serializedPoll);
+    }
+
+    @Benchmark
+    public byte[] serializeBusiness() throws IOException {
+        return serialize(business);
+    }
+
+    @Benchmark
+    public Object deserializeBusiness() throws IOException, ClassNotFoundException {
+        return deserialize(serializedBusiness);
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
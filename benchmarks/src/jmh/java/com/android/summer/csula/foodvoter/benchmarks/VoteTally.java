@@ -0,0 +1,40 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counting votes on the device, what tallyVotes and findWinner in functions/index.js do when a
+ * poll closes. Only here to measure what a live count would cost, the app doesn't count votes.
+ */
+class VoteTally {
+
+    private VoteTally() {}
+
+    /**
+     * votes: userId => businessId, returns businessId => number of votes.
+     */
+    static Map<String, Long> tally(Map<String, String> votes) {
+        Map<String, Long> tally = new HashMap<>();
+        for (String businessId : votes.values()) {
+            Long count = tally.get(businessId);
+            tally.put(businessId, count == null ? 1 : count + 1);
+        }
+        return tally;
+    }
+
+    /**
+     * Return the business with the most votes, null without votes. A tie goes to the first
+     * business in iteration order.
+     */
+    static String findWinner(Map<String, Long> tally) {
+        String winner = null;
+        for (Map.Entry<String, Long> entry : tally.entrySet()) {
+            if (winner == null || entry.getValue() > tally.get(winner)) {
+                winner = entry.getKey();
+            }
+        }
+        return winner;
+    }
+}
@@ -0,0 +1,49 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting the votes of a poll with 7 candidates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VoteTallyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int voterCount;
+
+    private Map<String, String> votes;
+    private Map<String, Long> tally;
+
+    @Setup
+    public void setUp() {
+        votes = new HashMap<>();
+        for (int i = 0; i < voterCount; i++) {
+            votes.put("voterId" + i, "business" + (i * 31 % 7));
+        }
+        tally = VoteTally.tally(votes);
+    }
+
+    @Benchmark
+    public Map<String, Long> tally() {
+        return VoteTally.tally(votes);
+    }
+
+    @Benchmark
+    public String findWinner() {
+        return VoteTally.findWinner(tally);
+    }
+}
@@ -0,0 +1,37 @@
+package com.android.summer.csula.foodvoter.benchmarks;
+
+
+import com.android.summer.csula.foodvoter.yelpApi.models.Yelp;
+import com.android.summer.csula.foodvoter.yelpApi.utils.YelpJsonUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a 50 business search response, what PollCreationService does for every new poll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class YelpJsonBenchmark {
+
+    private String searchResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        searchResponse = Fixtures.readResource(Fixtures.YELP_SEARCH_50);
+    }
+
+    @Benchmark
+    public Yelp parseSearch() {
+        return YelpJsonUtil.parse(searchResponse);
+    }
+}
@@ -49,3 +49,725 @@ exports.messageVoters = functions.database.ref("/polls/{id}/voters")
 
             })
     });
+
+
+// How many expired polls are closed per scheduler tick
+const CLOSE_BATCH_SIZE = 100;
+
+// A single periodic function closes every poll whose time limit ran out. It is triggered by a
+// Cloud Scheduler job publishing to the "poll-close-tick" topic (once a minute), and reads the
+// time-ordered "openPolls" index (pollId => closesAt) instead of keeping one timer per poll.
+exports.closeExpiredPolls = functions.pubsub.topic('poll-close-tick')
+    .onPublish(() => {
+        const now = Date.now();
+
+        return admin.database().ref('openPolls')
+            .orderByValue()
+            .endAt(now)
+            .limitToFirst(CLOSE_BATCH_SIZE)
+            .once('value')
+            .then(dataSnapshot => {
+                const closing = [];
+                dataSnapshot.forEach(child => {
+                    closing.push(closePoll(child.key, now));
+                });
+                return Promise.all(closing);
+            });
+    });
+
+// Close a single poll: freeze its votes, write the final tally and let the voters know.
+function closePoll(pollId, now) {
+    const rootRef = admin.database().ref();
+    const pollRef = rootRef.child('polls').child(pollId);
+
+    // Flip "completed" in a transaction so a poll is only ever closed (and announced) once, even
+    // if two ticks overlap. Once completed is true, the security rules reject new votes.
+    return pollRef.child('completed').transaction(completed => {
+        if (completed === true) {
+            return; // abort, somebody else closed it
+        }
+        return true;
+    }).then(result => {
+        if (!result.committed) {
+            return rootRef.child('openPolls').child(pollId).remove();
+        }
+
+        return pollRef.once('value').then(pollSnapshot => {
+            const poll = pollSnapshot.val() || {};
+            const tally = tallyVotes(poll.votes);
+            const winner = findWinner(tally);
+
+            const update = {};
+            update[`polls/${pollId}/tally`] = tally;
+            update[`polls/${pollId}/winner`] = winner;
+            update[`polls/${pollId}/closedAt`] = now;
+            update[`openPolls/${pollId}`] = null;
+            update[`completedPolls/${pollId}`] = now;
+
+            return rootRef.update(update)
+                .then(() => notifyPollClosed(poll, winner));
+        });
+    });
+}
+
+// votes: { userId: businessId } => tally: { businessId: count }
+function tallyVotes(votes) {
+    const tally = {};
+    Object.keys(votes || {}).forEach(userId => {
+        const businessId = votes[userId];
+        tally[businessId] = (tally[businessId] || 0) + 1;
+    });
+    return tally;
+}
+
+function findWinner(tally) {
+    let winner = null;
+    Object.keys(tally).forEach(businessId => {
+        if (winner === null || tally[businessId] > tally[winner]) {
+            winner = businessId;
+        }
+    });
+    return winner;
+}
+
+function findBusinessName(poll, businessId) {
+    const businesses = poll.businesses || [];
+    const keys = Object.keys(businesses);
+    for (let i = 0; i < keys.length; i++) {
+        const business = businesses[keys[i]];
+        if (business && business.id === businessId) {
+            return business.name;
+        }
+    }
+    return null;
+}
+
+function notifyPollClosed(poll, winner) {
+    const winnerName = findBusinessName(poll, winner);
+
+    const payload = {
+        data: {
+            title: `${poll.title} is closed!`,
+            body: winnerName ? `The winner is ${winnerName}. Enjoy your meal!` : 'Nobody voted this time.'
+        }
+    };
+
+    const options = {
+        priority: "high",
+        timeToLive: TIME_TO_LIVE
+    };
+
+    const voters = poll.voters || [];
+    const sends = Object.keys(voters)
+        .map(key => voters[key])
+        .filter(voter => voter && voter.token)
+        .map(voter => admin.messaging().sendToDevice(voter.token, payload, options));
+
+    return Promise.all(sends);
+}
+
+
+// The security rules make sure a vote and its pollTallies entry are written together while the
+// poll is open, but they can't look inside the poll's business list. Revert any vote for a
+// business that isn't one of the poll's candidates.
+exports.validateVote = functions.database.ref('/polls/{pollId}/votes/{userId}')
+    .onWrite(event => {
+        const pollId = event.params.pollId;
+        const userId = event.params.userId;
+        const businessId = event.data.val();
+
+        if (businessId === null) {
+            return null;
+        }
+
+        return event.data.ref.parent.parent.child('businesses').once('value')
+            .then(businessesSnapshot => {
+                let isCandidate = false;
+                businessesSnapshot.forEach(child => {
+                    if (child.child('id').val() === businessId) {
+                        isCandidate = true;
+                    }
+                });
+
+                if (isCandidate) {
+                    return null;
+                }
+
+                console.log(`Reverting vote of ${userId} in ${pollId}, ${businessId} is not a candidate`);
+                const previous = event.data.previous.val();
+                const update = {};
+                update[`polls/${pollId}/votes/${userId}`] = previous;
+                update[`pollTallies/${pollId}/${businessId}/${userId}`] = null;
+                if (previous) {
+                    update[`pollTallies/${pollId}/${previous}/${userId}`] = true;
+                }
+                return admin.database().ref().update(update);
+            });
+    });
+
+
+// Words shorter than this aren't indexed, and a poll indexes at most MAX_SEARCH_TOKENS words
+const MIN_TOKEN_LENGTH = 2;
+const MAX_TOKEN_LENGTH = 30;
+const MAX_SEARCH_TOKENS = 20;
+
+// Same rules as PollSearch.tokenize() on the client: lower case, split on anything that isn't a
+// letter or a digit, drop short words and duplicates.
+function tokenize(text) {
+    const tokens = [];
+    (text || '').toLowerCase().split(/[^a-z0-9\u00c0-\uffff]+/).forEach(word => {
+        const token = word.substring(0, MAX_TOKEN_LENGTH);
+        if (token.length >= MIN_TOKEN_LENGTH && tokens.indexOf(token) === -1) {
+            tokens.push(token);
+        }
+    });
+    return tokens.slice(0, MAX_SEARCH_TOKENS);
+}
+
+// The search index entries of a poll: pollSearch/{token}/{pollId} = activatedOn for the words of
+// its title and description, and searchTokens/{token} = true so a prefix can be expanded to the
+// indexed words without downloading their polls.
+function searchIndexUpdate(pollId, poll) {
+    const tokens = tokenize(`${poll.title || ''} ${poll.description || ''}`);
+
+    const update = {};
+    tokens.forEach(token => {
+        update[`pollSearch/${token}/${pollId}`] = poll.activatedOn || 0;
+        update[`searchTokens/${token}`] = true;
+    });
+    return update;
+}
+
+// Keep the search index up to date with new polls. Polls can't be edited once created, so
+// indexing on create is enough.
+exports.indexPollSearch = functions.database.ref('/polls/{pollId}')
+    .onCreate(event => {
+        return admin.database().ref().update(searchIndexUpdate(event.params.pollId, event.data.val() || {}));
+    });
+
+// How many polls the backfill indexes per page
+const BACKFILL_BATCH_SIZE = 500;
+
+// One-off backfill of the search index for the polls created before indexPollSearch, started by
+// hand with `gcloud pubsub topics publish poll-search-backfill --message go`. The last indexed
+// pollId is kept in pollSearchBackfill/lastPollId, so publishing again after a timeout resumes
+// where it stopped, and once every poll is indexed it is a no-op.
+exports.backfillPollSearch = functions.pubsub.topic('poll-search-backfill')
+    .onPublish(() => {
+        const rootRef = admin.database().ref();
+        const progressRef = rootRef.child('pollSearchBackfill');
+
+        function indexPage(lastPollId) {
+            let query = rootRef.child('polls').orderByKey();
+            if (lastPollId) {
+                query = query.startAt(lastPollId);
+            }
+            return query.limitToFirst(BACKFILL_BATCH_SIZE + 1).once('value').then(dataSnapshot => {
+                const update = {};
+                let last = lastPollId;
+                let count = 0;
+                dataSnapshot.forEach(child => {
+                    // startAt is inclusive, the previous page's last poll comes again
+                    if (child.key !== lastPollId) {
+                        Object.assign(update, searchIndexUpdate(child.key, child.val() || {}));
+                        last = child.key;
+                        count++;
+                    }
+                });
+                if (count === 0) {
+                    console.log('Poll search backfill done');
+                    return null;
+                }
+
+                update['pollSearchBackfill/lastPollId'] = last;
+                return rootRef.update(update).then(() => indexPage(last));
+            });
+        }
+
+        return progressRef.child('lastPollId').once('value')
+            .then(lastSnapshot => indexPage(lastSnapshot.val()));
+    });
+
+
+
+const https = require('https');
+const querystring = require('querystring');
+
+// Yelp lets us keep its data for a day, refresh well before that
+const YELP_CACHE_TTL_MS = 12 * 60 * 60 * 1000;
+// A 5 character geohash is a cell of about 5km x 5km, the search covers the whole cell so every
+// poll created inside it can share the result
+const GEOHASH_PRECISION = 5;
+const YELP_SEARCH_RADIUS_IN_M = 4000;
+const YELP_SEARCH_LIMIT = 50;
+// Same as BusinessUtilities.MAX_SELECTIONS
+const MAX_SELECTIONS = 7;
+// How many expired cache entries, or old drafts, are removed per scheduler tick
+const PURGE_BATCH_SIZE = 100;
+
+const GEOHASH_BASE32 = '0123456789bcdefghjkmnpqrstuvwxyz';
+
+// Return the geohash cell containing the coordinate, and the center of that cell
+function geohash(latitude, longitude, precision) {
+    const latRange = [-90, 90];
+    const lngRange = [-180, 180];
+    let hash = '';
+    let bits = 0;
+    let index = 0;
+    let evenBit = true;
+
+    while (hash.length < precision) {
+        const range = evenBit ? lngRange : latRange;
+        const value = evenBit ? longitude : latitude;
+        const mid = (range[0] + range[1]) / 2;
+        if (value >= mid) {
+            index = index * 2 + 1;
+            range[0] = mid;
+        } else {
+            index = index * 2;
+            range[1] = mid;
+        }
+        evenBit = !evenBit;
+
+        if (++bits === 5) {
+            hash += GEOHASH_BASE32.charAt(index);
+            bits = 0;
+            index = 0;
+        }
+    }
+
+    return {
+        hash: hash,
+        latitude: (latRange[0] + latRange[1]) / 2,
+        longitude: (lngRange[0] + lngRange[1]) / 2
+    };
+}
+
+// The Yelp search parameters of a poll, and the yelpCache key shared by every poll with the same
+// parameters. Coordinates are snapped to the center of their geohash cell, zip codes are used
+// as is. Like the client search did, the coordinate wins when a poll has both.
+function toSearch(poll) {
+    const price = poll.price || '1';
+    const openNow = poll.openNow === true;
+    const params = {
+        term: 'food',
+        price: price,
+        open_now: openNow,
+        limit: YELP_SEARCH_LIMIT
+    };
+
+    let area;
+    if (poll.coordinate) {
+        const cell = geohash(poll.coordinate.latitude, poll.coordinate.longitude, GEOHASH_PRECISION);
+        params.latitude = cell.latitude;
+        params.longitude = cell.longitude;
+        params.radius = YELP_SEARCH_RADIUS_IN_M;
+        area = cell.hash;
+    } else {
+        params.location = poll.zipCode;
+        area = `zip${String(poll.zipCode).replace(/[^A-Za-z0-9-]/g, '')}`;
+    }
+
+    return {
+        key: `${area}_${price}_${openNow}`,
+        params: params
+    };
+}
+
+// Send an HTTPS request and resolve with the parsed JSON body
+function requestJson(options, body) {
+    return new Promise((resolve, reject) => {
+        const request = https.request(options, response => {
+            let data = '';
+            response.setEncoding('utf8');
+            response.on('data', chunk => data += chunk);
+            response.on('end', () => {
+                if (response.statusCode !== 200) {
+                    reject(new Error(`${options.path.split('?')[0]} answered ${response.statusCode}: ${data}`));
+                    return;
+                }
+                try {
+                    resolve(JSON.parse(data));
+                } catch (e) {
+                    reject(e);
+                }
+            });
+        });
+        request.on('error', reject);
+        if (body) {
+            request.write(body);
+        }
+        request.end();
+    });
+}
+
+// The Yelp credentials live in the functions config (firebase functions:config:set
+// yelp.client_id=... yelp.client_secret=...), the token is kept while the instance is warm
+let yelpToken = null;
+let yelpTokenExpiresAt = 0;
+
+function getYelpToken() {
+    if (yelpToken && Date.now() < yelpTokenExpiresAt) {
+        return Promise.resolve(yelpToken);
+    }
+
+    const body = querystring.stringify({
+        grant_type: 'client_credentials',
+        client_id: functions.config().yelp.client_id,
+        client_secret: functions.config().yelp.client_secret
+    });
+    return requestJson({
+        method: 'POST',
+        host: 'api.yelp.com',
+        path: '/oauth2/token',
+        headers: {
+            'Content-Type': 'application/x-www-form-urlencoded',
+            'Content-Length': Buffer.byteLength(body)
+        }
+    }, body).then(json => {
+        yelpToken = json.access_token;
+        // Refresh a day early, like RequestYelpAccessTokenTask
+        yelpTokenExpiresAt = Date.now() + Math.max(json.expires_in - 24 * 60 * 60, json.expires_in / 2) * 1000;
+        return yelpToken;
+    });
+}
+
+// Yelp's snake_case business => the Business model of the app
+function toBusiness(json) {
+    const location = json.location || {};
+    return {
+        id: json.id,
+        name: json.name,
+        imageUrl: json.image_url || null,
+        url: json.url || null,
+        price: json.price || null,
+        rating: json.rating || 0,
+        reviewCount: json.review_count || 0,
+        distance: json.distance || 0,
+        displayPhone: json.display_phone || null,
+        transactions: json.transactions || [],
+        categories: (json.categories || []).map(category => ({
+            alias: category.alias,
+            title: category.title
+        })),
+        coordinate: json.coordinates ? {
+            latitude: json.coordinates.latitude,
+            longitude: json.coordinates.longitude
+        } : null,
+        location: {
+            address1: location.address1 || null,
+            address2: location.address2 || null,
+            address3: location.address3 || null,
+            city: location.city || null,
+            country: location.country || null,
+            state: location.state || null,
+            zipCode: location.zip_code || null,
+            displayAddress: location.display_address || []
+        }
+    };
+}
+
+function searchYelp(params) {
+    return getYelpToken().then(token => requestJson({
+        method: 'GET',
+        host: 'api.yelp.com',
+        path: `/v3/businesses/search?${querystring.stringify(params)}`,
+        headers: {
+            Authorization: `Bearer ${token}`
+        }
+    })).then(json => (json.businesses || []).map(toBusiness));
+}
+
+// Return the businesses matching the poll, from yelpCache/{key} if a neighbour searched the same
+// thing recently, otherwise from Yelp (and cache them for the next one)
+function cachedSearch(poll) {
+    const search = toSearch(poll);
+    const cacheRef = admin.database().ref('yelpCache').child(search.key);
+
+    return cacheRef.once('value').then(cacheSnapshot => {
+        const cached = cacheSnapshot.val();
+        if (cached && cached.expiresAt > Date.now()) {
+            return cached.businesses || [];
+        }
+
+        return searchYelp(search.params).then(businesses => {
+            const fetchedAt = Date.now();
+            return cacheRef.set({
+                businesses: businesses,
+                fetchedAt: fetchedAt,
+                expiresAt: fetchedAt + YELP_CACHE_TTL_MS
+            }).then(() => businesses);
+        });
+    });
+}
+
+// Same as BusinessUtilities.getRandoms()
+function pickRandoms(businesses) {
+    const copy = businesses.slice();
+    for (let i = copy.length - 1; i > 0; i--) {
+        const j = Math.floor(Math.random() * (i + 1));
+        const swap = copy[i];
+        copy[i] = copy[j];
+        copy[j] = swap;
+    }
+    return copy.slice(0, MAX_SELECTIONS);
+}
+
+function joinTitles(categories) {
+    return (categories || []).map(category => category.title).join(', ');
+}
+
+// The same update as PollUpdates.newPoll(), which the simulator module writes. The voting window starts now, when the
+// poll becomes visible, not when the draft (or template) was written.
+function newPollUpdate(pollId, poll, businesses) {
+    const activatedOn = Date.now();
+    poll.pollId = pollId;
+    poll.activatedOn = activatedOn;
+    poll.closesAt = activatedOn + (poll.timeLimitInMs || 0);
+    poll.completed = false;
+    poll.businesses = businesses.map(business => ({
+        id: business.id,
+        name: business.name,
+        imageUrl: business.imageUrl,
+        rating: business.rating,
+        categoryTitles: joinTitles(business.categories)
+    }));
+    poll.tally = {};
+    businesses.forEach(business => {
+        poll.tally[business.id] = 0;
+    });
+
+    const update = {};
+    update[`polls/${pollId}`] = poll;
+    update[`openPolls/${pollId}`] = poll.closesAt;
+    businesses.forEach(business => {
+        update[`businesses/${business.id}`] = business;
+    });
+
+    const userPoll = {
+        title: poll.title,
+        activatedOn: activatedOn,
+        closesAt: poll.closesAt
+    };
+    const participants = [];
+    if (poll.author) {
+        update[`pollsByAuthor/${poll.author.id}/${pollId}`] = activatedOn;
+        participants.push(poll.author.id);
+    }
+    const voters = poll.voters || [];
+    Object.keys(voters).forEach(key => {
+        const voter = voters[key];
+        if (voter && voter.id && participants.indexOf(voter.id) === -1) {
+            participants.push(voter.id);
+        }
+    });
+    participants.forEach(userId => {
+        update[`userPolls/${userId}/${pollId}`] = userPoll;
+    });
+
+    return update;
+}
+
+// Instead of searching Yelp from the phone, PollCreationService writes a draft
+// pollDrafts/{pollId} = { poll, status: 'draft' }. Search (through the shared cache), pick the
+// candidates and publish the poll, then flip the status to 'ready' (or 'failed') for the client.
+exports.buildPollFromDraft = functions.database.ref('/pollDrafts/{pollId}')
+    .onCreate(event => {
+        const pollId = event.params.pollId;
+        const draft = event.data.val() || {};
+        const poll = draft.poll;
+        const statusRef = event.data.ref.child('status');
+
+        if (!poll || (!poll.coordinate && !poll.zipCode)) {
+            return event.data.ref.update({status: 'failed', error: 'the poll has no location'});
+        }
+
+        // Claim the draft in a transaction, like closePoll() does with "completed", so a draft
+        // the client cancelled after timing out is never published
+        return statusRef.transaction(status => {
+            if (status === null) {
+                return null; // nothing cached yet, writing null over null gets us the real status
+            }
+            if (status !== 'draft') {
+                return; // abort, cancelled
+            }
+            return 'building';
+        }).then(result => {
+            if (!result.committed || result.snapshot.val() !== 'building') {
+                return null;
+            }
+
+            return cachedSearch(poll)
+                .then(businesses => {
+                    if (businesses.length === 0) {
+                        throw new Error('no business matches the poll');
+                    }
+                    const update = newPollUpdate(pollId, poll, pickRandoms(businesses));
+                    update[`pollDrafts/${pollId}/poll`] = null;
+                    update[`pollDrafts/${pollId}/status`] = 'ready';
+                    return admin.database().ref().update(update);
+                })
+                .catch(error => {
+                    console.log(`Poll draft ${pollId} failed: ${error.message}`);
+                    return event.data.ref.update({status: 'failed', error: error.message});
+                });
+        });
+    });
+
+// Expired yelpCache entries are only skipped by cachedSearch(), remove them on the same tick
+// that closes the polls
+exports.purgeYelpCache = functions.pubsub.topic('poll-close-tick')
+    .onPublish(() => {
+        return admin.database().ref('yelpCache')
+            .orderByChild('expiresAt')
+            .endAt(Date.now())
+            .limitToFirst(PURGE_BATCH_SIZE)
+            .once('value')
+            .then(dataSnapshot => {
+                const update = {};
+                dataSnapshot.forEach(child => {
+                    update[child.key] = null;
+                });
+                return admin.database().ref('yelpCache').update(update);
+            });
+    });
+
+
+// Drafts are only read while the client waits for them, failed ones still hold the whole poll
+const POLL_DRAFT_TTL_MS = 24 * 60 * 60 * 1000;
+
+// Remove the drafts older than POLL_DRAFT_TTL_MS on the same tick, whatever their status
+exports.purgePollDrafts = functions.pubsub.topic('poll-close-tick')
+    .onPublish(() => {
+        return admin.database().ref('pollDrafts')
+            .orderByChild('createdAt')
+            .startAt(0)
+            .endAt(Date.now() - POLL_DRAFT_TTL_MS)
+            .limitToFirst(PURGE_BATCH_SIZE)
+            .once('value')
+            .then(dataSnapshot => {
+                const update = {};
+                dataSnapshot.forEach(child => {
+                    update[child.key] = null;
+                });
+                return admin.database().ref('pollDrafts').update(update);
+            });
+    });
+
+// Templates whose next run is this close get their candidates searched ahead of time, so the
+// publish itself is a single write
+const PRECOMPUTE_AHEAD_MS = 30 * 60 * 1000;
+// How many templates are looked at per scheduler tick
+const TEMPLATE_BATCH_SIZE = 100;
+const DAY_IN_MS = 24 * 60 * 60 * 1000;
+
+// Same as Recurrence.nextRunAfter() on the client: the first of the chosen days of the week
+// (java.util.Calendar numbering, Sunday = 1) at minuteOfDay, strictly after time. Local time is
+// the author's UTC offset when the template was saved.
+function nextRunAfter(recurrence, time) {
+    const days = recurrence.daysOfWeek || [];
+    const offset = recurrence.utcOffsetInMs || 0;
+    const today = Math.floor((time + offset) / DAY_IN_MS);
+
+    for (let day = today; day <= today + 7; day++) {
+        // Day 0, January 1st 1970, was a Thursday
+        const dayOfWeek = (((day + 4) % 7) + 7) % 7 + 1;
+        const run = day * DAY_IN_MS + (recurrence.minuteOfDay || 0) * 60 * 1000 - offset;
+        if (days.indexOf(dayOfWeek) !== -1 && run > time) {
+            return run;
+        }
+    }
+    return null;
+}
+
+// Search the candidates of the template's next run and keep them in the template. Written in a
+// transaction that gives up if the template was deleted or its run moved during the search, so
+// a deleted template isn't recreated as a candidates-only stub.
+function precomputeCandidates(templateId, template) {
+    const runAt = template.nextRunAt;
+
+    return cachedSearch(template.poll)
+        .then(businesses => {
+            const candidates = {runAt: runAt, businesses: pickRandoms(businesses)};
+            return admin.database().ref('pollTemplates').child(templateId).transaction(current => {
+                if (current === null) {
+                    return null; // nothing cached yet, writing null over null gets us the real template
+                }
+                if (current.nextRunAt !== runAt) {
+                    return; // abort, deleted or already published
+                }
+                current.candidates = candidates;
+                return current;
+            });
+        })
+        .catch(error => console.log(`Candidates for template ${templateId} failed: ${error.message}`));
+}
+
+// Claim the run by moving nextRunAt forward in a transaction, like closePoll() does with
+// "completed", so overlapping ticks publish it once. Then publish the poll with the precomputed
+// candidates in one update, searching now only if the precompute didn't happen.
+function publishTemplate(templateId, template, now) {
+    const templateRef = admin.database().ref('pollTemplates').child(templateId);
+    const runAt = template.nextRunAt;
+
+    return templateRef.child('nextRunAt').transaction(nextRunAt => {
+        if (nextRunAt === null) {
+            // Nothing cached yet: writing null over null gets us the real value, and only
+            // commits if the template was deleted meanwhile, without recreating it
+            return null;
+        }
+        if (nextRunAt !== runAt) {
+            return; // abort, already published
+        }
+        return nextRunAfter(template.recurrence, Math.max(now, runAt));
+    }).then(result => {
+        if (!result.committed || result.snapshot.val() === null) {
+            return null;
+        }
+
+        const candidates = template.candidates;
+        const businesses = candidates && candidates.runAt === runAt
+            ? Promise.resolve(candidates.businesses || [])
+            : cachedSearch(template.poll).then(pickRandoms);
+
+        return businesses.then(selections => {
+            if (selections.length === 0) {
+                throw new Error('no business matches the template');
+            }
+            const pollId = admin.database().ref('polls').push().key;
+            const update = newPollUpdate(pollId, Object.assign({}, template.poll), selections);
+            update[`pollTemplates/${templateId}/candidates`] = null;
+            update[`pollTemplates/${templateId}/lastPollId`] = pollId;
+            return admin.database().ref().update(update);
+        });
+    }).catch(error => console.log(`Template ${templateId} failed to publish: ${error.message}`));
+}
+
+// Recurring polls (pollTemplates/{templateId} = { authorId, poll, recurrence, nextRunAt }) run
+// on the same tick as closeExpiredPolls: templates due within PRECOMPUTE_AHEAD_MS get their
+// candidates, templates that are due get published.
+exports.runPollTemplates = functions.pubsub.topic('poll-close-tick')
+    .onPublish(() => {
+        const now = Date.now();
+
+        return admin.database().ref('pollTemplates')
+            .orderByChild('nextRunAt')
+            .endAt(now + PRECOMPUTE_AHEAD_MS)
+            .limitToFirst(TEMPLATE_BATCH_SIZE)
+            .once('value')
+            .then(dataSnapshot => {
+                const runs = [];
+                dataSnapshot.forEach(child => {
+                    const template = child.val();
+                    if (!template.poll || !template.recurrence || typeof template.nextRunAt !== 'number') {
+                        return;
+                    }
+                    if (template.nextRunAt <= now) {
+                        runs.push(publishTemplate(child.key, template, now));
+                    } else if (!template.candidates || template.candidates.runAt !== template.nextRunAt) {
+                        runs.push(precomputeCandidates(child.key, template));
+                    }
+                });
+                return Promise.all(runs);
+            });
+    });
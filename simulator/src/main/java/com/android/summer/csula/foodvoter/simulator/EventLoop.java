@@ -0,0 +1,53 @@
+package com.android.summer.csula.foodvoter.simulator;
+
+
+import java.util.PriorityQueue;
+
+/**
+ * A discrete event loop on simulated time: events run in time order, and time jumps straight to
+ * the next event, so hours of traffic run in seconds and every run with the same seed is the same.
+ */
+class EventLoop {
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private double nowMs;
+    private long sequence;
+
+    double now() {
+        return nowMs;
+    }
+
+    void schedule(double delayMs, Runnable action) {
+        events.add(new Event(nowMs + Math.max(0, delayMs), sequence++, action));
+    }
+
+    /**
+     * Run the events until there are none left.
+     */
+    void run() {
+        Event event;
+        while ((event = events.poll()) != null) {
+            nowMs = event.timeMs;
+            event.action.run();
+        }
+    }
+
+    private static class Event implements Comparable<Event> {
+
+        final double timeMs;
+        final long sequence;
+        final Runnable action;
+
+        Event(double timeMs, long sequence, Runnable action) {
+            this.timeMs = timeMs;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Double.compare(timeMs, other.timeMs);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
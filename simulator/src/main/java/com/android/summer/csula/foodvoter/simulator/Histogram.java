@@ -0,0 +1,56 @@
+package com.android.summer.csula.foodvoter.simulator;
+
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Every recorded value, sorted when a percentile is asked for.
+ */
+class Histogram {
+
+    private double[] values = new double[1024];
+    private int count;
+    private boolean sorted = true;
+
+    void record(double value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = value;
+        sorted = false;
+    }
+
+    int count() {
+        return count;
+    }
+
+    double percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(values, 0, count);
+            sorted = true;
+        }
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return values[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    double mean() {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * "mean 12.3  p50 10.0  p90 20.1  p99 45.0  max 80.2", values divided by the scale.
+     */
+    String summary(double scale) {
+        return String.format(Locale.US, "mean %9.1f  p50 %9.1f  p90 %9.1f  p99 %9.1f  max %9.1f",
+                mean() / scale, percentile(50) / scale, percentile(90) / scale,
+                percentile(99) / scale, percentile(100) / scale);
+    }
+}
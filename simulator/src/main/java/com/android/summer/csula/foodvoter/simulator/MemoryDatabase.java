@@ -0,0 +1,298 @@
+package com.android.summer.csula.foodvoter.simulator;
+
+
+import com.android.summer.csula.foodvoter.database.PayloadSizer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stand-in for the Realtime Database: a JSON tree in memory, atomic multi-path updates applied
+ * one at a time by a single server, and child listeners that get one callback per changed child.
+ *
+ * Beans are stored the way Firebase stores them (public getters, lists as index => value maps), so
+ * later writes can go deeper, i.e. polls/{pollId}/votes/{userId} under a written Poll.
+ */
+class MemoryDatabase {
+
+    /* Time the server takes to apply a write, bursts of writes queue behind each other */
+    private static final double WRITE_COST_MS = 0.2;
+    private static final double WRITE_COST_PER_KB_MS = 0.05;
+    private static final String EXCLUDE_ANNOTATION = "Exclude";
+
+    private final EventLoop loop;
+    private final Map<String, Object> root = new HashMap<>();
+    private final Map<String, List<Registration>> listeners = new HashMap<>();
+    private double serverFreeAtMs;
+
+    /* How long writes waited for the server */
+    final Histogram serverQueueMs = new Histogram();
+    long writeCount;
+
+    MemoryDatabase(EventLoop loop) {
+        this.loop = loop;
+    }
+
+    /**
+     * Listen to the children of the path. The current children are sent first, like
+     * onChildAdded() for each of them.
+     *
+     * @param delayed true to call the listener after the client's network latency, false to call
+     *                it as soon as the write is applied (when only the counters matter).
+     */
+    void addChildListener(String path, SimClient client, boolean delayed, ChildListener listener) {
+        Registration registration = new Registration(client, delayed, listener);
+        List<Registration> registrations = listeners.get(path);
+        if (registrations == null) {
+            registrations = new ArrayList<>();
+            listeners.put(path, registrations);
+        }
+        registrations.add(registration);
+
+        Object node = get(path);
+        if (node instanceof Map) {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) node).entrySet()) {
+                String childKey = child.getKey().toString();
+                deliver(registration, childKey, childKey.length() + PayloadSizer.sizeOf(child.getValue()), null, loop.now());
+            }
+        }
+    }
+
+    /**
+     * Send the multi-path update from the client. The listener is called once the client got the
+     * server's acknowledgement, with the time since the write started.
+     */
+    void write(final SimClient writer, final Map<String, Object> update, final WriteListener writeListener) {
+        final double startedAtMs = loop.now();
+        final int bytes = sizeOf(update);
+        writer.bytesUp += bytes;
+
+        loop.schedule(writer.sampleLatencyMs(), new Runnable() {
+            @Override
+            public void run() {
+                double startMs = Math.max(loop.now(), serverFreeAtMs);
+                serverQueueMs.record(startMs - loop.now());
+                serverFreeAtMs = startMs + WRITE_COST_MS + WRITE_COST_PER_KB_MS * bytes / 1024;
+
+                loop.schedule(serverFreeAtMs - loop.now(), new Runnable() {
+                    @Override
+                    public void run() {
+                        apply(writer, update, startedAtMs);
+                        loop.schedule(writer.sampleLatencyMs(), new Runnable() {
+                            @Override
+                            public void run() {
+                                writeListener.onWriteAcknowledged(loop.now() - startedAtMs);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    private void apply(SimClient writer, Map<String, Object> update, double startedAtMs) {
+        writeCount++;
+
+        // Like Firebase, one callback per listener and changed child however many paths changed.
+        // Grouped by listened path => child => bytes, every listener of a path gets the same.
+        Map<String, Map<String, Integer>> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : update.entrySet()) {
+            String path = entry.getKey();
+            set(path, toTree(entry.getValue()));
+
+            int entryBytes = path.length() + PayloadSizer.sizeOf(entry.getValue());
+            StringBuilder parent = new StringBuilder();
+            for (String segment : path.split("/")) {
+                if (listeners.containsKey(parent.toString())) {
+                    addChange(changes, parent.toString(), segment, entryBytes);
+                }
+                if (parent.length() > 0) {
+                    parent.append('/');
+                }
+                parent.append(segment);
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Integer>> change : changes.entrySet()) {
+            for (Registration registration : listeners.get(change.getKey())) {
+                for (Map.Entry<String, Integer> child : change.getValue().entrySet()) {
+                    deliver(registration, child.getKey(), child.getValue(), writer, startedAtMs);
+                }
+            }
+        }
+    }
+
+    private static void addChange(Map<String, Map<String, Integer>> changes, String path, String childKey, int bytes) {
+        Map<String, Integer> children = changes.get(path);
+        if (children == null) {
+            children = new LinkedHashMap<>();
+            changes.put(path, children);
+        }
+        Integer previous = children.get(childKey);
+        children.put(childKey, previous == null ? bytes : previous + bytes);
+    }
+
+    private void deliver(final Registration registration, final String childKey, final int bytes,
+                         final SimClient writer, final double startedAtMs) {
+        Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                registration.client.bytesDown += bytes;
+                registration.client.callbacks++;
+                registration.listener.onChild(childKey, bytes, writer, startedAtMs);
+            }
+        };
+
+        if (registration.delayed) {
+            loop.schedule(registration.client.sampleLatencyMs(), delivery);
+        } else {
+            delivery.run();
+        }
+    }
+
+    private Object get(String path) {
+        Object node = root;
+        for (String segment : path.split("/")) {
+            if (!(node instanceof Map)) {
+                return null;
+            }
+            node = ((Map<?, ?>) node).get(segment);
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(String path, Object value) {
+        String[] segments = path.split("/");
+        Map<String, Object> node = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            Object child = node.get(segments[i]);
+            if (!(child instanceof Map)) {
+                if (value == null) {
+                    return;
+                }
+                child = new HashMap<String, Object>();
+                node.put(segments[i], child);
+            }
+            node = (Map<String, Object>) child;
+        }
+
+        String key = segments[segments.length - 1];
+        if (value == null) {
+            node.remove(key);
+        } else {
+            node.put(key, value);
+        }
+    }
+
+    private static int sizeOf(Map<String, Object> update) {
+        int bytes = 0;
+        for (Map.Entry<String, Object> entry : update.entrySet()) {
+            bytes += entry.getKey().length() + PayloadSizer.sizeOf(entry.getValue());
+        }
+        return bytes;
+    }
+
+    /**
+     * The value as Firebase stores it: maps, lists as index => value, beans through their getters.
+     */
+    private static Object toTree(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Enum) {
+            return ((Enum) value).name();
+        }
+
+        Map<String, Object> tree = new HashMap<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                putIfNotNull(tree, entry.getKey().toString(), toTree(entry.getValue()));
+            }
+        } else if (value instanceof Collection) {
+            int index = 0;
+            for (Object item : (Collection<?>) value) {
+                putIfNotNull(tree, Integer.toString(index++), toTree(item));
+            }
+        } else {
+            for (Method method : value.getClass().getMethods()) {
+                String property = propertyName(method);
+                if (property != null) {
+                    putIfNotNull(tree, property, toTree(invoke(method, value)));
+                }
+            }
+        }
+        return tree.isEmpty() ? null : tree;
+    }
+
+    private static void putIfNotNull(Map<String, Object> tree, String key, Object value) {
+        if (value != null) {
+            tree.put(key, value);
+        }
+    }
+
+    private static String propertyName(Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length > 0
+                || method.getDeclaringClass() == Object.class || isExcluded(method)) {
+            return null;
+        }
+
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return Character.toLowerCase(name.charAt(3)) + name.substring(4);
+        }
+        if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            return Character.toLowerCase(name.charAt(2)) + name.substring(3);
+        }
+        return null;
+    }
+
+    private static boolean isExcluded(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            if (EXCLUDE_ANNOTATION.equals(annotation.annotationType().getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object invoke(Method method, Object bean) {
+        try {
+            return method.invoke(bean);
+        } catch (Exception e) {
+            throw new IllegalStateException("unable to read " + method.getName(), e);
+        }
+    }
+
+    private static class Registration {
+
+        final SimClient client;
+        final boolean delayed;
+        final ChildListener listener;
+
+        Registration(SimClient client, boolean delayed, ChildListener listener) {
+            this.client = client;
+            this.delayed = delayed;
+            this.listener = listener;
+        }
+    }
+
+    interface ChildListener {
+        /**
+         * A child was added, changed or removed by the writer's write, started at startedAtMs.
+         * The writer is null for the children sent when the listener is added.
+         */
+        void onChild(String childKey, int bytes, SimClient writer, double startedAtMs);
+    }
+
+    interface WriteListener {
+        void onWriteAcknowledged(double latencyMs);
+    }
+}
@@ -0,0 +1,38 @@
+package com.android.summer.csula.foodvoter.simulator;
+
+
+import java.util.Random;
+
+/**
+ * One simulated device: its network latency and what it sent and received.
+ */
+class SimClient {
+
+    /* Round trip times are log-normal: most phones are close to the median, a few are very slow */
+    private static final double MEDIAN_RTT_MS = 80;
+    private static final double RTT_SIGMA = 0.6;
+    private static final double JITTER = 0.2;
+
+    final String userId;
+    private final double rttMs;
+    private final Random random;
+
+    long bytesUp;
+    long bytesDown;
+    /* The part of bytesDown about polls the user takes part in */
+    long relevantBytesDown;
+    long callbacks;
+
+    SimClient(String userId, Random random) {
+        this.userId = userId;
+        this.random = random;
+        this.rttMs = MEDIAN_RTT_MS * Math.exp(RTT_SIGMA * random.nextGaussian());
+    }
+
+    /**
+     * One way latency of a message to or from the server.
+     */
+    double sampleLatencyMs() {
+        return rttMs / 2 * (1 + JITTER * -Math.log(1 - random.nextDouble()));
+    }
+}
@@ -0,0 +1,289 @@
+package com.android.summer.csula.foodvoter.simulator;
+
+
+import com.android.summer.csula.foodvoter.models.User;
+import com.android.summer.csula.foodvoter.polls.PollUpdates;
+import com.android.summer.csula.foodvoter.polls.models.BusinessSummary;
+import com.android.summer.csula.foodvoter.polls.models.Poll;
+import com.android.summer.csula.foodvoter.yelpApi.models.Business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Runs thousands of simulated users creating polls and voting against MemoryDatabase, with the
+ * app's own updates (PollUpdates), and reports what every client downloaded and how long votes
+ * took to reach the other voters.
+ *
+ * --mode=allPolls is the current poll list (every client listens to all of "polls" and filters
+ * on the device), --mode=userPolls listens to the client's own userPolls/{userId} index instead.
+ *
+ * Usage: Simulator [--users=10000] [--polls=1000] [--voters=8] [--mode=allPolls|userPolls] [--seed=1]
+ */
+public class Simulator {
+
+    private static final String MODE_ALL_POLLS = "allPolls";
+    private static final String MODE_USER_POLLS = "userPolls";
+
+    /* Polls are created during the lunch rush, i.e. within the same couple of minutes */
+    private static final double CREATION_WINDOW_MS = 2 * 60 * 1000;
+    private static final double MEAN_OPEN_DELAY_MS = 10 * 1000;
+    private static final double MEAN_VOTE_DELAY_MS = 30 * 1000;
+    private static final double CHANGE_VOTE_PROBABILITY = 0.2;
+    private static final long TIME_LIMIT_MS = 60 * 60 * 1000;
+    private static final int BUSINESSES_PER_POLL = 7;
+
+    private final int userCount;
+    private final int pollCount;
+    private final int votersPerPoll;
+    private final String mode;
+    private final Random random;
+
+    private final EventLoop loop = new EventLoop();
+    private final MemoryDatabase database = new MemoryDatabase(loop);
+    private final List<SimClient> clients = new ArrayList<>();
+
+    /* pollId => participants, what the device would find out from the poll itself */
+    private final Map<String, Set<String>> participants = new HashMap<>();
+
+    private final Histogram pollWriteMs = new Histogram();
+    private final Histogram voteAckMs = new Histogram();
+    private final Histogram tallyLatencyMs = new Histogram();
+
+    private Simulator(int userCount, int pollCount, int votersPerPoll, String mode, long seed) {
+        this.userCount = userCount;
+        this.pollCount = pollCount;
+        this.votersPerPoll = Math.min(votersPerPoll, userCount - 1);
+        this.mode = mode;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        String mode = get(options, "mode", MODE_ALL_POLLS);
+        if (!MODE_ALL_POLLS.equals(mode) && !MODE_USER_POLLS.equals(mode)) {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+
+        Simulator simulator = new Simulator(
+                Integer.parseInt(get(options, "users", "10000")),
+                Integer.parseInt(get(options, "polls", "1000")),
+                Integer.parseInt(get(options, "voters", "8")),
+                mode,
+                Long.parseLong(get(options, "seed", "1")));
+
+        long start = System.currentTimeMillis();
+        simulator.run();
+        simulator.report(System.currentTimeMillis() - start);
+    }
+
+    private void run() {
+        for (int i = 0; i < userCount; i++) {
+            SimClient client = new SimClient("user" + i, random);
+            clients.add(client);
+            listenToPollList(client);
+        }
+
+        for (int i = 0; i < pollCount; i++) {
+            final String pollId = "poll" + i;
+            loop.schedule(random.nextDouble() * CREATION_WINDOW_MS, new Runnable() {
+                @Override
+                public void run() {
+                    createPoll(pollId);
+                }
+            });
+        }
+
+        loop.run();
+    }
+
+    /**
+     * The listener of the home screen, added once the user signed in.
+     */
+    private void listenToPollList(final SimClient client) {
+        if (MODE_USER_POLLS.equals(mode)) {
+            database.addChildListener(PollUpdates.USER_POLLS_TREE + "/" + client.userId, client, false,
+                    new MemoryDatabase.ChildListener() {
+                        @Override
+                        public void onChild(String childKey, int bytes, SimClient writer, double startedAtMs) {
+                            client.relevantBytesDown += bytes;
+                        }
+                    });
+        } else {
+            database.addChildListener(PollUpdates.POLLS_TREE, client, false, new MemoryDatabase.ChildListener() {
+                @Override
+                public void onChild(String pollId, int bytes, SimClient writer, double startedAtMs) {
+                    if (participants.get(pollId).contains(client.userId)) {
+                        client.relevantBytesDown += bytes;
+                    }
+                }
+            });
+        }
+    }
+
+    private void createPoll(final String pollId) {
+        SimClient author = clients.get(random.nextInt(userCount));
+        Poll poll = new Poll(new User(author.userId, author.userId));
+        poll.setPollId(pollId);
+        poll.setTitle("Lunch on Friday " + pollId);
+        poll.setDescription("Somewhere close to the office please");
+        poll.setZipCode("90032");
+        poll.setActiveOn((long) loop.now());
+        poll.setTimeLimitInMs(TIME_LIMIT_MS);
+        poll.setClosesAt(poll.getActivatedOn() + TIME_LIMIT_MS);
+
+        while (poll.getVoters().size() < votersPerPoll) {
+            SimClient voter = clients.get(random.nextInt(userCount));
+            User user = new User(voter.userId, voter.userId);
+            if (voter != author && !poll.getVoters().contains(user)) {
+                poll.addVoters(user);
+            }
+        }
+
+        List<Business> businesses = new ArrayList<>();
+        List<BusinessSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < BUSINESSES_PER_POLL; i++) {
+            Business business = newBusiness(random.nextInt(5000));
+            businesses.add(business);
+            summaries.add(BusinessSummary.from(business));
+        }
+        poll.setBusinesses(summaries);
+
+        final Set<String> userIds = PollUpdates.getParticipantIds(poll);
+        participants.put(pollId, userIds);
+
+        final List<String> businessIds = new ArrayList<>();
+        for (Business business : businesses) {
+            businessIds.add(business.getId());
+        }
+
+        database.write(author, PollUpdates.newPoll(poll, businesses), new MemoryDatabase.WriteListener() {
+            @Override
+            public void onWriteAcknowledged(double latencyMs) {
+                pollWriteMs.record(latencyMs);
+                for (String userId : userIds) {
+                    openPoll(clientOf(userId), pollId, businessIds);
+                }
+            }
+        });
+    }
+
+    /**
+     * The participant opens the poll some time later, watches it and votes.
+     */
+    private void openPoll(final SimClient client, final String pollId, final List<String> businessIds) {
+        loop.schedule(exponential(MEAN_OPEN_DELAY_MS), new Runnable() {
+            @Override
+            public void run() {
+                database.addChildListener(PollUpdates.POLLS_TREE + "/" + pollId, client, true,
+                        new MemoryDatabase.ChildListener() {
+                            @Override
+                            public void onChild(String childKey, int bytes, SimClient writer, double startedAtMs) {
+                                client.relevantBytesDown += bytes;
+                                if (writer != null && writer != client && PollUpdates.VOTES_TREE.equals(childKey)) {
+                                    tallyLatencyMs.record(loop.now() - startedAtMs);
+                                }
+                            }
+                        });
+
+                scheduleVote(client, pollId, businessIds, null);
+            }
+        });
+    }
+
+    private void scheduleVote(final SimClient client, final String pollId, final List<String> businessIds,
+                              final String previousBusinessId) {
+        loop.schedule(exponential(MEAN_VOTE_DELAY_MS), new Runnable() {
+            @Override
+            public void run() {
+                String businessId = businessIds.get(random.nextInt(businessIds.size()));
+                if (businessId.equals(previousBusinessId)) {
+                    return;
+                }
+
+                database.write(client, PollUpdates.vote(pollId, client.userId, businessId, previousBusinessId),
+                        new MemoryDatabase.WriteListener() {
+                            @Override
+                            public void onWriteAcknowledged(double latencyMs) {
+                                voteAckMs.record(latencyMs);
+                            }
+                        });
+
+                if (previousBusinessId == null && random.nextDouble() < CHANGE_VOTE_PROBABILITY) {
+                    scheduleVote(client, pollId, businessIds, businessId);
+                }
+            }
+        });
+    }
+
+    private void report(long elapsedMs) {
+        Histogram kilobytesDown = new Histogram();
+        Histogram callbacks = new Histogram();
+        long bytesDown = 0;
+        long relevantBytesDown = 0;
+        long bytesUp = 0;
+        for (SimClient client : clients) {
+            kilobytesDown.record(client.bytesDown / 1024.0);
+            callbacks.record(client.callbacks);
+            bytesDown += client.bytesDown;
+            relevantBytesDown += client.relevantBytesDown;
+            bytesUp += client.bytesUp;
+        }
+
+        System.out.println(String.format(Locale.US, "mode %s, %d users, %d polls, %d voters per poll, %d writes, ran in %d ms",
+                mode, userCount, pollCount, votersPerPoll, database.writeCount, elapsedMs));
+        System.out.println(String.format(Locale.US, "total down %.1f MB (%.1f%% relevant), total up %.1f MB",
+                bytesDown / 1048576.0, bytesDown == 0 ? 0 : 100.0 * relevantBytesDown / bytesDown,
+                bytesUp / 1048576.0));
+        System.out.println("KB down per client    " + kilobytesDown.summary(1));
+        System.out.println("callbacks per client  " + callbacks.summary(1));
+        System.out.println("poll write ms         " + pollWriteMs.summary(1));
+        System.out.println("vote ack ms           " + voteAckMs.summary(1));
+        System.out.println("vote to voters ms     " + tallyLatencyMs.summary(1));
+        System.out.println("server queue ms       " + database.serverQueueMs.summary(1));
+    }
+
+    private SimClient clientOf(String userId) {
+        return clients.get(Integer.parseInt(userId.substring("user".length())));
+    }
+
+    private double exponential(double meanMs) {
+        return -meanMs * Math.log(1 - random.nextDouble());
+    }
+
+    private static Business newBusiness(int i) {
+        Business business = new Business();
+        business.setId("restaurant-" + i + "-los-angeles");
+        business.setName("Restaurant " + i);
+        business.setImageUrl("https://s3-media1.fl.yelpcdn.com/bphoto/" + i + "/o.jpg");
+        business.setUrl("https://www.yelp.com/biz/restaurant-" + i + "-los-angeles");
+        business.setDisplayPhone("(323) 555-" + String.format(Locale.US, "%04d", i % 10000));
+        business.setPrice("$$");
+        business.setRating(3 + (i % 5) / 2.0);
+        business.setReviewCount(i % 900);
+        business.setDistance(100 + i % 5000);
+        return business;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static String get(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+}